@@ -115,6 +115,7 @@
 }
 
 -keep class org.coolreader.crengine.Selection {
+    <init>();
     java.lang.String startPos;
     java.lang.String endPos;
     java.lang.String text;
@@ -126,6 +127,14 @@
     int percent;
 }
 
+-keep class org.coolreader.crengine.TextChunk {
+    java.lang.String text;
+    java.lang.String startPos;
+    java.lang.String nextPos;
+    int[] offsets;
+    java.lang.String[] positions;
+}
+
 # Found in cr3engine.cpp
 
 -keep class org.coolreader.crengine.Engine {
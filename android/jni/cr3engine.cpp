@@ -294,7 +294,24 @@ static bool GetODTBookProperties(const char *name, LVStreamRef stream, BookPrope
 	return true;
 }
 
-static bool GetBookProperties(const char *name,  BookProperties * pBookProps)
+/// State shared between items of batch scan: archive opened for one item is reused for next items of the same archive
+struct BookScanContext
+{
+    lString32 arcPathName;
+    LVContainerRef container;
+    /// returns archive opened by previous item, or NULL ref
+    LVContainerRef getArchive(const lString32 & pathName) {
+        if (!container.isNull() && arcPathName == pathName)
+            return container;
+        return LVContainerRef();
+    }
+    void setArchive(const lString32 & pathName, LVContainerRef arc) {
+        arcPathName = pathName;
+        container = arc;
+    }
+};
+
+static bool GetBookProperties(const char *name,  BookProperties * pBookProps, BookScanContext * ctx = NULL)
 {
     CRLog::trace("GetBookProperties( %s )", name);
 
@@ -303,44 +320,53 @@ static bool GetBookProperties(const char *name,  BookProperties * pBookProps)
     lString32 arcItemPathName;
     bool isArchiveFile = LVSplitArcName( lString32(name), arcPathName, arcItemPathName );
 
-    // open stream
-    LVStreamRef stream = LVOpenFileStream( (isArchiveFile ? arcPathName : Utf8ToUnicode(lString8(name))).c_str() , LVOM_READ);
-    if (!stream) {
-        CRLog::error("cannot open file %s", name);
-        return false;
-    }
-
-
     pBookProps->format = doc_format_none;
-    if ( DetectEpubFormat( stream ) ) {
-        CRLog::trace("GetBookProperties() : epub format detected");
-        pBookProps->format = doc_format_epub;
-    	return GetEPUBBookProperties( name, stream, pBookProps );
-    }
-    if ( DetectFb3Format( stream ) ) {
-        CRLog::trace("GetBookProperties() : fb3 format detected");
-        pBookProps->format = doc_format_fb3;
-        return GetFB3BookProperties( name, stream, pBookProps );
+    // archive which is already opened is known not to be a ZIP-based book format
+    LVContainerRef container;
+    if ( isArchiveFile && ctx )
+        container = ctx->getArchive(arcPathName);
+    LVStreamRef stream;
+    if ( container.isNull() ) {
+	    // open stream
+	    stream = LVOpenFileStream( (isArchiveFile ? arcPathName : Utf8ToUnicode(lString8(name))).c_str() , LVOM_READ);
+	    if (!stream) {
+	        CRLog::error("cannot open file %s", name);
+	        return false;
+	    }
+
+	    if ( DetectEpubFormat( stream ) ) {
+	        CRLog::trace("GetBookProperties() : epub format detected");
+	        pBookProps->format = doc_format_epub;
+	    	return GetEPUBBookProperties( name, stream, pBookProps );
+	    }
+	    if ( DetectFb3Format( stream ) ) {
+	        CRLog::trace("GetBookProperties() : fb3 format detected");
+	        pBookProps->format = doc_format_fb3;
+	        return GetFB3BookProperties( name, stream, pBookProps );
+	    }
+		if ( DetectDocXFormat( stream ) ) {
+			CRLog::trace("GetBookProperties() : docx format detected");
+	        pBookProps->format = doc_format_docx;
+			return GetDOCXBookProperties( name, stream, pBookProps );
+		}
+		if ( DetectOpenDocumentFormat( stream ) ) {
+			CRLog::trace("GetBookProperties() : odt format detected");
+	        pBookProps->format = doc_format_odt;
+			return GetODTBookProperties( name, stream, pBookProps );
+		}
     }
-	if ( DetectDocXFormat( stream ) ) {
-		CRLog::trace("GetBookProperties() : docx format detected");
-        pBookProps->format = doc_format_docx;
-		return GetDOCXBookProperties( name, stream, pBookProps );
-	}
-	if ( DetectOpenDocumentFormat( stream ) ) {
-		CRLog::trace("GetBookProperties() : odt format detected");
-        pBookProps->format = doc_format_odt;
-		return GetODTBookProperties( name, stream, pBookProps );
-	}
 
     time_t t = (time_t)time(0);
 
     if ( isArchiveFile ) {
-		lvsize_t arcsize = stream->GetSize();
-        LVContainerRef container = LVOpenArchieve(stream);
         if ( container.isNull() ) {
-            CRLog::error( "Cannot read archive contents from %s", LCSTR(arcPathName) );
-            return false;
+            container = LVOpenArchieve(stream);
+            if ( container.isNull() ) {
+                CRLog::error( "Cannot read archive contents from %s", LCSTR(arcPathName) );
+                return false;
+            }
+            if ( ctx )
+                ctx->setArchive(arcPathName, container);
         }
         stream = container->OpenStream(arcItemPathName.c_str(), LVOM_READ);
         if ( stream.isNull() ) {
@@ -405,43 +431,31 @@ static bool GetBookProperties(const char *name,  BookProperties * pBookProps)
 }
 
 
-/*
- * Class:     org_coolreader_crengine_Engine
- * Method:    scanBookPropertiesInternal
- * Signature: (Lorg/coolreader/crengine/FileInfo;)Z
- */
-JNIEXPORT jboolean JNICALL Java_org_coolreader_crengine_Engine_scanBookPropertiesInternal
-  (JNIEnv * _env, jclass _engine, jobject _fileInfo)
+/// returns FileInfo field ID, cached in JNI_OnLoad if possible
+static jfieldID getFileInfoFieldID(CRJNIEnv & env, jclass objclass, const char * fieldName, const char * fieldType)
 {
-	CRJNIEnv env(_env);
-	jclass objclass = env->GetObjectClass(_fileInfo);
-	jfieldID fid = env->GetFieldID(objclass, "pathname", "Ljava/lang/String;");
-	lString32 filename = env.fromJavaString( (jstring)env->GetObjectField(_fileInfo, fid) );
-    fid = env->GetFieldID(objclass, "arcname", "Ljava/lang/String;");
-    lString32 arcname = env.fromJavaString( (jstring)env->GetObjectField(_fileInfo, fid) );
-	if ( filename.empty() )
-		return JNI_FALSE;
-	if ( !arcname.empty() )
-       filename = arcname + "@/" + filename;
+	jfieldID fid = CRJNIIds::fileInfo.getFieldID(fieldName, fieldType);
+	return fid ? fid : env->GetFieldID(objclass, fieldName, fieldType);
+}
 
-	BookProperties props;
-	CRLog::debug("Looking for properties of file %s", LCSTR(filename));
-	bool res = GetBookProperties(LCSTR(filename),  &props);
-	if ( !res )
-		return JNI_FALSE;
+/// copies scanned book properties to FileInfo object
+static void setFileInfoProperties(CRJNIEnv & env, jclass objclass, jobject _fileInfo, BookProperties & props)
+{
 	#define SET_STR_FLD(fldname,src) \
 	{ \
-	    jfieldID fid = env->GetFieldID(objclass, fldname, "Ljava/lang/String;"); \
-	    env->SetObjectField(_fileInfo,fid,env.toJavaString(src)); \
+	    jfieldID fid = getFileInfoFieldID(env, objclass, fldname, "Ljava/lang/String;"); \
+	    jstring str = env.toJavaString(src); \
+	    env->SetObjectField(_fileInfo,fid,str); \
+	    env->DeleteLocalRef(str); \
 	}
 	#define SET_INT_FLD(fldname,src) \
 	{ \
-	    jfieldID fid = env->GetFieldID(objclass, fldname, "I"); \
+	    jfieldID fid = getFileInfoFieldID(env, objclass, fldname, "I"); \
 	    env->SetIntField(_fileInfo,fid,src); \
 	}
 	#define SET_LONG_FLD(fldname,src) \
 	{ \
-	    jfieldID fid = env->GetFieldID(objclass, fldname, "J"); \
+	    jfieldID fid = getFileInfoFieldID(env, objclass, fldname, "J"); \
 	    env->SetLongField(_fileInfo,fid,src); \
 	}
 	SET_STR_FLD("title",props.title);
@@ -462,7 +476,42 @@ JNIEXPORT jboolean JNICALL Java_org_coolreader_crengine_Engine_scanBookPropertie
 		SET_STR_FLD("genres", props.keywords);
 	}
 	SET_STR_FLD("description",props.description);
+}
 
+/// returns file name of FileInfo object, archive item name is returned in form arc@/item
+static lString32 getFileInfoPathName(CRJNIEnv & env, jclass objclass, jobject _fileInfo)
+{
+	jstring str = (jstring)env->GetObjectField(_fileInfo, getFileInfoFieldID(env, objclass, "pathname", "Ljava/lang/String;"));
+	lString32 filename = env.fromJavaString(str);
+	env->DeleteLocalRef(str);
+	str = (jstring)env->GetObjectField(_fileInfo, getFileInfoFieldID(env, objclass, "arcname", "Ljava/lang/String;"));
+	lString32 arcname = env.fromJavaString(str);
+	env->DeleteLocalRef(str);
+	if ( !filename.empty() && !arcname.empty() )
+		filename = arcname + "@/" + filename;
+	return filename;
+}
+
+/*
+ * Class:     org_coolreader_crengine_Engine
+ * Method:    scanBookPropertiesInternal
+ * Signature: (Lorg/coolreader/crengine/FileInfo;)Z
+ */
+JNIEXPORT jboolean JNICALL Java_org_coolreader_crengine_Engine_scanBookPropertiesInternal
+  (JNIEnv * _env, jclass _engine, jobject _fileInfo)
+{
+	CRJNIEnv env(_env);
+	jclass objclass = CRJNIIds::fileInfo.cls ? CRJNIIds::fileInfo.cls : env->GetObjectClass(_fileInfo);
+	lString32 filename = getFileInfoPathName(env, objclass, _fileInfo);
+	if ( filename.empty() )
+		return JNI_FALSE;
+
+	BookProperties props;
+	CRLog::debug("Looking for properties of file %s", LCSTR(filename));
+	bool res = GetBookProperties(LCSTR(filename),  &props);
+	if ( !res )
+		return JNI_FALSE;
+	setFileInfoProperties(env, objclass, _fileInfo, props);
 	return JNI_TRUE;
 }
 
@@ -475,10 +524,10 @@ JNIEXPORT jboolean JNICALL Java_org_coolreader_crengine_Engine_updateFileCRC32In
 		(JNIEnv * _env, jclass _engine, jobject _fileInfo)
 {
 	CRJNIEnv env(_env);
-	jclass objclass = env->GetObjectClass(_fileInfo);
-	jfieldID fid = env->GetFieldID(objclass, "pathname", "Ljava/lang/String;");
+	jclass objclass = CRJNIIds::fileInfo.cls ? CRJNIIds::fileInfo.cls : env->GetObjectClass(_fileInfo);
+	jfieldID fid = getFileInfoFieldID(env, objclass, "pathname", "Ljava/lang/String;");
 	lString32 filename = env.fromJavaString( (jstring)env->GetObjectField(_fileInfo, fid) );
-	fid = env->GetFieldID(objclass, "arcname", "Ljava/lang/String;");
+	fid = getFileInfoFieldID(env, objclass, "arcname", "Ljava/lang/String;");
 	lString32 arcname = env.fromJavaString( (jstring)env->GetObjectField(_fileInfo, fid) );
 	if ( filename.empty() )
 		return JNI_FALSE;
@@ -500,7 +549,7 @@ JNIEXPORT jboolean JNICALL Java_org_coolreader_crengine_Engine_updateFileCRC32In
 		}
 	}
 	if (!stream.isNull()) {
-		fid = env->GetFieldID(objclass, "crc32", "J");
+		fid = getFileInfoFieldID(env, objclass, "crc32", "J");
 	    env->SetLongField(_fileInfo, fid, stream->getcrc32());
 	} else {
 		CRLog::error("cannot open file %s", LCSTR(isArchiveFile ? arcname : filename));
@@ -586,15 +635,11 @@ JNIEXPORT void JNICALL Java_org_coolreader_crengine_Engine_drawBookCoverInternal
 	COFFEE_TRY_JNI(_env, drawBookCoverInternal(_env, _engine, bitmap, _data, _fontFace, _title, _authors, _seriesName, seriesNumber, bpp));
 }
 
-jbyteArray scanBookCoverInternal
-  (JNIEnv * _env, jclass _class, jstring _path)
+/// finds coverpage image of book, path is file name or archive item name in form arc@/item
+static LVStreamRef GetBookCoverpage(const lString32 & path, BookScanContext * ctx = NULL)
 {
-	CRJNIEnv env(_env);
-	lString32 path = env.fromJavaString(_path);
-	CRLog::debug("scanBookCoverInternal(%s) called", LCSTR(path));
 	lString32 arcname, item;
     LVStreamRef res;
-    jbyteArray array = NULL;
     LVContainerRef arc;
 	if (!LVSplitArcName(path, arcname, item)) {
 		// not in archive
@@ -619,25 +664,42 @@ jbyteArray scanBookCoverInternal
 			}
 		}
 	} else {
-    	CRLog::debug("scanBookCoverInternal() : is archive, item=%s, arc=%s", LCSTR(item), LCSTR(arcname));
-		LVStreamRef arcstream = LVOpenFileStream(arcname.c_str(), LVOM_READ);
-		if (!arcstream.isNull()) {
-			arc = LVOpenArchieve(arcstream);
-			if (!arc.isNull()) {
-				LVStreamRef stream = arc->OpenStream(item.c_str(), LVOM_READ);
-				if (!stream.isNull()) {
-			    	CRLog::debug("scanBookCoverInternal() : archive stream opened ok, parsing");
-					res = GetFB2Coverpage(stream);
-					if (res.isNull()) {
-						doc_format_t fmt;
-						if (DetectPDBFormat(stream, fmt)) {
-							res = GetPDBCoverpage(stream);
-						}
+    	CRLog::debug("GetBookCoverpage() : is archive, item=%s, arc=%s", LCSTR(item), LCSTR(arcname));
+		if (ctx)
+			arc = ctx->getArchive(arcname);
+		if (arc.isNull()) {
+			LVStreamRef arcstream = LVOpenFileStream(arcname.c_str(), LVOM_READ);
+			if (!arcstream.isNull()) {
+				arc = LVOpenArchieve(arcstream);
+				if (!arc.isNull() && ctx)
+					ctx->setArchive(arcname, arc);
+			}
+		}
+		if (!arc.isNull()) {
+			LVStreamRef stream = arc->OpenStream(item.c_str(), LVOM_READ);
+			if (!stream.isNull()) {
+		    	CRLog::debug("GetBookCoverpage() : archive stream opened ok, parsing");
+				res = GetFB2Coverpage(stream);
+				if (res.isNull()) {
+					doc_format_t fmt;
+					if (DetectPDBFormat(stream, fmt)) {
+						res = GetPDBCoverpage(stream);
 					}
 				}
 			}
 		}
 	}
+	return res;
+}
+
+jbyteArray scanBookCoverInternal
+  (JNIEnv * _env, jclass _class, jstring _path)
+{
+	CRJNIEnv env(_env);
+	lString32 path = env.fromJavaString(_path);
+	CRLog::debug("scanBookCoverInternal(%s) called", LCSTR(path));
+    jbyteArray array = NULL;
+    LVStreamRef res = GetBookCoverpage(path);
 	if (!res.isNull())
 		array = env.streamToJByteArray(res);
     if (array != NULL)
@@ -660,6 +722,84 @@ JNIEXPORT jbyteArray JNICALL Java_org_coolreader_crengine_Engine_scanBookCoverIn
 	return res;
 }
 
+// per item status of batch scan, see Engine.SCAN_STATUS_*
+#define SCAN_STATUS_OK        0
+#define SCAN_STATUS_FAILED    1
+#define SCAN_STATUS_CANCELLED 2
+
+void scanBookPropertiesBatchInternal
+  (JNIEnv * _env, jclass _class, jobjectArray _items, jintArray _status, jobjectArray _covers, jobject _control)
+{
+	CRJNIEnv env(_env);
+	int count = env->GetArrayLength(_items);
+	if ( count <= 0 )
+		return;
+	jmethodID isStopped = NULL;
+	if ( _control ) {
+		jclass controlClass = env->GetObjectClass(_control);
+		isStopped = env->GetMethodID(controlClass, "isStopped", "()Z");
+		if ( !isStopped ) {
+			// NoSuchMethodError is pending, scan without stop checks
+			env->ExceptionClear();
+			CRLog::error("scanBookPropertiesBatchInternal: ScanControl.isStopped() not found");
+		}
+		env->DeleteLocalRef(controlClass);
+	}
+	jclass localClass = NULL;
+	jclass objclass = CRJNIIds::fileInfo.cls;
+	if ( !objclass ) {
+		jobject first = env->GetObjectArrayElement(_items, 0);
+		objclass = localClass = env->GetObjectClass(first);
+		env->DeleteLocalRef(first);
+	}
+	// archive opened for one item is reused for next items of the same archive
+	BookScanContext ctx;
+	LVArray<jint> status(count, SCAN_STATUS_CANCELLED);
+	int scanned = 0;
+	for ( int i = 0; i < count; i++ ) {
+		if ( isStopped && env->CallBooleanMethod(_control, isStopped) ) {
+			CRLog::debug("scanBookPropertiesBatchInternal: stopped after %d of %d items", i, count);
+			break;
+		}
+		jobject item = env->GetObjectArrayElement(_items, i);
+		status[i] = SCAN_STATUS_FAILED;
+		lString32 filename = getFileInfoPathName(env, objclass, item);
+		if ( !filename.empty() ) {
+			BookProperties props;
+			if ( GetBookProperties(LCSTR(filename), &props, &ctx) ) {
+				setFileInfoProperties(env, objclass, item, props);
+				status[i] = SCAN_STATUS_OK;
+				scanned++;
+				if ( _covers ) {
+					LVStreamRef cover = GetBookCoverpage(filename, &ctx);
+					if ( !cover.isNull() ) {
+						jbyteArray array = env.streamToJByteArray(cover);
+						env->SetObjectArrayElement(_covers, i, array);
+						env->DeleteLocalRef(array);
+					}
+				}
+			}
+		}
+		env->DeleteLocalRef(item);
+		// status is stored per item: if scanning of some item throws, results of previous items are kept
+		env->SetIntArrayRegion(_status, i, 1, status.get() + i);
+	}
+	if ( localClass )
+		env->DeleteLocalRef(localClass);
+	CRLog::debug("scanBookPropertiesBatchInternal: %d of %d items scanned", scanned, count);
+}
+
+/*
+ * Class:     org_coolreader_crengine_Engine
+ * Method:    scanBookPropertiesBatchInternal
+ * Signature: ([Lorg/coolreader/crengine/FileInfo;[I[[BLorg/coolreader/crengine/Scanner$ScanControl;)V
+ */
+JNIEXPORT void JNICALL Java_org_coolreader_crengine_Engine_scanBookPropertiesBatchInternal
+  (JNIEnv * _env, jclass _class, jobjectArray _items, jintArray _status, jobjectArray _covers, jobject _control)
+{
+	COFFEE_TRY_JNI(_env, scanBookPropertiesBatchInternal( _env, _class, _items, _status, _covers, _control));
+}
+
 /*
  * Class:     org_coolreader_crengine_Engine
  * Method:    getArchiveItemsInternal
@@ -1159,6 +1299,53 @@ JNIEXPORT jint JNICALL Java_org_coolreader_crengine_Engine_getDomVersionCurrent
 	return gDOMVersionCurrent;
 }
 
+static jlong monotonicTimeNanos()
+{
+	struct timespec ts;
+	clock_gettime(CLOCK_MONOTONIC, &ts);
+	return (jlong)ts.tv_sec * 1000000000LL + ts.tv_nsec;
+}
+
+/*
+ * Class:     org_coolreader_crengine_Engine
+ * Method:    benchmarkMarshallingInternal
+ * Signature: (I)[J
+ */
+JNIEXPORT jlongArray JNICALL Java_org_coolreader_crengine_Engine_benchmarkMarshallingInternal
+  (JNIEnv * _env, jclass _engine, jint iterations)
+{
+	// Fills PositionProperties object in the same way as getPositionPropsInternal,
+	// first resolving class and field IDs by name, then using IDs cached in JNI_OnLoad.
+	// Returns elapsed time of both passes, in nanoseconds.
+	jobject obj = CRJNIIds::positionProperties.newObject(_env);
+	if (!obj)
+		return NULL;
+	static const char * fieldNames[] = {"x", "y", "fullHeight", "pageHeight", "pageWidth", "pageNumber", "pageCount", "pageMode"};
+	static const int fieldCount = sizeof(fieldNames) / sizeof(fieldNames[0]);
+	jlong times[2];
+	for (int pass = 0; pass < 2; pass++) {
+		jlong start = monotonicTimeNanos();
+		for (int i = 0; i < iterations; i++) {
+			if (pass == 0) {
+				CRObjectAccessor v(_env, obj);
+				for (int j = 0; j < fieldCount; j++)
+					CRIntField(v, fieldNames[j]).set(i + j);
+				_env->DeleteLocalRef(v.getClass());
+			} else {
+				CRObjectAccessor v(_env, obj, CRJNIIds::positionProperties);
+				for (int j = 0; j < fieldCount; j++)
+					CRIntField(v, fieldNames[j]).set(i + j);
+			}
+		}
+		times[pass] = monotonicTimeNanos() - start;
+	}
+	_env->DeleteLocalRef(obj);
+	jlongArray res = _env->NewLongArray(2);
+	if (res)
+		_env->SetLongArrayRegion(res, 0, 2, times);
+	return res;
+}
+
 //=====================================================================
 
 static JNINativeMethod sEngineMethods[] = {
@@ -1178,11 +1365,13 @@ static JNINativeMethod sEngineMethods[] = {
   {"suspendLongOperationInternal", "()V", (void*)Java_org_coolreader_crengine_Engine_suspendLongOperationInternal},
   {"setKeyBacklightInternal", "(I)Z", (void*)Java_org_coolreader_crengine_Engine_setKeyBacklightInternal},
   {"scanBookCoverInternal", "(Ljava/lang/String;)[B", (void*)Java_org_coolreader_crengine_Engine_scanBookCoverInternal},
+  {"scanBookPropertiesBatchInternal", "([Lorg/coolreader/crengine/FileInfo;[I[[BLorg/coolreader/crengine/Scanner$ScanControl;)V", (void*)Java_org_coolreader_crengine_Engine_scanBookPropertiesBatchInternal},
   {"drawBookCoverInternal", "(Landroid/graphics/Bitmap;[BLjava/lang/String;Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;II)V", (void*)Java_org_coolreader_crengine_Engine_drawBookCoverInternal},
   {"haveFcLangCodeInternal", "(Ljava/lang/String;)Z", (void*)Java_org_coolreader_crengine_Engine_haveFcLangCodeInternal},
   {"checkFontLanguageCompatibilityInternal", "(Ljava/lang/String;Ljava/lang/String;)Z", (void*)Java_org_coolreader_crengine_Engine_checkFontLanguageCompatibilityInternal},
   {"listFilesInternal", "(Ljava/io/File;)[Ljava/io/File;", (void*)Java_org_coolreader_crengine_Engine_listFilesInternal},
-  {"getDomVersionCurrent", "()I", (void*)Java_org_coolreader_crengine_Engine_getDomVersionCurrent}
+  {"getDomVersionCurrent", "()I", (void*)Java_org_coolreader_crengine_Engine_getDomVersionCurrent},
+  {"benchmarkMarshallingInternal", "(I)[J", (void*)Java_org_coolreader_crengine_Engine_benchmarkMarshallingInternal}
 };
 
 
@@ -1191,6 +1380,7 @@ static JNINativeMethod sDocViewMethods[] = {
   {"createInternal", "()V", (void*)Java_org_coolreader_crengine_DocView_createInternal},
   {"destroyInternal", "()V", (void*)Java_org_coolreader_crengine_DocView_destroyInternal},
   {"getPageImageInternal", "(Landroid/graphics/Bitmap;I)V", (void*)Java_org_coolreader_crengine_DocView_getPageImageInternal},
+  {"getPageImageAtInternal", "(Landroid/graphics/Bitmap;II)Lorg/coolreader/crengine/PositionProperties;", (void*)Java_org_coolreader_crengine_DocView_getPageImageAtInternal},
   {"loadDocumentInternal", "(Ljava/lang/String;)Z", (void*)Java_org_coolreader_crengine_DocView_loadDocumentInternal},
   {"loadDocumentFromMemoryInternal", "([BLjava/lang/String;)Z", (void*)Java_org_coolreader_crengine_DocView_loadDocumentFromMemoryInternal},
   {"getSettingsInternal", "()Ljava/util/Properties;", (void*)Java_org_coolreader_crengine_DocView_getSettingsInternal},
@@ -1213,6 +1403,9 @@ static JNINativeMethod sDocViewMethods[] = {
   {"checkLinkInternal", "(III)Ljava/lang/String;", (void*)Java_org_coolreader_crengine_DocView_checkLinkInternal},
   {"goLinkInternal", "(Ljava/lang/String;)I", (void*)Java_org_coolreader_crengine_DocView_goLinkInternal},
   {"moveSelectionInternal", "(Lorg/coolreader/crengine/Selection;II)Z", (void*)Java_org_coolreader_crengine_DocView_moveSelectionInternal},
+  {"selectSentenceInternal", "(Ljava/lang/String;Lorg/coolreader/crengine/Selection;)Z", (void*)Java_org_coolreader_crengine_DocView_selectSentenceInternal},
+  {"getNextSentencesInternal", "(Ljava/lang/String;I)[Lorg/coolreader/crengine/Selection;", (void*)Java_org_coolreader_crengine_DocView_getNextSentencesInternal},
+  {"getTextChunkInternal", "(Ljava/lang/String;Ljava/lang/String;ILorg/coolreader/crengine/TextChunk;)Z", (void*)Java_org_coolreader_crengine_DocView_getTextChunkInternal},
   {"swapToCacheInternal", "()I", (void*)Java_org_coolreader_crengine_DocView_swapToCacheInternal},
   {"checkImageInternal", "(IILorg/coolreader/crengine/ImageInfo;)Z", (void*)Java_org_coolreader_crengine_DocView_checkImageInternal},
   {"drawImageInternal", "(Landroid/graphics/Bitmap;ILorg/coolreader/crengine/ImageInfo;)Z", (void*)Java_org_coolreader_crengine_DocView_drawImageInternal},
@@ -1275,5 +1468,7 @@ jint JNI_OnLoad(JavaVM* vm, void* reserved)
     jniRegisterNativeMethods(env, "org/coolreader/crengine/Engine", sEngineMethods, sizeof(sEngineMethods)/sizeof(JNINativeMethod));
     jniRegisterNativeMethods(env, "org/coolreader/crengine/DocView", sDocViewMethods, sizeof(sDocViewMethods)/sizeof(JNINativeMethod));
     LOGI("JNI_OnLoad: native methods are registered!\n");
+    if (!CRJNIIds::init(env))
+        LOGE("JNI_OnLoad: some of Java class IDs are not resolved, lookup by name will be used for them\n");
     return res;
 }
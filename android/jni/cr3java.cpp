@@ -2,6 +2,7 @@
 #include "../../crengine/include/crlog.h"
 
 #include <dlfcn.h>
+#include <string.h>
 #include <android/api-level.h>
 
 uint8_t CRJNIEnv::sdk_int = 0;
@@ -93,6 +94,173 @@ jobject CRJNIEnv::toJavaProperties( CRPropRef props )
 	return obj;
 }
 
+#define STRING_TYPE "Ljava/lang/String;"
+#define FIELD_COUNT(fields) (sizeof(fields) / sizeof(CRJavaFieldId))
+
+static CRJavaFieldId sFileInfoFields[] = {
+	{"pathname", STRING_TYPE, NULL},
+	{"arcname", STRING_TYPE, NULL},
+	{"title", STRING_TYPE, NULL},
+	{"authors", STRING_TYPE, NULL},
+	{"series", STRING_TYPE, NULL},
+	{"seriesNumber", "I", NULL},
+	{"language", STRING_TYPE, NULL},
+	{"genres", STRING_TYPE, NULL},
+	{"description", STRING_TYPE, NULL},
+	{"crc32", "J", NULL},
+};
+
+static CRJavaFieldId sBookInfoFields[] = {
+	{"fileInfo", "Lorg/coolreader/crengine/FileInfo;", NULL},
+};
+
+static CRJavaFieldId sBookmarkFields[] = {
+	{"type", "I", NULL},
+	{"percent", "I", NULL},
+	{"startPos", STRING_TYPE, NULL},
+	{"endPos", STRING_TYPE, NULL},
+	{"titleText", STRING_TYPE, NULL},
+	{"posText", STRING_TYPE, NULL},
+	{"commentText", STRING_TYPE, NULL},
+	{"timeStamp", "J", NULL},
+};
+
+static CRJavaFieldId sPositionPropertiesFields[] = {
+	{"x", "I", NULL},
+	{"y", "I", NULL},
+	{"fullHeight", "I", NULL},
+	{"pageHeight", "I", NULL},
+	{"pageWidth", "I", NULL},
+	{"pageNumber", "I", NULL},
+	{"pageCount", "I", NULL},
+	{"pageMode", "I", NULL},
+	{"charCount", "I", NULL},
+	{"imageCount", "I", NULL},
+	{"pageText", STRING_TYPE, NULL},
+};
+
+static CRJavaFieldId sImageInfoFields[] = {
+	{"width", "I", NULL},
+	{"height", "I", NULL},
+	{"scaledWidth", "I", NULL},
+	{"scaledHeight", "I", NULL},
+	{"x", "I", NULL},
+	{"y", "I", NULL},
+	{"bufWidth", "I", NULL},
+	{"bufHeight", "I", NULL},
+	{"bufDpi", "I", NULL},
+	{"rotation", "I", NULL},
+};
+
+static CRJavaFieldId sSelectionFields[] = {
+	{"startPos", STRING_TYPE, NULL},
+	{"endPos", STRING_TYPE, NULL},
+	{"text", STRING_TYPE, NULL},
+	{"chapter", STRING_TYPE, NULL},
+	{"startX", "I", NULL},
+	{"startY", "I", NULL},
+	{"endX", "I", NULL},
+	{"endY", "I", NULL},
+	{"percent", "I", NULL},
+};
+
+static CRJavaFieldId sTOCItemFields[] = {
+	{"mLevel", "I", NULL},
+	{"mPage", "I", NULL},
+	{"mPercent", "I", NULL},
+	{"mName", STRING_TYPE, NULL},
+	{"mPath", STRING_TYPE, NULL},
+};
+
+static CRJavaFieldId sTextChunkFields[] = {
+	{"text", STRING_TYPE, NULL},
+	{"startPos", STRING_TYPE, NULL},
+	{"nextPos", STRING_TYPE, NULL},
+	{"offsets", "[I", NULL},
+	{"positions", "[Ljava/lang/String;", NULL},
+};
+
+CRJavaClassIds CRJNIIds::fileInfo("org/coolreader/crengine/FileInfo", NULL, sFileInfoFields, FIELD_COUNT(sFileInfoFields));
+CRJavaClassIds CRJNIIds::bookInfo("org/coolreader/crengine/BookInfo", NULL, sBookInfoFields, FIELD_COUNT(sBookInfoFields));
+CRJavaClassIds CRJNIIds::bookmark("org/coolreader/crengine/Bookmark", "()V", sBookmarkFields, FIELD_COUNT(sBookmarkFields));
+CRJavaClassIds CRJNIIds::positionProperties("org/coolreader/crengine/PositionProperties", "()V", sPositionPropertiesFields, FIELD_COUNT(sPositionPropertiesFields));
+CRJavaClassIds CRJNIIds::imageInfo("org/coolreader/crengine/ImageInfo", NULL, sImageInfoFields, FIELD_COUNT(sImageInfoFields));
+CRJavaClassIds CRJNIIds::selection("org/coolreader/crengine/Selection", "()V", sSelectionFields, FIELD_COUNT(sSelectionFields));
+CRJavaClassIds CRJNIIds::tocItem("org/coolreader/crengine/TOCItem", "()V", sTOCItemFields, FIELD_COUNT(sTOCItemFields));
+CRJavaClassIds CRJNIIds::textChunk("org/coolreader/crengine/TextChunk", NULL, sTextChunkFields, FIELD_COUNT(sTextChunkFields));
+jmethodID CRJNIIds::tocItemAddChild = NULL;
+
+bool CRJavaClassIds::init(JNIEnv * env)
+{
+	jclass localClass = env->FindClass(className);
+	if (!localClass) {
+		env->ExceptionClear();
+		LOGE("Cannot find class %s", className);
+		return false;
+	}
+	cls = (jclass)env->NewGlobalRef(localClass);
+	env->DeleteLocalRef(localClass);
+	bool res = true;
+	if (ctorSignature) {
+		ctor = env->GetMethodID(cls, "<init>", ctorSignature);
+		if (!ctor) {
+			env->ExceptionClear();
+			LOGE("Cannot find constructor of class %s", className);
+			res = false;
+		}
+	}
+	for (int i = 0; i < fieldCount; i++) {
+		// field which is not found will be resolved by name on each access, as before caching
+		fields[i].id = env->GetFieldID(cls, fields[i].name, fields[i].type);
+		if (!fields[i].id) {
+			env->ExceptionClear();
+			LOGE("Cannot find field %s.%s", className, fields[i].name);
+			res = false;
+		}
+	}
+	return res;
+}
+
+jfieldID CRJavaClassIds::getFieldID(const char * fieldName, const char * fieldType)
+{
+	for (int i = 0; i < fieldCount; i++) {
+		if (!strcmp(fields[i].name, fieldName) && !strcmp(fields[i].type, fieldType))
+			return fields[i].id;
+	}
+	return NULL;
+}
+
+jobject CRJavaClassIds::newObject(JNIEnv * env)
+{
+	if (cls && ctor)
+		return env->NewObject(cls, ctor);
+	jclass localClass = env->FindClass(className);
+	jmethodID mid = env->GetMethodID(localClass, "<init>", "()V");
+	jobject obj = env->NewObject(localClass, mid);
+	env->DeleteLocalRef(localClass);
+	return obj;
+}
+
+bool CRJNIIds::init(JNIEnv * env)
+{
+	bool res = fileInfo.init(env);
+	res = bookInfo.init(env) && res;
+	res = bookmark.init(env) && res;
+	res = positionProperties.init(env) && res;
+	res = imageInfo.init(env) && res;
+	res = selection.init(env) && res;
+	res = tocItem.init(env) && res;
+	res = textChunk.init(env) && res;
+	if (tocItem.cls) {
+		tocItemAddChild = env->GetMethodID(tocItem.cls, "addChild", "()Lorg/coolreader/crengine/TOCItem;");
+		if (!tocItemAddChild) {
+			env->ExceptionClear();
+			res = false;
+		}
+	}
+	return res;
+}
+
 class TOCItemAccessor {
 	CRJNIEnv & _env;
 	jclass _cls;
@@ -105,15 +273,28 @@ class TOCItemAccessor {
 	jfieldID _path;
 public:
 	TOCItemAccessor( CRJNIEnv & env )
-	: _env(env), _cls(env->FindClass("org/coolreader/crengine/TOCItem"))
+	: _env(env)
+	{
+		CRJavaClassIds & ids = CRJNIIds::tocItem;
+		if ( ids.cls && ids.ctor && CRJNIIds::tocItemAddChild ) {
+			_cls = ids.cls;
+			_constructor = ids.ctor;
+			_addChild = CRJNIIds::tocItemAddChild;
+		} else {
+			_cls = env->FindClass("org/coolreader/crengine/TOCItem");
+			_constructor = _env->GetMethodID(_cls, "<init>", "()V");
+			_addChild = _env->GetMethodID(_cls, "addChild", "()Lorg/coolreader/crengine/TOCItem;");
+		}
+		_level = getFieldID("mLevel", "I");
+		_page = getFieldID("mPage", "I");
+		_percent = getFieldID("mPercent", "I");
+		_name = getFieldID("mName", "Ljava/lang/String;");
+		_path = getFieldID("mPath", "Ljava/lang/String;");
+	}
+	jfieldID getFieldID( const char * name, const char * type )
 	{
-		_constructor = _env->GetMethodID(_cls, "<init>", "()V");
-		_addChild = _env->GetMethodID(_cls, "addChild", "()Lorg/coolreader/crengine/TOCItem;");
-		_level = _env->GetFieldID(_cls, "mLevel", "I");
-		_page = _env->GetFieldID(_cls, "mPage", "I");
-		_percent = _env->GetFieldID(_cls, "mPercent", "I");
-		_name = _env->GetFieldID(_cls, "mName", "Ljava/lang/String;");
-		_path = _env->GetFieldID(_cls, "mPath", "Ljava/lang/String;");
+		jfieldID id = CRJNIIds::tocItem.getFieldID(name, type);
+		return id ? id : _env->GetFieldID(_cls, name, type);
 	}
 	void set( jobject obj, LVTocItem * item )
 	{
@@ -73,6 +73,52 @@ public:
 	jobject toJavaTOCItem( LVTocItem * toc );
 };
 
+//====================================================================
+// Cached IDs of Java classes which are marshalled by native code.
+// Classes, constructors and fields are resolved once in JNI_OnLoad
+// (see CRJNIIds::init()), so accessors don't need to call FindClass,
+// GetObjectClass and GetFieldID for every object.
+
+struct CRJavaFieldId {
+	const char * name;
+	const char * type;
+	jfieldID id;
+};
+
+class CRJavaClassIds {
+public:
+	const char * className;
+	const char * ctorSignature;
+	jclass cls;       // global reference, NULL if not resolved
+	jmethodID ctor;   // NULL if not resolved
+	CRJavaFieldId * fields;
+	int fieldCount;
+	CRJavaClassIds(const char * _className, const char * _ctorSignature, CRJavaFieldId * _fields, int _fieldCount)
+	: className(_className), ctorSignature(_ctorSignature), cls(NULL), ctor(NULL), fields(_fields), fieldCount(_fieldCount)
+	{
+	}
+	bool init(JNIEnv * env);
+	/// returns cached field ID, or NULL if field is not in cache
+	jfieldID getFieldID(const char * fieldName, const char * fieldType);
+	/// creates new object using cached default constructor
+	jobject newObject(JNIEnv * env);
+};
+
+class CRJNIIds {
+public:
+	static CRJavaClassIds fileInfo;
+	static CRJavaClassIds bookInfo;
+	static CRJavaClassIds bookmark;
+	static CRJavaClassIds positionProperties;
+	static CRJavaClassIds imageInfo;
+	static CRJavaClassIds selection;
+	static CRJavaClassIds tocItem;
+	static CRJavaClassIds textChunk;
+	static jmethodID tocItemAddChild;
+	/// resolves all IDs, should be called from JNI_OnLoad
+	static bool init(JNIEnv * env);
+};
+
 class CRClassAccessor : public CRJNIEnv {
 protected:
 	jclass cls;
@@ -90,12 +136,22 @@ public:
 
 class CRObjectAccessor : public CRClassAccessor {
 	jobject obj;
+	CRJavaClassIds * ids;
 public:
 	jobject getObject() { return obj; }
+	CRJavaClassIds * getIds() { return ids; }
 	CRObjectAccessor(JNIEnv * pEnv, jobject _obj)
     : CRClassAccessor(pEnv, pEnv->GetObjectClass(_obj))
     {
     	obj = _obj;
+    	ids = NULL;
+    }
+	/// accessor using cached class and field IDs; obj must be instance of class ids.className
+	CRObjectAccessor(JNIEnv * pEnv, jobject _obj, CRJavaClassIds & _ids)
+    : CRClassAccessor(pEnv, _ids.cls ? _ids.cls : pEnv->GetObjectClass(_obj))
+    {
+    	obj = _obj;
+    	ids = &_ids;
     }
 };
 
@@ -107,7 +163,9 @@ public:
 	CRFieldAccessor( CRObjectAccessor & acc, const char * fieldName, const char * fieldType )
 	: objacc(acc)
 	{
-		fieldid = objacc->GetFieldID( objacc.getClass(), fieldName, fieldType );
+		fieldid = objacc.getIds() ? objacc.getIds()->getFieldID( fieldName, fieldType ) : NULL;
+		if ( !fieldid )
+			fieldid = objacc->GetFieldID( objacc.getClass(), fieldName, fieldType );
 	}
 	jobject getObject()
 	{
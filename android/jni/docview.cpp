@@ -1181,6 +1181,55 @@ JNIEXPORT void JNICALL Java_org_coolreader_crengine_DocView_getPageImageInternal
     //CRLog::trace("getPageImageInternal exiting");
 }
 
+/*
+ * Class:     org_coolreader_crengine_DocView
+ * Method:    getPageImageAtInternal
+ * Signature: (Landroid/graphics/Bitmap;II)Lorg/coolreader/crengine/PositionProperties;
+ */
+JNIEXPORT jobject JNICALL Java_org_coolreader_crengine_DocView_getPageImageAtInternal
+  (JNIEnv * _env, jobject view, jobject bitmap, jint bpp, jint page)
+{
+    DocViewNative * p = getNative(_env, view);
+    if (!p) {
+    	CRLog::error("Cannot get native view");
+    	return NULL;
+    }
+    LVDocView * docview = p->_docview;
+    if (!docview->isDocumentOpened() || docview->getViewMode() != DVM_PAGES)
+        return NULL;
+    if (page < 0 || page >= docview->getPageCount())
+        return NULL;
+	DocViewCallback callback( _env, docview, view );
+	LVDrawBuf * drawbuf = BitmapAccessorInterface::getInstance()->lock(_env, bitmap);
+	if ( drawbuf==NULL ) {
+		CRLog::error("bitmap accessor is invalid");
+		return NULL;
+	}
+	// draw by page number, current position is not changed
+	if (bpp >= 16) {
+		docview->Draw(*drawbuf, -1, page, false);
+	} else {
+		LVGrayDrawBuf grayBuf(drawbuf->GetWidth(), drawbuf->GetHeight(), bpp);
+		docview->Draw(grayBuf, -1, page, false);
+		grayBuf.DrawTo(drawbuf, 0, 0, 0, NULL);
+	}
+	BitmapAccessorInterface::getInstance()->unlock(_env, bitmap, drawbuf);
+    // the same values as getPositionPropsInternal() returns (not precise) when page is current
+    ldomXPointer bm = docview->getPageBookmark(page);
+    lvPoint pt = !bm.isNull() ? bm.toPoint() : lvPoint(0, 0);
+    jobject obj = CRJNIIds::positionProperties.newObject(_env);
+    CRObjectAccessor v(_env, obj, CRJNIIds::positionProperties);
+    CRIntField(v,"x").set(pt.x);
+    CRIntField(v,"y").set(pt.y);
+    CRIntField(v,"fullHeight").set(docview->GetFullHeight());
+    CRIntField(v,"pageHeight").set(docview->GetHeight());
+    CRIntField(v,"pageWidth").set(docview->GetWidth());
+    CRIntField(v,"pageNumber").set(page);
+    CRIntField(v,"pageCount").set(docview->getPageCount());
+    CRIntField(v,"pageMode").set(docview->getVisiblePageCount());
+    return obj;
+}
+
 /*
  * Class:     org_coolreader_crengine_DocView
  * Method:    checkImageInternal
@@ -1198,7 +1247,7 @@ JNIEXPORT jboolean JNICALL Java_org_coolreader_crengine_DocView_checkImageIntern
     }
     int dx, dy;
     bool needRotate = false;
-    CRObjectAccessor acc(_env, imageInfo);
+    CRObjectAccessor acc(_env, imageInfo, CRJNIIds::imageInfo);
     int width = CRIntField(acc,"bufWidth").get();
     int height = CRIntField(acc,"bufHeight").get();
 	if (!p->checkImage(x, y, width, height, dx, dy, needRotate))
@@ -1226,7 +1275,7 @@ JNIEXPORT jboolean JNICALL Java_org_coolreader_crengine_DocView_checkBookmarkInt
     	CRLog::error("Cannot get native view");
     	return JNI_FALSE;
     }
-    CRObjectAccessor acc(_env, bmk);
+    CRObjectAccessor acc(_env, bmk, CRJNIIds::bookmark);
     //CRLog::trace("checkBookmarkInternal(%d, %d)", x, y);
     CRBookmark * found = p->_docview->findBookmarkByPoint(lvPoint(x, y));
     if (!found)
@@ -1254,7 +1303,7 @@ JNIEXPORT jboolean JNICALL Java_org_coolreader_crengine_DocView_drawImageInterna
     	CRLog::error("Cannot get native view");
     	return JNI_FALSE;
     }
-    CRObjectAccessor acc(_env, imageInfo);
+    CRObjectAccessor acc(_env, imageInfo, CRJNIIds::imageInfo);
     int dx = CRIntField(acc,"scaledWidth").get();
     int dy = CRIntField(acc,"scaledHeight").get();
     int x = CRIntField(acc,"x").get();
@@ -1596,10 +1645,8 @@ JNIEXPORT jobject JNICALL Java_org_coolreader_crengine_DocView_getCurrentPageBoo
         percent = 10000;
     bm.setPercent( percent );
     bm.setCommentText( comment );
-    jclass cls = _env->FindClass("org/coolreader/crengine/Bookmark");
-    jmethodID mid = _env->GetMethodID(cls, "<init>", "()V");
-    jobject obj = _env->NewObject(cls, mid);
-    CRObjectAccessor acc(_env, obj);
+    jobject obj = CRJNIIds::bookmark.newObject(_env);
+    CRObjectAccessor acc(_env, obj, CRJNIIds::bookmark);
     CRStringField(acc,"startPos").set(bm.getStartPos());
     CRStringField(acc,"endPos").set(bm.getEndPos());
     CRStringField(acc,"titleText").set(bm.getTitleText());
@@ -1629,8 +1676,8 @@ JNIEXPORT void JNICALL Java_org_coolreader_crengine_DocView_updateBookInfoIntern
 	if ( !p->_docview->isDocumentOpened() )
 		return;
 	DocViewCallback callback( _env, p->_docview, _this );
-    CRObjectAccessor bookinfo(_env, _info);
-    CRObjectAccessor fileinfo(_env, CRFieldAccessor(bookinfo, "fileInfo", "Lorg/coolreader/crengine/FileInfo;").getObject() );
+    CRObjectAccessor bookinfo(_env, _info, CRJNIIds::bookInfo);
+    CRObjectAccessor fileinfo(_env, CRFieldAccessor(bookinfo, "fileInfo", "Lorg/coolreader/crengine/FileInfo;").getObject(), CRJNIIds::fileInfo );
     CRStringField titleField(fileinfo,"title");
     if (titleField.get().empty())
     	titleField.set(p->_docview->getTitle());
@@ -1707,9 +1754,7 @@ JNIEXPORT jobject JNICALL Java_org_coolreader_crengine_DocView_getPositionPropsI
     	return NULL;
     }
 
-    jclass cls = _env->FindClass("org/coolreader/crengine/PositionProperties");
-    jmethodID mid = _env->GetMethodID(cls, "<init>", "()V");
-    jobject obj = _env->NewObject(cls, mid);
+    jobject obj = CRJNIIds::positionProperties.newObject(_env);
 
     if (!p->_docview->isDocumentOpened()) {
 		CRLog::debug("getPositionPropsInternal: document is not opened");
@@ -1733,7 +1778,7 @@ JNIEXPORT jobject JNICALL Java_org_coolreader_crengine_DocView_getPositionPropsI
             }
         }
     }
-    CRObjectAccessor v(_env, obj);
+    CRObjectAccessor v(_env, obj, CRJNIIds::positionProperties);
     lvPoint pt = !bm.isNull() ? bm.toPoint() : lvPoint(0, p->_docview->GetPos());
     CRIntField(v,"x").set(pt.x);
     CRIntField(v,"y").set(pt.y);
@@ -1926,7 +1971,7 @@ JNIEXPORT void JNICALL Java_org_coolreader_crengine_DocView_updateSelectionInter
     	CRLog::error("Cannot get native view");
     	return;
     }
-    CRObjectAccessor sel(_env, _sel);
+    CRObjectAccessor sel(_env, _sel, CRJNIIds::selection);
     CRStringField sel_startPos(sel, "startPos");
     CRStringField sel_endPos(sel, "endPos");
     CRStringField sel_text(sel, "text");
@@ -1974,6 +2019,42 @@ JNIEXPORT void JNICALL Java_org_coolreader_crengine_DocView_updateSelectionInter
 
 }
 
+/// fills Selection object fields by selected range
+static void setSelectionFields(JNIEnv * _env, DocViewNative * p, jobject _sel, ldomXRange & currSel)
+{
+    CRObjectAccessor sel(_env, _sel, CRJNIIds::selection);
+    CRStringField sel_startPos(sel, "startPos");
+    CRStringField sel_endPos(sel, "endPos");
+    CRStringField sel_text(sel, "text");
+    CRStringField sel_chapter(sel, "chapter");
+    CRIntField sel_startX(sel, "startX");
+    CRIntField sel_startY(sel, "startY");
+    CRIntField sel_endX(sel, "endX");
+    CRIntField sel_endY(sel, "endY");
+    CRIntField sel_percent(sel, "percent");
+    sel_startPos.set( currSel.getStart().toString() );
+    sel_endPos.set( currSel.getEnd().toString() );
+    lvPoint startpt ( currSel.getStart().toPoint() );
+    lvPoint endpt ( currSel.getEnd().toPoint() );
+    sel_startX.set( startpt.x );
+    sel_startY.set( startpt.y );
+    sel_endX.set( endpt.x );
+    sel_endY.set( endpt.y );
+
+    int page = p->_docview->getBookmarkPage(currSel.getStart());
+    int pages = p->_docview->getPageCount();
+    lString32 titleText;
+    lString32 posText;
+    p->_docview->getBookmarkPosText(currSel.getStart(), titleText, posText);
+    int percent = 0;
+    if ( pages>1 )
+    	percent = 10000 * page/(pages-1);
+    lString32 selText = currSel.getRangeText( '\n', 8192 );
+    sel_percent.set(percent);
+	sel_text.set(selText);
+	sel_chapter.set(titleText);
+}
+
 /*
  * Class:     org_coolreader_crengine_DocView
  * Method:    moveSelectionInternal
@@ -1992,16 +2073,6 @@ JNIEXPORT jboolean JNICALL Java_org_coolreader_crengine_DocView_moveSelectionInt
 		CRLog::debug("moveSelectionInternal: document is not opened");
 		return JNI_FALSE;
 	}
-    CRObjectAccessor sel(_env, _sel);
-    CRStringField sel_startPos(sel, "startPos");
-    CRStringField sel_endPos(sel, "endPos");
-    CRStringField sel_text(sel, "text");
-    CRStringField sel_chapter(sel, "chapter");
-    CRIntField sel_startX(sel, "startX");
-    CRIntField sel_startY(sel, "startY");
-    CRIntField sel_endX(sel, "endX");
-    CRIntField sel_endY(sel, "endY");
-    CRIntField sel_percent(sel, "percent");
     int res = p->_docview->doCommand( (LVDocCmd)_cmd, (int)_param );
     if ( res ) {
         ldomXRangeList & sel = p->_docview->getDocument()->getSelections();
@@ -2009,28 +2080,7 @@ JNIEXPORT jboolean JNICALL Java_org_coolreader_crengine_DocView_moveSelectionInt
             ldomXRange currSel;
             currSel = *sel[0];
             if ( !currSel.isNull() ) {
-                sel_startPos.set( currSel.getStart().toString() );
-                sel_endPos.set( currSel.getEnd().toString() );
-                lvPoint startpt ( currSel.getStart().toPoint() );
-                lvPoint endpt ( currSel.getEnd().toPoint() );
-                sel_startX.set( startpt.x );
-                sel_startY.set( startpt.y );
-                sel_endX.set( endpt.x );
-                sel_endY.set( endpt.y );
-
-                int page = p->_docview->getBookmarkPage(currSel.getStart());
-                int pages = p->_docview->getPageCount();
-                lString32 titleText;
-                lString32 posText;
-                p->_docview->getBookmarkPosText(currSel.getStart(), titleText, posText);
-                int percent = 0;
-                if ( pages>1 )
-                	percent = 10000 * page/(pages-1);
-                lString32 selText = currSel.getRangeText( '\n', 8192 );
-                sel_percent.set(percent);
-            	sel_text.set(selText);
-            	sel_chapter.set(titleText);
-
+                setSelectionFields(_env, p, _sel, currSel);
             	return JNI_TRUE;
             }
         }
@@ -2038,6 +2088,286 @@ JNIEXPORT jboolean JNICALL Java_org_coolreader_crengine_DocView_moveSelectionInt
     return JNI_FALSE;
 }
 
+/*
+ * Class:     org_coolreader_crengine_DocView
+ * Method:    selectSentenceInternal
+ * Signature: (Ljava/lang/String;Lorg/coolreader/crengine/Selection;)Z
+ */
+JNIEXPORT jboolean JNICALL Java_org_coolreader_crengine_DocView_selectSentenceInternal
+  (JNIEnv * _env, jobject _this, jstring _startPos, jobject _sel)
+{
+    CRJNIEnv env(_env);
+    DocViewNative * p = getNative(_env, _this);
+    if (!p) {
+    	CRLog::error("Cannot get native view");
+    	return JNI_FALSE;
+    }
+	if (!p->_docview->isDocumentOpened()) {
+		CRLog::debug("selectSentenceInternal: document is not opened");
+		return JNI_FALSE;
+	}
+	ldomXPointer pos = p->_docview->getDocument()->createXPointer(env.fromJavaString(_startPos));
+	if (pos.isNull())
+		return JNI_FALSE;
+	ldomXPointerEx start(pos);
+	// sentence bounds are the same as in LVDocView::onSelectionCommand()
+	if (!start.isSentenceStart())
+		start.thisSentenceStart();
+	ldomXPointerEx end(start);
+	end.thisSentenceEnd();
+	ldomXRange currSel(start, end);
+	if (currSel.isNull())
+		return JNI_FALSE;
+	currSel.setFlags(1);
+	p->_docview->selectRange(currSel);
+	// scroll to sentence if it's not visible
+	lvRect rc;
+	p->_docview->getCursorRect(currSel.getStart(), rc, true);
+	setSelectionFields(_env, p, _sel, currSel);
+	return JNI_TRUE;
+}
+
+
+#define MAX_SENTENCES_PER_CALL 64
+
+/*
+ * Class:     org_coolreader_crengine_DocView
+ * Method:    getNextSentencesInternal
+ * Signature: (Ljava/lang/String;I)[Lorg/coolreader/crengine/Selection;
+ */
+JNIEXPORT jobjectArray JNICALL Java_org_coolreader_crengine_DocView_getNextSentencesInternal
+  (JNIEnv * _env, jobject _this, jstring _startPos, jint _count)
+{
+    CRJNIEnv env(_env);
+    DocViewNative * p = getNative(_env, _this);
+    if (!p) {
+    	CRLog::error("Cannot get native view");
+    	return NULL;
+    }
+	if (!p->_docview->isDocumentOpened()) {
+		CRLog::debug("getNextSentencesInternal: document is not opened");
+		return NULL;
+	}
+	ldomXPointer start = p->_docview->getDocument()->createXPointer(env.fromJavaString(_startPos));
+	if (start.isNull())
+		return NULL;
+	int count = _count < MAX_SENTENCES_PER_CALL ? _count : MAX_SENTENCES_PER_CALL;
+	// same sentence iteration as in LVDocView::onSelectionCommand(DCMD_SELECT_NEXT_SENTENCE),
+	// but selection and view position are not changed
+	ldomXPointerEx pos(start);
+	if (!pos.isSentenceStart())
+		pos.thisSentenceStart();
+	LVArray<ldomXRange> sentences;
+	while (sentences.length() < count) {
+		if (!pos.nextSentenceStart())
+			break;
+		ldomXPointerEx end(pos);
+		end.thisSentenceEnd();
+		sentences.add(ldomXRange(pos, end));
+	}
+	jobjectArray array = env->NewObjectArray(sentences.length(), CRJNIIds::selection.cls, NULL);
+	if (!array)
+		return NULL;
+	int pages = p->_docview->getPageCount();
+	for (int i = 0; i < sentences.length(); i++) {
+		ldomXRange & r = sentences[i];
+		jobject obj = CRJNIIds::selection.newObject(_env);
+		{
+			CRObjectAccessor sel(_env, obj, CRJNIIds::selection);
+			CRStringField sel_startPos(sel, "startPos");
+			CRStringField sel_endPos(sel, "endPos");
+			CRStringField sel_text(sel, "text");
+			CRIntField sel_percent(sel, "percent");
+			int page = p->_docview->getBookmarkPage(r.getStart());
+			int percent = 0;
+			if ( pages>1 )
+				percent = 10000 * page/(pages-1);
+			sel_startPos.set(r.getStart().toString());
+			sel_endPos.set(r.getEnd().toString());
+			sel_text.set(r.getRangeText('\n', 8192));
+			sel_percent.set(percent);
+		}
+		env->SetObjectArrayElement(array, i, obj);
+		env->DeleteLocalRef(obj);
+	}
+	return array;
+}
+
+/// collects plain text of range until chunk size limit is reached, with positions of text fragments
+class TextChunkCollector : public ldomNodeCallback {
+public:
+	lString32 text;
+	int utf16Length; // length of text in Java string, characters out of BMP take two units
+	LVArray<int> offsets; // in UTF-16 units, as Java string indexes
+	lString32Collection positions;
+	ldomXPointer nextPos; // where next chunk starts, null if whole range is collected
+	bool full;
+	bool newBlock;
+	int maxChars;
+	TextChunkCollector( int _maxChars ) : utf16Length(0), full(false), newBlock(false), maxChars(_maxChars) { }
+	void append( const lString32 & str )
+	{
+		text << str;
+		utf16Length += str.length();
+		for ( int i = 0; i < str.length(); i++ ) {
+			if ( str[i] >= 0x10000 )
+				utf16Length++;
+		}
+	}
+	virtual ~TextChunkCollector() { }
+	virtual void onText( ldomXRange * nodeRange )
+	{
+		if ( full )
+			return;
+		ldomNode * node = nodeRange->getStart().getNode();
+		lString32 txt = node->getText();
+		int start = nodeRange->getStart().getOffset();
+		int end = nodeRange->getEnd().getOffset();
+		if ( end > txt.length() )
+			end = txt.length();
+		if ( start >= end )
+			return;
+		int delimiterLen = ( newBlock && !text.empty() ) ? 1 : 0;
+		int room = maxChars - text.length() - delimiterLen;
+		if ( end - start > room ) {
+			full = true;
+			if ( !text.empty() ) {
+				// fragment goes to next chunk
+				nextPos = ldomXPointer( node, start );
+				return;
+			}
+			// fragment is longer than chunk, split it
+			nextPos = ldomXPointer( node, start + room );
+			end = start + room;
+		}
+		if ( delimiterLen )
+			append( cs32("\n") );
+		newBlock = false;
+		offsets.add( utf16Length );
+		positions.add( ldomXPointer( node, start ).toString() );
+		append( txt.substr( start, end - start ) );
+	}
+	virtual bool onElement( ldomXPointerEx * ptr )
+	{
+		// don't go deeper when chunk is full
+		if ( full )
+			return false;
+		// paragraph delimiters are placed like in ldomXRange::getRangeText()
+		ldomNode * elem = (ldomNode *)ptr->getNode();
+		css_style_ref_t style = elem->getStyle();
+		if ( STYLE_HAS_CR_HINT(style, TEXT_SELECTION_SKIP) )
+			return false;
+		if ( STYLE_HAS_CR_HINT(style, TEXT_SELECTION_INLINE) ) {
+			newBlock = false;
+			return true;
+		}
+		if ( STYLE_HAS_CR_HINT(style, TEXT_SELECTION_BLOCK) ) {
+			newBlock = true;
+			return true;
+		}
+		lvdom_element_render_method rm = elem->getRendMethod();
+		if ( rm == erm_invisible )
+			return false;
+		if ( rm == erm_inline )
+			return true;
+		css_display_t d = style->display;
+		if ( d <= css_d_inline || d == css_d_inline_block || d == css_d_inline_table )
+			return true;
+		newBlock = true;
+		return true;
+	}
+};
+
+/// like ldomXRange::forEach(), but stops as soon as chunk is full instead of visiting rest of range
+static void collectTextChunk( ldomXRange & range, TextChunkCollector & collector )
+{
+	if ( range.isNull() )
+		return;
+	ldomXPointerEx & rangeStart = range.getStart();
+	ldomXPointerEx & rangeEnd = range.getEnd();
+	ldomXRange pos( rangeStart, rangeEnd, 0 );
+	bool allowGoRecurse = true;
+	while ( !collector.full && !pos.getStart().isNull() && pos.getStart().compare( rangeEnd ) < 0 ) {
+		ldomNode * node = pos.getStart().getNode();
+		if ( node->isElement() ) {
+			allowGoRecurse = collector.onElement( &pos.getStart() );
+		} else if ( node->isText() ) {
+			int len = node->getText().length();
+			pos.setEnd( pos.getStart() );
+			pos.getStart().setOffset( rangeStart.getNode() == node ? rangeStart.getOffset() : 0 );
+			pos.getEnd().setOffset( rangeEnd.getNode() == node && len > rangeEnd.getOffset() ? rangeEnd.getOffset() : len );
+			collector.onText( &pos );
+			allowGoRecurse = false;
+		}
+		// move to next item
+		if ( !allowGoRecurse || !pos.getStart().child(0) ) {
+			bool stop = false;
+			while ( !pos.getStart().nextSibling() ) {
+				if ( !pos.getStart().parent() ) {
+					stop = true;
+					break;
+				}
+			}
+			if ( stop )
+				break;
+		}
+	}
+}
+
+/*
+ * Class:     org_coolreader_crengine_DocView
+ * Method:    getTextChunkInternal
+ * Signature: (Ljava/lang/String;Ljava/lang/String;ILorg/coolreader/crengine/TextChunk;)Z
+ */
+JNIEXPORT jboolean JNICALL Java_org_coolreader_crengine_DocView_getTextChunkInternal
+  (JNIEnv * _env, jobject _this, jstring _startPos, jstring _endPos, jint _maxChars, jobject _chunk)
+{
+    CRJNIEnv env(_env);
+    DocViewNative * p = getNative(_env, _this);
+    if (!p) {
+    	CRLog::error("Cannot get native view");
+    	return JNI_FALSE;
+    }
+	if (!p->_docview->isDocumentOpened()) {
+		CRLog::debug("getTextChunkInternal: document is not opened");
+		return JNI_FALSE;
+	}
+	ldomDocument * doc = p->_docview->getDocument();
+	ldomXRange docRange( doc->getRootNode() );
+	ldomXPointer start = _startPos ? doc->createXPointer(env.fromJavaString(_startPos)) : ldomXPointer(docRange.getStart());
+	ldomXPointer end = _endPos ? doc->createXPointer(env.fromJavaString(_endPos)) : ldomXPointer(docRange.getEnd());
+	if ( start.isNull() || end.isNull() )
+		return JNI_FALSE;
+	ldomXRange range( start, end );
+	TextChunkCollector collector( _maxChars > 0 ? _maxChars : 1 );
+	collectTextChunk( range, collector );
+
+	CRObjectAccessor chunk(_env, _chunk, CRJNIIds::textChunk);
+	CRStringField chunk_text(chunk, "text");
+	CRStringField chunk_startPos(chunk, "startPos");
+	CRFieldAccessor chunk_nextPos(chunk, "nextPos", "Ljava/lang/String;");
+	CRFieldAccessor chunk_offsets(chunk, "offsets", "[I");
+	CRFieldAccessor chunk_positions(chunk, "positions", "[Ljava/lang/String;");
+	chunk_text.set(collector.text);
+	chunk_startPos.set(start.toString());
+	if ( collector.full && !collector.nextPos.isNull() ) {
+		jstring jnextPos = env.toJavaString(collector.nextPos.toString());
+		chunk_nextPos.setObject(jnextPos);
+		env->DeleteLocalRef(jnextPos);
+	} else {
+		chunk_nextPos.setObject(NULL);
+	}
+	int count = collector.offsets.length();
+	jintArray joffsets = env->NewIntArray(count);
+	if ( count > 0 )
+		env->SetIntArrayRegion(joffsets, 0, count, (const jint *)collector.offsets.get());
+	chunk_offsets.setObject(joffsets);
+	env->DeleteLocalRef(joffsets);
+	jobjectArray jpositions = env.toJavaStringArray(collector.positions);
+	chunk_positions.setObject(jpositions);
+	env->DeleteLocalRef(jpositions);
+	return JNI_TRUE;
+}
 
 lString32 DocViewNative::getLink( int x, int y, int r )
 {
@@ -2241,7 +2571,7 @@ JNIEXPORT void JNICALL Java_org_coolreader_crengine_DocView_hilightBookmarksInte
     	int len = _env->GetArrayLength(list);
     	for (int i=0; i<len; i++) {
     		jobject obj = _env->GetObjectArrayElement(list, i);
-    	    CRObjectAccessor bmk(_env, obj);
+    	    CRObjectAccessor bmk(_env, obj, CRJNIIds::bookmark);
     	    CRStringField startPos(bmk, "startPos");
     	    CRStringField endPos(bmk, "endPos");
     	    CRIntField type(bmk, "type");
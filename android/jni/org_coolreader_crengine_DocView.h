@@ -21,6 +21,14 @@ extern "C" {
 JNIEXPORT void JNICALL Java_org_coolreader_crengine_DocView_getPageImageInternal
   (JNIEnv *, jobject, jobject, jint);
 
+/*
+ * Class:     org_coolreader_crengine_DocView
+ * Method:    getPageImageAtInternal
+ * Signature: (Landroid/graphics/Bitmap;II)Lorg/coolreader/crengine/PositionProperties;
+ */
+JNIEXPORT jobject JNICALL Java_org_coolreader_crengine_DocView_getPageImageAtInternal
+  (JNIEnv *, jobject, jobject, jint, jint);
+
 /*
  * Class:     org_coolreader_crengine_DocView
  * Method:    createInternal
@@ -205,6 +213,30 @@ JNIEXPORT void JNICALL Java_org_coolreader_crengine_DocView_updateSelectionInter
 JNIEXPORT jboolean JNICALL Java_org_coolreader_crengine_DocView_moveSelectionInternal
   (JNIEnv *, jobject, jobject, jint, jint);
 
+/*
+ * Class:     org_coolreader_crengine_DocView
+ * Method:    selectSentenceInternal
+ * Signature: (Ljava/lang/String;Lorg/coolreader/crengine/Selection;)Z
+ */
+JNIEXPORT jboolean JNICALL Java_org_coolreader_crengine_DocView_selectSentenceInternal
+  (JNIEnv *, jobject, jstring, jobject);
+
+/*
+ * Class:     org_coolreader_crengine_DocView
+ * Method:    getNextSentencesInternal
+ * Signature: (Ljava/lang/String;I)[Lorg/coolreader/crengine/Selection;
+ */
+JNIEXPORT jobjectArray JNICALL Java_org_coolreader_crengine_DocView_getNextSentencesInternal
+  (JNIEnv *, jobject, jstring, jint);
+
+/*
+ * Class:     org_coolreader_crengine_DocView
+ * Method:    getTextChunkInternal
+ * Signature: (Ljava/lang/String;Ljava/lang/String;ILorg/coolreader/crengine/TextChunk;)Z
+ */
+JNIEXPORT jboolean JNICALL Java_org_coolreader_crengine_DocView_getTextChunkInternal
+  (JNIEnv *, jobject, jstring, jstring, jint, jobject);
+
 /*
  * Class:     org_coolreader_crengine_DocView
  * Method:    checkLinkInternal
@@ -131,6 +131,14 @@ JNIEXPORT jboolean JNICALL Java_org_coolreader_crengine_Engine_updateFileCRC32In
 JNIEXPORT jbyteArray JNICALL Java_org_coolreader_crengine_Engine_scanBookCoverInternal
   (JNIEnv *, jclass, jstring);
 
+/*
+ * Class:     org_coolreader_crengine_Engine
+ * Method:    scanBookPropertiesBatchInternal
+ * Signature: ([Lorg/coolreader/crengine/FileInfo;[I[[BLorg/coolreader/crengine/Scanner/ScanControl;)V
+ */
+JNIEXPORT void JNICALL Java_org_coolreader_crengine_Engine_scanBookPropertiesBatchInternal
+  (JNIEnv *, jclass, jobjectArray, jintArray, jobjectArray, jobject);
+
 /*
  * Class:     org_coolreader_crengine_Engine
  * Method:    drawBookCoverInternal
@@ -179,6 +187,14 @@ JNIEXPORT jobjectArray JNICALL Java_org_coolreader_crengine_Engine_listFilesInte
 JNIEXPORT jint JNICALL Java_org_coolreader_crengine_Engine_getDomVersionCurrent
   (JNIEnv *, jclass);
 
+/*
+ * Class:     org_coolreader_crengine_Engine
+ * Method:    benchmarkMarshallingInternal
+ * Signature: (I)[J
+ */
+JNIEXPORT jlongArray JNICALL Java_org_coolreader_crengine_Engine_benchmarkMarshallingInternal
+  (JNIEnv *, jclass, jint);
+
 /*
  * Class:     org_coolreader_crengine_Engine
  * Method:    isLink
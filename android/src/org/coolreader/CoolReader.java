@@ -53,6 +53,7 @@ import org.coolreader.crengine.ReaderView;
 import org.coolreader.crengine.ReaderViewLayout;
 import org.coolreader.crengine.Services;
 import org.coolreader.crengine.TTSToolbarDlg;
+import org.coolreader.crengine.TaskExecutor;
 import org.coolreader.crengine.Utils;
 import org.coolreader.donations.CRDonationService;
 import org.coolreader.sync2.OnSyncStatusListener;
@@ -766,6 +767,16 @@ public class CoolReader extends BaseActivity {
 		return filePath;
 	}
 
+	@Override
+	public void onTrimMemory(int level) {
+		super.onTrimMemory(level);
+		log.i("CoolReader.onTrimMemory(" + level + ")");
+		if (mReaderView != null)
+			mReaderView.onTrimMemory(level);
+		if (!Services.isStopped())
+			Services.getScanner().onTrimMemory(level);
+	}
+
 	@Override
 	protected void onPause() {
 		activityIsRunning = false;
@@ -1882,7 +1893,7 @@ public class CoolReader extends BaseActivity {
 					});
 				}
 			};
-			BackgroundThread.instance().postBackground(() -> Utils.deleteFolder(item, bookDeleteCallback, (fileInfo, errorStatus) -> {
+			TaskExecutor.instance().execute(TaskExecutor.Lane.IO, () -> Utils.deleteFolder(item, bookDeleteCallback, (fileInfo, errorStatus) -> {
 				if (0 == errorStatus) {
 					BackgroundThread.instance().executeGUI(() -> directoryUpdated(fileInfo.parent));
 				} else {
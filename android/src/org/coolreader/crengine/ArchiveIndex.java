@@ -0,0 +1,279 @@
+package org.coolreader.crengine;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+
+/**
+ * Entry table of archive: sorted item names with sizes and modification times.
+ *
+ * Indexes are kept in process-wide LRU cache, keyed by archive path, size and modification time,
+ * so resolving of many items of the same archive reads its directory only once.
+ * ZIP central directory is parsed in Java, without JNI call and Engine.lock;
+ * engine is used only for archives which can't be parsed here (ZIP64, names in local encoding).
+ */
+public class ArchiveIndex {
+
+	public static final Logger log = L.create("ai");
+
+	private static final int MAX_CACHED_ARCHIVES = 16;
+	private static final int MAX_CACHED_ITEMS = 50000;
+
+	private static final int EOCD_SIGNATURE = 0x06054b50;
+	private static final int EOCD_SIZE = 22;
+	private static final int MAX_COMMENT_SIZE = 0xFFFF;
+	private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+	private static final int CENTRAL_HEADER_SIZE = 46;
+	private static final int MAX_CENTRAL_DIRECTORY_SIZE = 16 * 1024 * 1024;
+	private static final int FLAG_UTF8_NAMES = 0x800;
+
+	private final String key;
+	private final String[] names;
+	private final long[] sizes;
+	private final long[] times;
+
+	private ArchiveIndex(String key, String[] names, long[] sizes, long[] times) {
+		this.key = key;
+		this.names = names;
+		this.sizes = sizes;
+		this.times = times;
+	}
+
+	public int size() {
+		return names.length;
+	}
+
+	public String getName(int index) {
+		return names[index];
+	}
+
+	public long getSize(int index) {
+		return sizes[index];
+	}
+
+	/**
+	 * @return item modification time, or -1 if unknown
+	 */
+	public long getTime(int index) {
+		return times[index];
+	}
+
+	public boolean isDirectory(int index) {
+		return names[index].endsWith("/");
+	}
+
+	/**
+	 * Find item by name.
+	 * @return item index, or -1 if not found
+	 */
+	public int indexOf(String name) {
+		int index = Arrays.binarySearch(names, name);
+		return index >= 0 ? index : -1;
+	}
+
+	@Override
+	public String toString() {
+		return "ArchiveIndex[" + key + ", " + names.length + " items]";
+	}
+
+	//=======================================================================================
+	// Cache
+	//=======================================================================================
+
+	private static int cachedItems;
+	private static final LinkedHashMap<String, ArchiveIndex> cache = new LinkedHashMap<String, ArchiveIndex>(MAX_CACHED_ARCHIVES, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, ArchiveIndex> eldest) {
+			if (size() > MAX_CACHED_ARCHIVES || (cachedItems > MAX_CACHED_ITEMS && size() > 1)) {
+				cachedItems -= eldest.getValue().size();
+				return true;
+			}
+			return false;
+		}
+	};
+
+	/**
+	 * Get index of archive, from cache if archive is not changed since it was read.
+	 * @param arcName is archive file path
+	 * @return archive index, or null if archive cannot be read
+	 */
+	public static ArchiveIndex get(String arcName) {
+		File f = new File(arcName);
+		if (!f.isFile())
+			return null;
+		String key = arcName + ":" + f.length() + ":" + f.lastModified();
+		synchronized (cache) {
+			ArchiveIndex index = cache.get(key);
+			if (index != null)
+				return index;
+		}
+		// read without lock, concurrent reading of the same archive is harmless
+		long startTime = Utils.timeStamp();
+		ArchiveIndex index = readZip(key, f);
+		if (index == null)
+			index = readByEngine(key, arcName);
+		if (index == null)
+			return null;
+		log.v("read " + index + " in " + Utils.timeInterval(startTime) + " ms");
+		synchronized (cache) {
+			cachedItems += index.size();
+			ArchiveIndex old = cache.put(key, index);
+			if (old != null)
+				cachedItems -= old.size();
+		}
+		return index;
+	}
+
+	public static void clearCache() {
+		synchronized (cache) {
+			cache.clear();
+			cachedItems = 0;
+		}
+	}
+
+	//=======================================================================================
+	// Readers
+	//=======================================================================================
+
+	private static ArchiveIndex readByEngine(String key, String arcName) {
+		try {
+			ArrayList<ZipEntry> entries = Services.getEngine().getArchiveItems(arcName);
+			ArrayList<Item> items = new ArrayList<>(entries.size());
+			for (ZipEntry entry : entries)
+				items.add(new Item(entry.getName(), entry.getSize(), entry.getTime()));
+			return create(key, items);
+		} catch (Exception e) {
+			log.e("error while reading contents of " + arcName, e);
+			return null;
+		}
+	}
+
+	/**
+	 * Read ZIP central directory.
+	 * @return archive index, or null if file is not ZIP archive or its format is not supported here
+	 */
+	private static ArchiveIndex readZip(String key, File f) {
+		try (RandomAccessFile file = new RandomAccessFile(f, "r")) {
+			long fileSize = file.length();
+			if (fileSize < EOCD_SIZE)
+				return null;
+			// end of central directory record is followed by archive comment of up to 64K
+			int tailSize = (int) Math.min(fileSize, EOCD_SIZE + MAX_COMMENT_SIZE);
+			byte[] tail = new byte[tailSize];
+			file.seek(fileSize - tailSize);
+			file.readFully(tail);
+			int eocd = -1;
+			for (int pos = tailSize - EOCD_SIZE; pos >= 0; pos--) {
+				if (getInt(tail, pos) == EOCD_SIGNATURE) {
+					eocd = pos;
+					break;
+				}
+			}
+			if (eocd < 0)
+				return null;
+			int count = getShort(tail, eocd + 10);
+			long cdSize = getInt(tail, eocd + 12) & 0xFFFFFFFFL;
+			long cdOffset = getInt(tail, eocd + 16) & 0xFFFFFFFFL;
+			if (count == 0xFFFF || cdOffset == 0xFFFFFFFFL)
+				return null; // ZIP64
+			if (cdSize > MAX_CENTRAL_DIRECTORY_SIZE || cdOffset + cdSize > fileSize)
+				return null;
+			byte[] cd = new byte[(int) cdSize];
+			file.seek(cdOffset);
+			file.readFully(cd);
+			ArrayList<Item> items = new ArrayList<>(count);
+			Calendar calendar = Calendar.getInstance();
+			int pos = 0;
+			for (int i = 0; i < count; i++) {
+				if (pos + CENTRAL_HEADER_SIZE > cd.length || getInt(cd, pos) != CENTRAL_HEADER_SIGNATURE)
+					return null;
+				int flags = getShort(cd, pos + 8);
+				int dosTime = getShort(cd, pos + 12);
+				int dosDate = getShort(cd, pos + 14);
+				long size = getInt(cd, pos + 24) & 0xFFFFFFFFL;
+				int nameLength = getShort(cd, pos + 28);
+				int extraLength = getShort(cd, pos + 30);
+				int commentLength = getShort(cd, pos + 32);
+				int nameOffset = pos + CENTRAL_HEADER_SIZE;
+				if (nameOffset + nameLength > cd.length)
+					return null;
+				if (size == 0xFFFFFFFFL)
+					return null; // ZIP64
+				String name = decodeName(cd, nameOffset, nameLength, (flags & FLAG_UTF8_NAMES) != 0);
+				if (name == null)
+					return null; // engine detects encoding of non-unicode names
+				items.add(new Item(name, size, dosToJavaTime(calendar, dosDate, dosTime)));
+				pos = nameOffset + nameLength + extraLength + commentLength;
+			}
+			return create(key, items);
+		} catch (IOException e) {
+			log.w("cannot read ZIP directory of " + f + ": " + e.getMessage());
+			return null;
+		}
+	}
+
+	private static String decodeName(byte[] buf, int offset, int length, boolean utf8) throws UnsupportedEncodingException {
+		if (!utf8) {
+			for (int i = 0; i < length; i++) {
+				if (buf[offset + i] < 0)
+					return null;
+			}
+		}
+		return new String(buf, offset, length, "UTF-8");
+	}
+
+	private static long dosToJavaTime(Calendar calendar, int date, int time) {
+		if (date == 0)
+			return -1;
+		calendar.clear();
+		calendar.set(((date >> 9) & 0x7F) + 1980, ((date >> 5) & 0x0F) - 1, date & 0x1F,
+				(time >> 11) & 0x1F, (time >> 5) & 0x3F, (time & 0x1F) * 2);
+		return calendar.getTimeInMillis();
+	}
+
+	private static int getShort(byte[] buf, int pos) {
+		return (buf[pos] & 0xFF) | ((buf[pos + 1] & 0xFF) << 8);
+	}
+
+	private static int getInt(byte[] buf, int pos) {
+		return (buf[pos] & 0xFF) | ((buf[pos + 1] & 0xFF) << 8) | ((buf[pos + 2] & 0xFF) << 16) | ((buf[pos + 3] & 0xFF) << 24);
+	}
+
+	private static class Item implements Comparable<Item> {
+		final String name;
+		final long size;
+		final long time;
+
+		Item(String name, long size, long time) {
+			this.name = name;
+			this.size = size;
+			this.time = time;
+		}
+
+		@Override
+		public int compareTo(Item other) {
+			return name.compareTo(other.name);
+		}
+	}
+
+	private static ArchiveIndex create(String key, ArrayList<Item> items) {
+		Item[] sorted = items.toArray(new Item[0]);
+		Arrays.sort(sorted);
+		String[] names = new String[sorted.length];
+		long[] sizes = new long[sorted.length];
+		long[] times = new long[sorted.length];
+		for (int i = 0; i < sorted.length; i++) {
+			names[i] = sorted[i].name;
+			sizes[i] = sorted[i].size;
+			times[i] = sorted[i].time;
+		}
+		return new ArchiveIndex(key, names, sizes, times);
+	}
+}
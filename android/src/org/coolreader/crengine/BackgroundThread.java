@@ -128,7 +128,8 @@ public class BackgroundThread extends Thread {
 	//private final static boolean USE_LOCK = false;
 	private Runnable guard( final Runnable r )
 	{
-		return r;
+		// collect queue depth and latency statistics of RENDER lane
+		return TaskExecutor.instance().wrapRenderTask(r);
 //		if ( !USE_LOCK )
 //			return r;
 //		return new Runnable() {
@@ -232,7 +233,6 @@ public class BackgroundThread extends Thread {
 	public void executeBackground( Runnable task )
 	{
 		Engine.suspendLongOperation();
-		task = guard(task);
 		if (isBackgroundThread() || mStopped)
 			task.run(); // run in this thread
 		else 
@@ -51,6 +51,10 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 @SuppressLint("Registered")
 public class BaseActivity extends Activity implements Settings {
@@ -227,6 +231,7 @@ public class BaseActivity extends Activity implements Settings {
 
 	@Override
 	protected void onDestroy() {
+		mSettingsManager.flushSettings();
 		super.onDestroy();
 		unbindCRDBService();
 	}
@@ -256,6 +261,7 @@ public class BaseActivity extends Activity implements Settings {
 		mIsStarted = false;
 		mPaused = true;
 		releaseBacklightControl();
+		mSettingsManager.flushSettings();
 		super.onPause();
 	}
 
@@ -1503,7 +1509,20 @@ public class BaseActivity extends Activity implements Settings {
 		public static final Logger log = L.create("cr");
 
 		private BaseActivity mActivity;
-		private Properties mSettings;
+		// replaced with new object on each change, never modified after publishing, so readers don't need locking
+		private volatile Properties mSettings;
+
+		private static final int DEF_SAVE_SETTINGS_DELAY = 1000;
+		// settings are written to file in background, in single thread
+		private static final ScheduledExecutorService settingsWriter = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "settings-writer");
+			t.setDaemon(true);
+			return t;
+		});
+		private final Object writeLock = new Object();
+		// latest settings not yet written to file, guarded by this
+		private Properties pendingSettings;
+		private ScheduledFuture<?> pendingSave;
 
 		private final DisplayMetrics displayMetrics = new DisplayMetrics();
 		private final File defaultSettingsDir;
@@ -1517,40 +1536,38 @@ public class BaseActivity extends Activity implements Settings {
 		}
 
 		public void rebaseSettings() {
+			// pending changes belong to old settings file
+			flushSettings();
 			mSettings = loadSettings();
 		}
 
-		//int lastSaveId = 0;
+		/**
+		 * Set new settings.
+		 * @param settings is new settings
+		 * @param delayMillis is delay before writing settings to file, or -1 to not write them
+		 * @param notify is true to call onSettingsChanged()
+		 */
 		public void setSettings(Properties settings, int delayMillis, boolean notify) {
 			Properties oldSettings = mSettings;
-			mSettings = new Properties(settings);
-			saveSettings(mSettings);
-//			if (delayMillis >= 0) {
-//				saveSettingsTask.postDelayed(new Runnable() {
-//		    		public void run() {
-//		    			BackgroundThread.instance().postGUI(new Runnable() {
-//		    				@Override
-//		    				public void run() {
-//		   						saveSettings(mSettings);
-//		    				}
-//		    			});
-//		    		}
-//		    	}, delayMillis);
-//			}
+			Properties newSettings = new Properties(settings);
+			mSettings = newSettings;
+			if (delayMillis >= 0)
+				scheduleSaveSettings(newSettings, delayMillis);
 			if (notify)
-				mActivity.onSettingsChanged(mSettings, oldSettings);
+				mActivity.onSettingsChanged(newSettings, oldSettings);
 		}
 
 		public void mergeSettings(Properties settings, boolean notify) {
 			Properties oldSettings = mSettings;
-			mSettings = new Properties(oldSettings);
+			Properties newSettings = new Properties(oldSettings);
 			Set<Entry<Object, Object>> entries = settings.entrySet();
 			for (Entry<Object, Object> entry : entries) {
-				mSettings.put(entry.getKey(), entry.getValue());
+				newSettings.put(entry.getKey(), entry.getValue());
 			}
-			saveSettings(mSettings);
+			mSettings = newSettings;
+			scheduleSaveSettings(newSettings, DEF_SAVE_SETTINGS_DELAY);
 			if (notify)
-				mActivity.onSettingsChanged(mSettings, oldSettings);
+				mActivity.onSettingsChanged(newSettings, oldSettings);
 		}
 
 		public void setSetting(String name, String value, boolean notify) {
@@ -1558,7 +1575,43 @@ public class BaseActivity extends Activity implements Settings {
 			if (value.equals(mSettings.getProperty(name)))
 				return;
 			props.setProperty(name, value);
-			setSettings(props, 1000, notify);
+			setSettings(props, DEF_SAVE_SETTINGS_DELAY, notify);
+		}
+
+		/**
+		 * Write settings to file in background after delay.
+		 * Changes made before pending write is started are coalesced into this write,
+		 * pending write is rescheduled only if new delay is shorter.
+		 */
+		private void scheduleSaveSettings(Properties settings, int delayMillis) {
+			synchronized (this) {
+				pendingSettings = settings;
+				if (pendingSave != null && !pendingSave.isDone() && pendingSave.getDelay(TimeUnit.MILLISECONDS) <= delayMillis)
+					return;
+				if (pendingSave != null)
+					pendingSave.cancel(false);
+				pendingSave = settingsWriter.schedule(this::flushSettings, delayMillis, TimeUnit.MILLISECONDS);
+			}
+		}
+
+		/**
+		 * Write pending settings changes to file immediately.
+		 * May be called from any thread.
+		 */
+		public void flushSettings() {
+			synchronized (writeLock) {
+				Properties settings;
+				synchronized (this) {
+					settings = pendingSettings;
+					pendingSettings = null;
+					if (pendingSave != null) {
+						pendingSave.cancel(false);
+						pendingSave = null;
+					}
+				}
+				if (settings != null)
+					saveSettings(propsFile, settings);
+			}
 		}
 
 		private static class DefKeyAction {
@@ -2121,16 +2174,29 @@ public class BaseActivity extends Activity implements Settings {
 			saveSettings(f, settings);
 		}
 
-		DelayedExecutor saveSettingsTask = DelayedExecutor.createBackground("saveSettings");
-
+		/**
+		 * Write settings to file.
+		 * Settings are written to temporary file first, then it's renamed,
+		 * so settings file is never left partially written.
+		 */
 		public void saveSettings(File f, Properties settings) {
-			try {
+			synchronized (writeLock) {
 				log.v("saveSettings()");
-				FileOutputStream os = new FileOutputStream(f);
-				settings.store(os, "Cool Reader 3 settings");
-				log.i("Settings successfully saved to file " + f.getAbsolutePath());
-			} catch (Exception e) {
-				log.e("exception while saving settings", e);
+				File tmp = new File(f.getAbsolutePath() + ".tmp");
+				try (FileOutputStream os = new FileOutputStream(tmp)) {
+					settings.store(os, "Cool Reader 3 settings");
+					os.getFD().sync();
+				} catch (Exception e) {
+					log.e("exception while saving settings", e);
+					tmp.delete();
+					return;
+				}
+				if (tmp.renameTo(f)) {
+					log.i("Settings successfully saved to file " + f.getAbsolutePath());
+				} else {
+					log.e("cannot rename " + tmp.getAbsolutePath() + " to " + f.getAbsolutePath());
+					tmp.delete();
+				}
 			}
 		}
 
@@ -0,0 +1,156 @@
+package org.coolreader.crengine;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Scans book metadata and CRC32 for lists of files in worker threads of {@link TaskExecutor}:
+ * metadata is parsed in SCAN lane, CRC32 is calculated in IO lane.
+ *
+ * Scanned items are collected into batches which are passed to GUI thread,
+ * where they can be saved into DB (DB service thread works as single writer stage).
+ * Native parsing is not concurrent: crengine document loader uses process-wide state
+ * (font manager, caches), so it's serialized by Engine.lock and SCAN lane has single worker.
+ * Book properties are parsed in batches, one JNI call (and engine lock acquisition) per batch.
+ * What runs in parallel with parsing is CRC32 calculation, in pure Java (see {@link FileFingerprint})
+ * without engine lock, and handling of results in GUI and DB threads.
+ */
+public class BookScanExecutor {
+
+	public static final Logger log = L.create("bs");
+
+	// items to collect before passing them to GUI thread
+	private static final int BATCH_SIZE = 50;
+	// items to parse in one native call
+	private static final int PARSE_BATCH_SIZE = 16;
+
+	public interface ScanListener {
+		/**
+		 * Called in GUI thread for each batch of successfully scanned items.
+		 */
+		void onBatchScanned(ArrayList<FileInfo> items);
+
+		/**
+		 * Called in GUI thread when all items are processed or scan is stopped.
+		 */
+		void onScanFinished();
+	}
+
+	private static BookScanExecutor instance;
+
+	public static BookScanExecutor instance() {
+		if (instance == null)
+			instance = new BookScanExecutor();
+		return instance;
+	}
+
+	private final TaskExecutor executor = TaskExecutor.instance();
+
+	private BookScanExecutor() {
+	}
+
+	/**
+	 * Scan files in worker threads.
+	 * Call from GUI thread.
+	 * @param engine is engine to parse book properties
+	 * @param filesForParsing are files of formats with parsable properties
+	 * @param filesForCRC32Update are files which need only CRC32 to be calculated
+	 * @param control allows to stop scanning
+	 * @param progress is progress to update
+	 * @param listener receives results in GUI thread
+	 */
+	public void scan(final Engine engine, Collection<FileInfo> filesForParsing, Collection<FileInfo> filesForCRC32Update,
+					 final Scanner.ScanControl control, final Engine.ProgressControl progress, final ScanListener listener) {
+		final int total = filesForParsing.size() + filesForCRC32Update.size();
+		if (total == 0) {
+			listener.onScanFinished();
+			return;
+		}
+		final Job job = new Job(total, control, progress, listener);
+		// items of the same archive are passed to one batch call, so archive is opened once for them
+		ArrayList<FileInfo> sorted = new ArrayList<>(filesForParsing);
+		Collections.sort(sorted, (a, b) -> Utils.cmp(a.arcname != null ? a.arcname : "", b.arcname != null ? b.arcname : ""));
+		for (int pos = 0; pos < sorted.size(); pos += PARSE_BATCH_SIZE) {
+			final FileInfo[] items = sorted.subList(pos, Math.min(pos + PARSE_BATCH_SIZE, sorted.size())).toArray(new FileInfo[0]);
+			executor.execute(TaskExecutor.Lane.SCAN, () -> job.processBatch(items, () -> engine.scanBookPropertiesBatch(items, control)));
+		}
+		for (final FileInfo item : filesForCRC32Update)
+			executor.execute(TaskExecutor.Lane.IO, () -> job.process(item, () -> FileFingerprint.updateFileCRC32(item, control)));
+	}
+
+	private interface ItemTask {
+		boolean run();
+	}
+
+	private interface BatchTask {
+		int[] run();
+	}
+
+	private static class Job {
+		private final int total;
+		private final Scanner.ScanControl control;
+		private final Engine.ProgressControl progress;
+		private final ScanListener listener;
+		private final long startTime = Utils.timeStamp();
+		private int processed;
+		private int scanned;
+		private ArrayList<FileInfo> batch = new ArrayList<>();
+
+		Job(int total, Scanner.ScanControl control, Engine.ProgressControl progress, ScanListener listener) {
+			this.total = total;
+			this.control = control;
+			this.progress = progress;
+			this.listener = listener;
+		}
+
+		void process(FileInfo item, ItemTask task) {
+			boolean ok = false;
+			if (!control.isStopped()) {
+				try {
+					ok = task.run();
+				} catch (Exception e) {
+					log.e("Exception while scanning " + item.getPathName(), e);
+				}
+			}
+			done(item, ok);
+		}
+
+		void processBatch(FileInfo[] items, BatchTask task) {
+			int[] status = null;
+			if (!control.isStopped()) {
+				try {
+					status = task.run();
+				} catch (Exception e) {
+					log.e("Exception while scanning batch of " + items.length + " files", e);
+				}
+			}
+			for (int i = 0; i < items.length; i++)
+				done(items[i], status != null && status[i] == Engine.SCAN_STATUS_OK);
+		}
+
+		private void done(FileInfo item, boolean ok) {
+			synchronized (this) {
+				// results are posted to GUI thread under lock to keep order of batches and finish notification
+				processed++;
+				if (ok) {
+					scanned++;
+					batch.add(item);
+				}
+				boolean finished = processed == total;
+				if (batch.size() >= BATCH_SIZE || (finished && batch.size() > 0)) {
+					final ArrayList<FileInfo> items = batch;
+					batch = new ArrayList<>();
+					BackgroundThread.instance().postGUI(() -> listener.onBatchScanned(items));
+				}
+				if (finished) {
+					log.i("Scanned " + scanned + " of " + total + " files in " + Utils.timeInterval(startTime) + " ms");
+					progress.hide();
+					BackgroundThread.instance().postGUI(listener::onScanFinished);
+				} else {
+					progress.setProgress((processed + total) * 10000 / (2 * total));
+				}
+			}
+		}
+	}
+}
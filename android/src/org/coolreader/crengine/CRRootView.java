@@ -118,6 +118,7 @@ public class CRRootView extends ViewGroup implements CoverpageReadyListener {
 	
 	public void onClose() {
 		this.mCoverpageManager.removeCoverpageReadyListener(coverpageListener);
+		this.mCoverpageManager.setVisibleItems(this, null);
 		coverpageListener = null;
 		super.onDetachedFromWindow();
 	}
@@ -176,6 +177,11 @@ public class CRRootView extends ViewGroup implements CoverpageReadyListener {
 			files.add(books.get(i).getFileInfo());
 		if (books.size() > MAX_RECENT_BOOKS && Services.getScanner() != null)
 			files.add(Services.getScanner().createRecentRoot());
+		// home screen shows current book and recent books: decode their covers first
+		ArrayList<FileInfo> visibleItems = new ArrayList<>(files);
+		if (currentBook != null)
+			visibleItems.add(0, currentBook.getFileInfo());
+		mCoverpageManager.setVisibleItems(this, visibleItems);
 		LayoutInflater inflater = LayoutInflater.from(mActivity);
 		mRecentBooksScroll.removeAllViews();
 		for (final FileInfo item : files) {
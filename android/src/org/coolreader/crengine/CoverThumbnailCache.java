@@ -0,0 +1,196 @@
+package org.coolreader.crengine;
+
+import android.graphics.Bitmap;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Disk cache of rendered coverpage thumbnails.
+ *
+ * Thumbnail is stored as raw pixels of bitmap, so it can be loaded without decoding
+ * image or drawing cover by engine. Entry is identified by book path, CRC32,
+ * thumbnail size, bits per pixel and font face (used to draw covers without image).
+ * File name consists of hash of book path and hash of the rest of the key,
+ * so all thumbnails of a book can be removed at once. Full key is stored in file header
+ * to detect hash collisions.
+ *
+ * Methods may be called from any thread, but should not be called from GUI thread (disk IO).
+ */
+public class CoverThumbnailCache {
+
+	public static final Logger log = L.create("ct");
+
+	private static final int MAGIC = 0x43525448; // "CRTH"
+	private static final int VERSION = 1;
+	private static final String FILE_EXT = ".thumb";
+	private static final long DEFAULT_MAX_SIZE = 32 * 1024 * 1024;
+
+	private final File dir;
+	private final long maxSize;
+	private long currentSize = -1;
+
+	public CoverThumbnailCache(File dir) {
+		this(dir, DEFAULT_MAX_SIZE);
+	}
+
+	public CoverThumbnailCache(File dir, long maxSize) {
+		this.dir = dir;
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Load thumbnail from disk.
+	 * @return bitmap, or null if there is no such thumbnail
+	 */
+	public Bitmap load(FileInfo book, int width, int height, int bpp, String fontFace) {
+		String key = makeKey(book, width, height, bpp, fontFace);
+		File file = getFile(book, key);
+		if (!file.exists())
+			return null;
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION || !key.equals(in.readUTF()))
+				return null;
+			int w = in.readInt();
+			int h = in.readInt();
+			Bitmap.Config config = Bitmap.Config.valueOf(in.readUTF());
+			int len = in.readInt();
+			if (w != width || h != height || len <= 0)
+				return null;
+			byte[] pixels = new byte[len];
+			in.readFully(pixels);
+			Bitmap bmp = Bitmap.createBitmap(w, h, config);
+			bmp.copyPixelsFromBuffer(ByteBuffer.wrap(pixels));
+			// LRU order by modification time
+			file.setLastModified(System.currentTimeMillis());
+			return bmp;
+		} catch (Exception e) {
+			log.w("cannot read thumbnail " + file + ": " + e.getMessage());
+			file.delete();
+			return null;
+		}
+	}
+
+	/**
+	 * Save thumbnail to disk.
+	 */
+	public void save(FileInfo book, int width, int height, int bpp, String fontFace, Bitmap bmp) {
+		if (bmp == null || bmp.isRecycled())
+			return;
+		if (!dir.exists() && !dir.mkdirs()) {
+			log.w("cannot create thumbnail cache directory " + dir);
+			return;
+		}
+		String key = makeKey(book, width, height, bpp, fontFace);
+		File file = getFile(book, key);
+		File tmp = new File(file.getPath() + "." + Thread.currentThread().getId() + ".tmp");
+		ByteBuffer pixels = ByteBuffer.allocate(bmp.getRowBytes() * bmp.getHeight());
+		bmp.copyPixelsToBuffer(pixels);
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeUTF(key);
+			out.writeInt(bmp.getWidth());
+			out.writeInt(bmp.getHeight());
+			out.writeUTF(bmp.getConfig().name());
+			out.writeInt(pixels.capacity());
+			out.write(pixels.array());
+		} catch (IOException e) {
+			log.w("cannot write thumbnail " + file + ": " + e.getMessage());
+			tmp.delete();
+			return;
+		}
+		synchronized (this) {
+			long oldSize = file.length();
+			if (!tmp.renameTo(file)) {
+				tmp.delete();
+				return;
+			}
+			if (currentSize >= 0)
+				currentSize += file.length() - oldSize;
+			checkSize();
+		}
+	}
+
+	/**
+	 * Remove all thumbnails of book, e.g. when its coverpage is changed.
+	 */
+	public synchronized void remove(FileInfo book) {
+		final String prefix = hash(book.getPathName()) + "_";
+		File[] files = dir.listFiles((d, name) -> name.startsWith(prefix));
+		if (files == null)
+			return;
+		for (File f : files) {
+			long len = f.length();
+			if (f.delete() && currentSize >= 0)
+				currentSize -= len;
+		}
+	}
+
+	private void checkSize() {
+		File[] files = null;
+		if (currentSize < 0) {
+			files = listThumbnails();
+			currentSize = 0;
+			for (File f : files)
+				currentSize += f.length();
+		}
+		if (currentSize <= maxSize)
+			return;
+		if (files == null)
+			files = listThumbnails();
+		// remove least recently used files down to 3/4 of limit, to avoid trimming on each write
+		final long[] modified = new long[files.length];
+		Integer[] order = new Integer[files.length];
+		for (int i = 0; i < files.length; i++) {
+			modified[i] = files[i].lastModified();
+			order[i] = i;
+		}
+		Arrays.sort(order, (a, b) -> modified[a] == modified[b] ? 0 : (modified[a] < modified[b] ? -1 : 1));
+		int removed = 0;
+		for (int i = 0; i < order.length && currentSize > maxSize * 3 / 4; i++) {
+			File f = files[order[i]];
+			long len = f.length();
+			if (f.delete()) {
+				currentSize -= len;
+				removed++;
+			}
+		}
+		log.d("removed " + removed + " thumbnails, cache size is " + currentSize);
+	}
+
+	private File[] listThumbnails() {
+		File[] files = dir.listFiles((d, name) -> name.endsWith(FILE_EXT));
+		return files != null ? files : new File[0];
+	}
+
+	private static String makeKey(FileInfo book, int width, int height, int bpp, String fontFace) {
+		return book.getPathName() + "|" + book.crc32 + "|" + width + "x" + height + "|" + bpp + "|" + fontFace;
+	}
+
+	private File getFile(FileInfo book, String key) {
+		return new File(dir, hash(book.getPathName()) + "_" + hash(key) + FILE_EXT);
+	}
+
+	/**
+	 * 64-bit FNV-1a hash of string, as hex.
+	 */
+	private static String hash(String s) {
+		long h = 0xcbf29ce484222325L;
+		if (s != null) {
+			for (int i = 0; i < s.length(); i++) {
+				h ^= s.charAt(i);
+				h *= 0x100000001b3L;
+			}
+		}
+		return Long.toHexString(h);
+	}
+}
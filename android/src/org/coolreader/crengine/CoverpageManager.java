@@ -1,12 +1,16 @@
 package org.coolreader.crengine;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 
 import org.coolreader.db.CRDBService;
 
 import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
 import android.graphics.Canvas;
 import android.graphics.ColorFilter;
 import android.graphics.Paint;
@@ -68,13 +72,60 @@ public class CoverpageManager {
 		synchronized(LOCK) {
 			for (ImageItem file : filesToUnqueue) {
 				mCheckFileCacheQueue.remove(file);
-				mScanFileQueue.remove(file);
+				cancelTasks(file);
 				mReadyQueue.remove(file);
 				mCache.unqueue(file);
 			}
 		}
 	}
 	
+	/**
+	 * Set files which are currently visible on screen in view of some client.
+	 * Queued requests for files visible in any view are processed first.
+	 * Queued requests for files which were visible in this view before and aren't visible in any view now
+	 * are cancelled (they will be requested again when drawn); requests of other views are kept.
+	 * Call from GUI thread.
+	 * @param client is view which shows files, e.g. file browser or home screen
+	 * @param files are visible files, null if unknown or view is closed
+	 */
+	public void setVisibleItems(Object client, Collection<FileInfo> files) {
+		synchronized(LOCK) {
+			HashSet<String> paths = null;
+			if (files != null) {
+				paths = new HashSet<>();
+				for (FileInfo file : files)
+					if (file != null && file.getPathName() != null)
+						paths.add(file.getPathName());
+			}
+			HashSet<String> prevPaths = paths != null ? mVisiblePaths.put(client, paths) : mVisiblePaths.remove(client);
+			if (prevPaths == null)
+				prevPaths = new HashSet<>();
+			// check cache queue: drop items scrolled away in this view
+			for (int i = mCheckFileCacheQueue.list.size() - 1; i >= 0; i--) {
+				ImageItem item = mCheckFileCacheQueue.list.get(i);
+				if (isHidden(item, prevPaths)) {
+					mCheckFileCacheQueue.list.remove(i);
+					mCache.unqueue(item);
+				}
+			}
+			// reorder queued tasks, cancel tasks for items scrolled away in this view
+			int cancelled = 0;
+			for (int i = mPendingTasks.size() - 1; i >= 0; i--) {
+				CoverpageTask task = mPendingTasks.get(i);
+				task.visible = isVisible(task.file);
+				if (isHidden(task.file, prevPaths)) {
+					task.token.cancel();
+					mPendingTasks.remove(i);
+					cancelled++;
+					mCache.remove(task.file);
+				}
+			}
+			TaskExecutor.instance().reorder(TaskExecutor.Lane.COVER);
+			if (cancelled > 0)
+				log.v("cancelled " + cancelled + " coverpage tasks for not visible items");
+		}
+	}
+
 	/**
 	 * Set listener for cover page load completion.
 	 */
@@ -110,13 +161,32 @@ public class CoverpageManager {
 		}
 	}
 	
-	public void setCoverpageData(final CRDBService.LocalBinder db, FileInfo fileInfo, byte[] data) {
+	/**
+	 * Enable disk cache of rendered coverpage thumbnails.
+	 * @param dir is directory to store thumbnails in
+	 */
+	public void setThumbnailCacheDir(File dir) {
+		synchronized(LOCK) {
+			mThumbnailCache = dir != null ? new CoverThumbnailCache(dir) : null;
+		}
+	}
+
+	public void setCoverpageData(final CRDBService.LocalBinder db, final FileInfo fileInfo, final byte[] data) {
 		synchronized(LOCK) {
-			ImageItem item = new ImageItem(fileInfo, -1, -1);
+			final ImageItem item = new ImageItem(fileInfo, -1, -1);
 			unqueue(Collections.singleton(item));
 			mCache.remove(item);
 			db.saveBookCoverpage(item.file, data);
-			coverpageLoaded(item, data);
+			final CoverThumbnailCache thumbnailCache = mThumbnailCache;
+			if (thumbnailCache == null) {
+				coverpageLoaded(item, data);
+				return;
+			}
+			// remove old thumbnails from disk before new cover is drawn and saved
+			TaskExecutor.instance().execute(TaskExecutor.Lane.IO, () -> {
+				thumbnailCache.remove(fileInfo);
+				coverpageLoaded(item, data);
+			});
 		}
 	}
 	
@@ -125,7 +195,9 @@ public class CoverpageManager {
 		synchronized(LOCK) {
 			mCache.clear();
 			mCheckFileCacheQueue.clear();
-			mScanFileQueue.clear();
+			for (CoverpageTask task : mPendingTasks)
+				task.token.cancel();
+			mPendingTasks.clear();
 			mReadyQueue.clear();
 		}
 	}
@@ -161,6 +233,7 @@ public class CoverpageManager {
 	private int maxWidth = 110;
 	private int maxHeight = 140;
 	private String fontFace = "Droid Sans";
+	private CoverThumbnailCache mThumbnailCache;
 
 	private enum State {
 		UNINITIALIZED,
@@ -297,8 +370,75 @@ public class CoverpageManager {
 	private BitmapCache mCache = new BitmapCache(32);
 	
 	private FileInfoQueue mCheckFileCacheQueue = new FileInfoQueue(); 
-	private FileInfoQueue mScanFileQueue = new FileInfoQueue();
 	private FileInfoQueue mReadyQueue = new FileInfoQueue();
+
+	// tasks queued in COVER lane of TaskExecutor and not started yet
+	private final ArrayList<CoverpageTask> mPendingTasks = new ArrayList<>();
+	// paths of files visible on screen, by client view
+	private final HashMap<Object, HashSet<String>> mVisiblePaths = new HashMap<>();
+
+	/**
+	 * Scan and/or draw of coverpage in worker thread.
+	 * Tasks for visible items go first, then most recently requested ones (see TaskExecutor.Lane.COVER).
+	 */
+	private abstract class CoverpageTask implements Runnable, TaskExecutor.Prioritized {
+		final ImageItem file;
+		final TaskExecutor.CancellationToken token = new TaskExecutor.CancellationToken();
+		volatile boolean visible;
+		CoverpageTask(ImageItem file) {
+			this.file = file;
+			this.visible = isVisible(file);
+		}
+		@Override
+		public int getPriority() {
+			return visible ? TaskExecutor.PRIORITY_HIGH : TaskExecutor.PRIORITY_NORMAL;
+		}
+		@Override
+		public final void run() {
+			synchronized(LOCK) {
+				mPendingTasks.remove(this);
+			}
+			process();
+		}
+		abstract void process();
+	}
+
+	/**
+	 * @return true if file is visible in some view, or no view has reported its visible files
+	 */
+	private boolean isVisible(ImageItem file) {
+		if (mVisiblePaths.isEmpty())
+			return true;
+		for (HashSet<String> paths : mVisiblePaths.values()) {
+			if (paths.contains(file.file.getPathName()))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return true if file was visible in view with given previous visible files, and isn't visible in any view now
+	 */
+	private boolean isHidden(ImageItem file, HashSet<String> prevPaths) {
+		return prevPaths.contains(file.file.getPathName()) && !mVisiblePaths.isEmpty() && !isVisible(file);
+	}
+
+	private void cancelTasks(ImageItem file) {
+		for (int i = mPendingTasks.size() - 1; i >= 0; i--) {
+			CoverpageTask task = mPendingTasks.get(i);
+			if (task.file.matches(file)) {
+				task.token.cancel();
+				mPendingTasks.remove(i);
+			}
+		}
+	}
+
+	private void schedule(CoverpageTask task) {
+		synchronized(LOCK) {
+			mPendingTasks.add(task);
+			TaskExecutor.instance().execute(TaskExecutor.Lane.COVER, TaskExecutor.PRIORITY_NORMAL, task.token, task);
+		}
+	}
 	
 	private static class FileInfoQueue {
 		ArrayList<ImageItem> list = new ArrayList<>();
@@ -360,7 +500,6 @@ public class CoverpageManager {
 	private Object LOCK = new Object();
 
 	private Runnable lastCheckCacheTask = null;
-	private Runnable lastScanFileTask = null;
 	private BitmapCacheItem setItemState(ImageItem file, State state) {
 		synchronized(LOCK) {
 			BitmapCacheItem item = mCache.getItem(file);
@@ -422,6 +561,9 @@ public class CoverpageManager {
 		if (bmp != null) {
 			// successfully decoded
 			log.v("coverpage is decoded for " + file);
+			CoverThumbnailCache thumbnailCache = mThumbnailCache;
+			if (thumbnailCache != null)
+				thumbnailCache.save(file.file, file.maxWidth, file.maxHeight, getCoverBpp(), fontFace, bmp);
 			item.setBitmap(bmp);
 			item.state = State.READY;
 			notifyBitmapIsReady(file);
@@ -430,8 +572,15 @@ public class CoverpageManager {
 
 	private void coverpageLoaded(final ImageItem file, final byte[] data) {
 		log.v("coverpage data is loaded for " + file);
-		setItemState(file, State.IMAGE_DRAW_SCHEDULED);
-		BackgroundThread.instance().postBackground(() -> draw(file, data));
+		synchronized(LOCK) {
+			setItemState(file, State.IMAGE_DRAW_SCHEDULED);
+			schedule(new CoverpageTask(file) {
+				@Override
+				void process() {
+					draw(file, data);
+				}
+			});
+		}
 	}
 	private void scheduleCheckCache(final CRDBService.LocalBinder db) {
 		// cache lookup
@@ -449,8 +598,7 @@ public class CoverpageManager {
 					db.loadBookCoverpage(file.file, (fileInfo, data) -> {
 						if (data == null) {
 							log.v("cover not found in DB for " + fileInfo + ", scheduling scan");
-							mScanFileQueue.addOnTop(request);
-							scheduleScanFile(db);
+							scheduleScanFile(db, request);
 						} else {
 							coverpageLoaded(request, data);
 						}
@@ -461,36 +609,61 @@ public class CoverpageManager {
 		};
 		BackgroundThread.instance().postGUI(lastCheckCacheTask);
 	}
-	private void scheduleScanFile(final CRDBService.LocalBinder db) {
-		// file scan
-		lastScanFileTask = new Runnable() {
+	private void scheduleScanFile(final CRDBService.LocalBinder db, final ImageItem fileInfo) {
+		if (!fileInfo.file.format.canParseCoverpages) {
+			coverpageLoaded(fileInfo, new byte[] {});
+			return;
+		}
+		synchronized(LOCK) {
+			setItemState(fileInfo, State.LOAD_SCHEDULED);
+			schedule(new CoverpageTask(fileInfo) {
+				@Override
+				void process() {
+					byte[] data = Services.getEngine().scanBookCover(fileInfo.file.getPathName());
+					if (data == null)
+						data = new byte[] {};
+					if (fileInfo.file.format.needCoverPageCaching())
+						db.saveBookCoverpage(fileInfo.file, data);
+					log.v("coverpage data is scanned for " + fileInfo);
+					// draw in the same worker, without going through the queue again
+					setItemState(fileInfo, State.IMAGE_DRAW_SCHEDULED);
+					draw(fileInfo, data);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Load thumbnail from disk cache in worker thread.
+	 * If there is no thumbnail, continue with loading coverpage data from DB or book file.
+	 */
+	private void scheduleThumbnailLookup(final CRDBService.LocalBinder db, final ImageItem file, final CoverThumbnailCache thumbnailCache) {
+		setItemState(file, State.FILE_CACHE_LOOKUP);
+		final String face = fontFace;
+		schedule(new CoverpageTask(file) {
 			@Override
-			public void run() {
-				ImageItem file = null;
+			void process() {
+				Bitmap bmp = thumbnailCache.load(file.file, file.maxWidth, file.maxHeight, getCoverBpp(), face);
 				synchronized(LOCK) {
-					if (lastScanFileTask == this) {
-						file = mScanFileQueue.next();
+					BitmapCacheItem item = mCache.getItem(file);
+					if (item == null || item.state != State.FILE_CACHE_LOOKUP) {
+						// unqueued while loading
+						if (bmp != null)
+							bmp.recycle();
+						return;
 					}
-				}
-				if (file != null) {
-					final ImageItem fileInfo = file;
-					if (fileInfo.file.format.canParseCoverpages) {
-						BackgroundThread.instance().postBackground(() -> {
-							byte[] data = Services.getEngine().scanBookCover(fileInfo.file.getPathName());
-							if (data == null)
-								data = new byte[] {};
-							if (fileInfo.file.format.needCoverPageCaching())
-								db.saveBookCoverpage(fileInfo.file, data);
-							coverpageLoaded(fileInfo, data);
-						});
-					} else {
-						coverpageLoaded(fileInfo, new byte[] {});
+					if (bmp != null) {
+						log.v("coverpage thumbnail is loaded for " + file);
+						item.setBitmap(bmp);
+						item.state = State.READY;
 					}
-					scheduleScanFile(db);
 				}
+				if (bmp != null)
+					notifyBitmapIsReady(file);
+				else
+					BackgroundThread.instance().postGUI(() -> queueForLoading(db, file));
 			}
-		};
-		BackgroundThread.instance().postGUI(lastScanFileTask);
+		});
 	}
 
 	private void queueForDrawing(final CRDBService.LocalBinder db, ImageItem file) {
@@ -498,18 +671,31 @@ public class CoverpageManager {
 			if (file == null || file.file == null || file.file.format == null)
 				return;
 			BitmapCacheItem item = mCache.getItem(file);
+			if (item != null && (item.state == State.READY || item.state == State.DRAWING || item.state == State.FILE_CACHE_LOOKUP))
+				return;
+			if (mThumbnailCache != null && file.maxWidth > 0 && file.maxHeight > 0 && (item == null || item.state == State.UNINITIALIZED)) {
+				scheduleThumbnailLookup(db, file, mThumbnailCache);
+				return;
+			}
+			queueForLoading(db, file);
+		}
+	}
+
+	private void queueForLoading(final CRDBService.LocalBinder db, ImageItem file) {
+		synchronized (LOCK) {
+			BitmapCacheItem item = mCache.getItem(file);
 			if (item != null && (item.state == State.READY || item.state == State.DRAWING))
 				return;
+			if (item != null && item.state == State.FILE_CACHE_LOOKUP)
+				item.state = State.UNINITIALIZED;
 			if (file.file.format.needCoverPageCaching()) {
 				if (mCheckFileCacheQueue.addOnTop(file)) {
 					log.v("Scheduled coverpage DB lookup for " + file);
 					scheduleCheckCache(db);
 				}
-			} else {
-				if (mScanFileQueue.addOnTop(file)) {
-					log.v("Scheduled coverpage filescan for " + file);
-					scheduleScanFile(db);
-				}
+			} else if (item == null || item.state == State.UNINITIALIZED) {
+				log.v("Scheduled coverpage filescan for " + file);
+				scheduleScanFile(db, file);
 			}
 		}
 	}
@@ -657,7 +843,7 @@ public class CoverpageManager {
 	}
 
 	public void drawCoverpageFor(final CRDBService.LocalBinder db, final FileInfo file, final Bitmap buffer, final CoverpageBitmapReadyListener callback) {
-		db.loadBookCoverpage(file, (fileInfo, data) -> BackgroundThread.instance().postBackground(() -> {
+		db.loadBookCoverpage(file, (fileInfo, data) -> TaskExecutor.instance().execute(TaskExecutor.Lane.COVER, TaskExecutor.PRIORITY_HIGH, null, () -> {
 			byte[] imageData = data;
 			if (data == null && file.format != null && file.format.canParseCoverpages) {
 				imageData = Services.getEngine().scanBookCover(file.getPathName());
@@ -691,11 +877,18 @@ public class CoverpageManager {
 		return new Rect(dst.left + dx, dst.top + dy, dst.left + sw + dx, dst.top + sh + dy); 
 	}
 	
+	private static int getCoverBpp() {
+		return DeviceInfo.EINK_SCREEN ? 4 : 16;
+	}
+
 	private Bitmap drawCoverpage(byte[] data, ImageItem file)
 	{
 		try {
-			Bitmap bmp = Bitmap.createBitmap(file.maxWidth, file.maxHeight, DeviceInfo.BUFFER_COLOR_FORMAT);
-			Services.getEngine().drawBookCover(bmp, data, fontFace, file.file.getTitleOrFileName(), file.file.authors, file.file.series, file.file.seriesNumber, DeviceInfo.EINK_SCREEN ? 4 : 16);
+			Bitmap bmp = decodeCoverpage(data, file.maxWidth, file.maxHeight);
+			if (bmp != null)
+				return bmp;
+			bmp = Bitmap.createBitmap(file.maxWidth, file.maxHeight, DeviceInfo.BUFFER_COLOR_FORMAT);
+			Services.getEngine().drawBookCover(bmp, data, fontFace, file.file.getTitleOrFileName(), file.file.authors, file.file.series, file.file.seriesNumber, getCoverBpp());
 			return bmp;
 		} catch ( Exception e ) {
     		Log.e("cr3", "exception while decoding coverpage " + e.getMessage());
@@ -703,6 +896,37 @@ public class CoverpageManager {
 		}
 	}
 
+	/**
+	 * Decode cover image using Android decoder, without engine lock, so several covers can be decoded in parallel.
+	 * Image is stretched to whole bitmap, like engine does.
+	 * @return bitmap, or null if there is no image or it should be drawn by engine
+	 */
+	private static Bitmap decodeCoverpage(byte[] data, int width, int height) {
+		// engine draws dithered grayscale covers for e-ink, and default cover if there is no image
+		if (data == null || data.length == 0 || DeviceInfo.EINK_SCREEN)
+			return null;
+		BitmapFactory.Options opts = new BitmapFactory.Options();
+		opts.inJustDecodeBounds = true;
+		BitmapFactory.decodeByteArray(data, 0, data.length, opts);
+		if (opts.outWidth <= 0 || opts.outHeight <= 0)
+			return null;
+		int sampleSize = 1;
+		while (opts.outWidth / (sampleSize * 2) >= width && opts.outHeight / (sampleSize * 2) >= height)
+			sampleSize *= 2;
+		opts = new BitmapFactory.Options();
+		opts.inSampleSize = sampleSize;
+		Bitmap src = BitmapFactory.decodeByteArray(data, 0, data.length, opts);
+		if (src == null)
+			return null;
+		Bitmap bmp = Bitmap.createBitmap(width, height, DeviceInfo.BUFFER_COLOR_FORMAT);
+		Canvas canvas = new Canvas(bmp);
+		Paint paint = new Paint();
+		paint.setFilterBitmap(true);
+		canvas.drawBitmap(src, null, new Rect(0, 0, width, height), paint);
+		src.recycle();
+		return bmp;
+	}
+
 	private ArrayList<CoverpageReadyListener> listeners = new ArrayList<>();
 
 
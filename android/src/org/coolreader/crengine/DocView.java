@@ -6,6 +6,8 @@ import android.graphics.Bitmap;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 public class DocView {
 
@@ -17,6 +19,21 @@ public class DocView {
 
 	private final Object mutex;
 
+	// results of getPositionProps() are valid while generation is not changed
+	private static final int MAX_POSITION_CACHE_SIZE = 32;
+	private static final String PRECISE_KEY_PREFIX = "p:";
+	private static final String FAST_KEY_PREFIX = "f:";
+	private int generation;
+	private int positionCacheGeneration = -1;
+	private int positionCacheHits;
+	private int positionCacheMisses;
+	private final LinkedHashMap<String, PositionProperties> positionCache = new LinkedHashMap<String, PositionProperties>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, PositionProperties> eldest) {
+			return size() > MAX_POSITION_CACHE_SIZE;
+		}
+	};
+
 	public DocView(Object mutex) {
 		log.i("DocView()");
 		this.mutex = mutex;
@@ -27,6 +44,7 @@ public class DocView {
 	 */
 	public void create() {
 		synchronized(mutex) {
+			stateChanged();
 			createInternal();
 		}
 	}
@@ -36,6 +54,7 @@ public class DocView {
 	 */
 	public void destroy() {
 		synchronized(mutex) {
+			stateChanged();
 			destroyInternal();
 		}
 	}
@@ -66,6 +85,7 @@ public class DocView {
 	 */
 	public int goLink(String link) {
 		synchronized(mutex) {
+			stateChanged();
 			return goLinkInternal(link);
 		}
 	}
@@ -103,10 +123,113 @@ public class DocView {
 	public boolean moveSelection(Selection sel,
 			int moveCmd, int params) {
 		synchronized(mutex) {
+			stateChanged();
 			return moveSelectionInternal(sel, moveCmd, params);
 		}
 	}
 
+	/**
+	 * Select sentence starting at given position, scroll to it if it's not visible.
+	 * @param startPos is xpointer of sentence start
+	 * @param sel receives selected sentence
+	 * @return true if sentence is selected
+	 */
+	public boolean selectSentence(String startPos, Selection sel) {
+		synchronized(mutex) {
+			stateChanged();
+			return selectSentenceInternal(startPos, sel);
+		}
+	}
+
+	/**
+	 * Get sentences following the sentence at given position.
+	 * Unlike moveSelection(), doesn't change selection and view position.
+	 * @param startPos is xpointer of sentence to start after
+	 * @param count is maximum number of sentences to return
+	 * @return sentences with startPos, endPos, text and percent set, empty array at end of document, or null on error
+	 */
+	public Selection[] getNextSentences(String startPos, int count) {
+		synchronized(mutex) {
+			return getNextSentencesInternal(startPos, count);
+		}
+	}
+
+	/**
+	 * Get plain text of document range, without changing selection and view position.
+	 * @param startPos is xpointer of range start, null for document start
+	 * @param endPos is xpointer of range end, null for document end
+	 * @param maxChars is maximum chunk size, text is cut at text node boundary if possible
+	 * @return text chunk, use its nextPos to read the rest of range, or null on error
+	 */
+	public TextChunk getTextChunk(String startPos, String endPos, int maxChars) {
+		synchronized(mutex) {
+			TextChunk chunk = new TextChunk();
+			return getTextChunkInternal(startPos, endPos, maxChars, chunk) ? chunk : null;
+		}
+	}
+
+	/**
+	 * Create reader of document range text by chunks.
+	 * @param startPos is xpointer of range start, null for document start
+	 * @param endPos is xpointer of range end, null for document end
+	 * @param chunkSize is maximum chunk size
+	 */
+	public TextReader readText(String startPos, String endPos, int chunkSize) {
+		return new TextReader(startPos, endPos, chunkSize);
+	}
+
+	/**
+	 * Create reader of chapter text by chunks: from chapter start to start of next chapter of the same or upper level.
+	 * @param chapter is item of TOC returned by getTOC()
+	 * @param chunkSize is maximum chunk size
+	 */
+	public TextReader readChapter(TOCItem chapter, int chunkSize) {
+		String endPos = null;
+		for (TOCItem item = chapter; item != null && item.getParent() != null; item = item.getParent()) {
+			TOCItem parent = item.getParent();
+			if (item.getIndex() + 1 < parent.getChildCount()) {
+				endPos = parent.getChild(item.getIndex() + 1).getPath();
+				break;
+			}
+		}
+		return new TextReader(chapter.getPath(), endPos, chunkSize);
+	}
+
+	/**
+	 * Reads text of range by chunks, each chunk is read by separate native call,
+	 * so document is not locked between calls. Call from engine thread, as other DocView methods.
+	 */
+	public class TextReader {
+		private String nextPos;
+		private final String endPos;
+		private final int chunkSize;
+		private boolean finished;
+
+		private TextReader(String startPos, String endPos, int chunkSize) {
+			this.nextPos = startPos;
+			this.endPos = endPos;
+			this.chunkSize = chunkSize;
+		}
+
+		public boolean hasNext() {
+			return !finished;
+		}
+
+		/**
+		 * @return next chunk, or null if range is read or error occurred
+		 */
+		public TextChunk next() {
+			if (finished)
+				return null;
+			TextChunk chunk = getTextChunk(nextPos, endPos, chunkSize);
+			if (chunk == null || chunk.isLast())
+				finished = true;
+			else
+				nextPos = chunk.nextPos;
+			return chunk;
+		}
+	}
+
 	/**
 	 * Send battery state to native object.
 	 * @param state
@@ -148,6 +271,7 @@ public class DocView {
 	public void createDefaultDocument(String title, String message)
 	{
 		synchronized(mutex) {
+			stateChanged();
 			createDefaultDocumentInternal(title, message);
 		}
 	}
@@ -159,6 +283,7 @@ public class DocView {
 	 */
 	public boolean loadDocument(String fileName) {
 		synchronized(mutex) {
+			stateChanged();
 			return loadDocumentInternal(fileName);
 		}
 	}
@@ -189,6 +314,7 @@ public class DocView {
 		}
 		if (0 == errorCode) {
 			synchronized (mutex) {
+				stateChanged();
 				return loadDocumentFromMemoryInternal(outputStream.toByteArray(), contentPath);
 			}
 		}
@@ -213,6 +339,7 @@ public class DocView {
 	 */
 	public boolean applySettings(java.util.Properties settings) {
 		synchronized(mutex) {
+			stateChanged();
 			return applySettingsInternal(settings);
 		}
 	}
@@ -229,6 +356,7 @@ public class DocView {
 	 */
 	public void setStylesheet(String stylesheet) {
 		synchronized(mutex) {
+			stateChanged();
 			setStylesheetInternal(stylesheet);
 		}
 	}
@@ -245,6 +373,7 @@ public class DocView {
 	public void resize(int dx, int dy) {
 		synchronized(mutex) {
 			log.d("DocView.resize(" + dx + ", "+ dy + ")");
+			stateChanged();
 			resizeInternal(dx, dy);
 		}
 	}
@@ -257,6 +386,7 @@ public class DocView {
 	 */
 	public boolean doCommand(int command, int param) {
 		synchronized(mutex) {
+			stateChanged();
 			return doCommandInternal(command, param);
 		}
 	}
@@ -299,6 +429,7 @@ public class DocView {
 	 */
 	public boolean goToPosition(String xPath, boolean saveToHistory) {
 		synchronized(mutex) {
+			stateChanged();
 			return goToPositionInternal(xPath, saveToHistory);
 		}
 	}
@@ -310,10 +441,44 @@ public class DocView {
 	 */
 	public PositionProperties getPositionProps(String xPath, boolean precise) {
 		synchronized(mutex) {
-			return getPositionPropsInternal(xPath, precise);
+			if (positionCacheGeneration != generation) {
+				positionCache.clear();
+				positionCacheGeneration = generation;
+			}
+			String key = xPath != null ? xPath : "";
+			PositionProperties props = positionCache.get(PRECISE_KEY_PREFIX + key);
+			if (props == null && !precise)
+				props = positionCache.get(FAST_KEY_PREFIX + key);
+			if (props != null) {
+				positionCacheHits++;
+				return new PositionProperties(props);
+			}
+			positionCacheMisses++;
+			props = getPositionPropsInternal(xPath, precise);
+			// while document is not rendered, page count and position may change without any command
+			if (props != null && isRenderedInternal())
+				positionCache.put((precise ? PRECISE_KEY_PREFIX : FAST_KEY_PREFIX) + key, new PositionProperties(props));
+			return props;
+		}
+	}
+
+	/**
+	 * Get position properties cache statistics.
+	 * @return string with hits and misses count
+	 */
+	public String getPositionCacheStats() {
+		synchronized(mutex) {
+			return "PositionCache[hits=" + positionCacheHits + ", misses=" + positionCacheMisses + "]";
 		}
 	}
 
+	/**
+	 * Should be called under mutex before each native call which may change reading position or layout.
+	 */
+	private void stateChanged() {
+		generation++;
+	}
+
 	/**
 	 * Fill book info fields using metadata from current book. 
 	 * @param info
@@ -354,6 +519,7 @@ public class DocView {
 	public boolean findText(String pattern, int origin,
 			int reverse, int caseInsensitive) {
 		synchronized(mutex) {
+			stateChanged();
 			return findTextInternal(pattern, origin, reverse, caseInsensitive);
 		}
 	}
@@ -368,6 +534,20 @@ public class DocView {
 		}
 	}
 
+	/**
+	 * Get image of page other than current one, without changing of current position.
+	 * Works in page view mode only.
+	 * @param bitmap is buffer to put data to.
+	 * @param page is number of first page on screen.
+	 * @return properties of page position, equal to ones returned by getPositionProps(null, false) when it's current page,
+	 * or null if page is not drawn
+	 */
+	public PositionProperties getPageImageAt(Bitmap bitmap, int page) {
+		synchronized(mutex) {
+			return getPageImageAtInternal(bitmap, DeviceInfo.EINK_SCREEN ? 4 : 32, page);
+		}
+	}
+
 	/**
 	 * Check whether point of current document contains image.
 	 * If image is found, image becomes current image to be drawn by drawImage(), dstImage fields are set to image dimension.
@@ -440,6 +620,8 @@ public class DocView {
 	//========================================================================================
 	private native void getPageImageInternal(Bitmap bitmap, int bpp);
 
+	private native PositionProperties getPageImageAtInternal(Bitmap bitmap, int bpp, int page);
+
 	private native void createInternal();
 
 	private native void destroyInternal();
@@ -490,6 +672,12 @@ public class DocView {
 	private native boolean moveSelectionInternal(Selection sel,
 			int moveCmd, int params);
 
+	private native boolean selectSentenceInternal(String startPos, Selection sel);
+
+	private native Selection[] getNextSentencesInternal(String startPos, int count);
+
+	private native boolean getTextChunkInternal(String startPos, String endPos, int maxChars, TextChunk chunk);
+
 	private native String checkLinkInternal(int x, int y, int delta);
 
 	private native boolean checkImageInternal(int x, int y, ImageInfo dstImage);
@@ -629,6 +629,16 @@ public class Engine {
 
 	private native static byte[] scanBookCoverInternal(String path);
 
+	/**
+	 * Scan properties of several books in one call.
+	 *
+	 * @param items   are files to scan, scanned properties are stored into them.
+	 * @param status  receives status of each item, one of SCAN_STATUS_* constants.
+	 * @param covers  receives coverpage data of each successfully scanned item which has a cover, may be null.
+	 * @param control allows to stop scanning, may be null.
+	 */
+	private native static void scanBookPropertiesBatchInternal(FileInfo[] items, int[] status, byte[][] covers, Scanner.ScanControl control);
+
 	private native static void drawBookCoverInternal(Bitmap bmp, byte[] data, String fontFace, String title, String authors, String seriesName, int seriesNumber, int bpp);
 
 	private native static void suspendLongOperationInternal(); // cancel current long operation in engine thread (swapping to cache file) -- call it from GUI thread
@@ -668,6 +678,29 @@ public class Engine {
 
 	private native static int getDomVersionCurrent();
 
+	/**
+	 * Micro-benchmark of JNI marshalling: fills PositionProperties fields with IDs looked up by name,
+	 * then with IDs cached by native code on library load.
+	 *
+	 * @param iterations number of objects to fill in each pass.
+	 * @return array of two durations in nanoseconds: lookup by name, cached IDs.
+	 */
+	private native static long[] benchmarkMarshallingInternal(int iterations);
+
+	/**
+	 * Measure JNI field access overhead and write results to log.
+	 */
+	public static void benchmarkMarshalling(int iterations) {
+		long[] times;
+		synchronized (lock) {
+			times = benchmarkMarshallingInternal(iterations);
+		}
+		if (times == null || times.length < 2 || iterations <= 0)
+			return;
+		log.i("JNI marshalling of " + iterations + " objects: by name " + times[0] / 1000 + " us (" + times[0] / iterations + " ns/object), " +
+				"cached " + times[1] / 1000 + " us (" + times[1] / iterations + " ns/object)");
+	}
+
 	/**
 	 * Finds the corresponding language code in embedded FontConfig language orthography catalog.
 	 *
@@ -1030,6 +1063,85 @@ public class Engine {
 		}
 	}
 
+	public static final int SCAN_STATUS_OK = 0;
+	public static final int SCAN_STATUS_FAILED = 1;
+	public static final int SCAN_STATUS_CANCELLED = 2;
+
+	// items scanned under single engine lock, so rendering isn't blocked by long batches
+	private static final int SCAN_BATCH_CHUNK_SIZE = 16;
+
+	/**
+	 * Scan properties of several books, crossing JNI once per chunk of items.
+	 * Items of the same archive should be passed together, archive is opened only once for them.
+	 *
+	 * @param items   are files to scan.
+	 * @param control allows to stop scanning, may be null.
+	 * @return status of each item, one of SCAN_STATUS_* constants.
+	 */
+	public int[] scanBookPropertiesBatch(FileInfo[] items, Scanner.ScanControl control) {
+		return scanBookPropertiesBatch(items, null, control);
+	}
+
+	/**
+	 * Scan properties and coverpages of several books, crossing JNI once per chunk of items.
+	 *
+	 * @param items   are files to scan.
+	 * @param covers  receives coverpage data for successfully scanned items, null for items without cover;
+	 *                if null, coverpages are not extracted.
+	 * @param control allows to stop scanning, may be null.
+	 * @return status of each item, one of SCAN_STATUS_* constants.
+	 */
+	public int[] scanBookPropertiesBatch(FileInfo[] items, byte[][] covers, Scanner.ScanControl control) {
+		int[] status = new int[items.length];
+		Arrays.fill(status, SCAN_STATUS_CANCELLED);
+		long start = Utils.timeStamp();
+		for (int pos = 0; pos < items.length; pos += SCAN_BATCH_CHUNK_SIZE) {
+			if (control != null && control.isStopped())
+				break;
+			int len = Math.min(SCAN_BATCH_CHUNK_SIZE, items.length - pos);
+			FileInfo[] chunk = Arrays.copyOfRange(items, pos, pos + len);
+			int[] chunkStatus = new int[len];
+			// items not reached by native code stay not scanned
+			Arrays.fill(chunkStatus, SCAN_STATUS_CANCELLED);
+			byte[][] chunkCovers = covers != null ? new byte[len][] : null;
+			try {
+				synchronized (lock) {
+					scanBookPropertiesBatchInternal(chunk, chunkStatus, chunkCovers, control);
+				}
+			} catch (Throwable e) {
+				L.e("scanBookPropertiesBatch: batch scan failed, scanning remaining items one by one", e);
+				scanChunkItemsSeparately(chunk, chunkStatus, chunkCovers, control);
+			}
+			System.arraycopy(chunkStatus, 0, status, pos, len);
+			if (chunkCovers != null)
+				System.arraycopy(chunkCovers, 0, covers, pos, len);
+		}
+		L.v("scanBookPropertiesBatch took " + Utils.timeInterval(start) + " ms for " + items.length + " items");
+		return status;
+	}
+
+	/**
+	 * Scan items of failed batch which have no result yet, so one bad file doesn't fail the whole chunk.
+	 */
+	private void scanChunkItemsSeparately(FileInfo[] chunk, int[] chunkStatus, byte[][] chunkCovers, Scanner.ScanControl control) {
+		for (int i = 0; i < chunk.length; i++) {
+			if (chunkStatus[i] != SCAN_STATUS_CANCELLED)
+				continue;
+			if (control != null && control.isStopped())
+				break;
+			chunkStatus[i] = SCAN_STATUS_FAILED;
+			try {
+				if (scanBookProperties(chunk[i])) {
+					if (chunkCovers != null)
+						chunkCovers[i] = scanBookCover(chunk[i].getPathName());
+					chunkStatus[i] = SCAN_STATUS_OK;
+				}
+			} catch (Throwable e) {
+				L.e("scanBookPropertiesBatch: cannot scan " + chunk[i].getPathName(), e);
+			}
+		}
+	}
+
 	public static boolean updateFileCRC32(FileInfo info) {
 		synchronized (lock) {
 			return updateFileCRC32Internal(info);
@@ -11,6 +11,7 @@ import android.view.MenuItem;
 import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.AbsListView;
 import android.widget.Adapter;
 import android.widget.ImageView;
 import android.widget.LinearLayout;
@@ -226,6 +227,7 @@ public class FileBrowser extends LinearLayout implements FileInfoChangeListener
 	public void onClose() {
 		mScanControl.stop();
 		this.mCoverpageManager.removeCoverpageReadyListener(coverpageListener);
+		this.mCoverpageManager.setVisibleItems(this, null);
 		coverpageListener = null;
 		super.onDetachedFromWindow();
 	}
@@ -259,6 +261,30 @@ public class FileBrowser extends LinearLayout implements FileInfoChangeListener
 		} else {
 			currentListAdapter.notifyDataSetChanged();
 		}
+		mListView.setOnScrollListener(new AbsListView.OnScrollListener() {
+			private int lastFirstVisibleItem = -1;
+			private int lastVisibleItemCount = -1;
+			private int lastTotalItemCount = -1;
+			private Adapter lastAdapter;
+			private FileInfo lastDirectory;
+			@Override
+			public void onScrollStateChanged(AbsListView view, int scrollState) {
+			}
+			@Override
+			public void onScroll(AbsListView view, int firstVisibleItem, int visibleItemCount, int totalItemCount) {
+				// the same positions may show other items after directory or adapter is changed
+				if (firstVisibleItem == lastFirstVisibleItem && visibleItemCount == lastVisibleItemCount
+						&& totalItemCount == lastTotalItemCount && view.getAdapter() == lastAdapter
+						&& currDirectory == lastDirectory)
+					return;
+				lastFirstVisibleItem = firstVisibleItem;
+				lastVisibleItemCount = visibleItemCount;
+				lastTotalItemCount = totalItemCount;
+				lastAdapter = view.getAdapter();
+				lastDirectory = currDirectory;
+				updateVisibleCoverpages(view, firstVisibleItem, visibleItemCount);
+			}
+		});
 		mListView.setLayoutParams(new LayoutParams(LayoutParams.FILL_PARENT, LayoutParams.FILL_PARENT));
 		mListView.setCacheColorHint(0);
 		//mListView.setBackgroundResource(R.drawable.background_tiled_light);
@@ -776,10 +802,36 @@ public class FileBrowser extends LinearLayout implements FileInfoChangeListener
 
 	@Override
 	public void onChange(FileInfo object, boolean filePropsOnly) {
-		if (currDirectory == null)
+		if (!applyChange(object))
 			return;
+		// refresh
+		if (filePropsOnly)
+			currentListAdapter.notifyInvalidated();
+		else
+			showDirectoryInternal(currDirectory, null);
+	}
+
+	@Override
+	public void onChanges(Collection<FileInfo> objects) {
+		boolean changed = false;
+		for (FileInfo object : objects) {
+			if (applyChange(object))
+				changed = true;
+		}
+		// refresh once for whole batch
+		if (changed)
+			showDirectoryInternal(currDirectory, null);
+	}
+
+	/**
+	 * Update current directory with changed item.
+	 * @return true if current directory is affected by change
+	 */
+	private boolean applyChange(FileInfo object) {
+		if (currDirectory == null)
+			return false;
 		if (!currDirectory.pathNameEquals(object) && !currDirectory.hasItem(object))
-			return;
+			return false;
 		if (currDirectory != object) {
 			if (currDirectory.pathNameEquals(object)) {
 				currDirectory.setItems(object);
@@ -787,11 +839,7 @@ public class FileBrowser extends LinearLayout implements FileInfoChangeListener
 				currDirectory.updateItem(object);
 			}
 		}
-		// refresh
-		if (filePropsOnly)
-			currentListAdapter.notifyInvalidated();
-		else
-			showDirectoryInternal(currDirectory, null);
+		return true;
 	}
 
 	public void showDirectory(FileInfo fileOrDir, FileInfo itemToSelect)
@@ -886,6 +934,12 @@ public class FileBrowser extends LinearLayout implements FileInfoChangeListener
 				mActivity.getDB().loadTitleList(fileOrDir, new ItemGroupsLoadingCallback(fileOrDir, itemToSelect));
 				return;
 			}
+			if (fileOrDir.isBooksByAuthorGroupDir() || fileOrDir.isBooksBySeriesGroupDir() || fileOrDir.isBooksByTitleGroupDir()) {
+				// items of group are loaded when it's shown
+				log.d("Updating item group " + fileOrDir.getPathName());
+				mActivity.getDB().loadItemGroup(fileOrDir, new ItemGroupsLoadingCallback(fileOrDir, itemToSelect));
+				return;
+			}
 			if (fileOrDir.isBooksByGenreDir()) {
 				log.d("Updating genres book list");
 				mActivity.getDB().loadGenresBooks(fileOrDir.getGenreCode(), !mHideEmptyGenres, new FileInfoLoadingCallback(fileOrDir, itemToSelect));
@@ -1285,13 +1339,27 @@ public class FileBrowser extends LinearLayout implements FileInfoChangeListener
 		}
 
 		public boolean isEmpty() {
-			if (currDirectory == null)
-				return true;
-			return mScanner.mFileList.size()==0;
+			return getCount() == 0;
 		}
 
 	}
 	
+	/**
+	 * Let coverpage manager decode covers of visible items first, and cancel requests for items scrolled away.
+	 */
+	private void updateVisibleCoverpages(AbsListView view, int firstVisibleItem, int visibleItemCount) {
+		Adapter adapter = view.getAdapter();
+		if (adapter == null)
+			return;
+		ArrayList<FileInfo> visibleItems = new ArrayList<>();
+		for (int i = firstVisibleItem; i < firstVisibleItem + visibleItemCount && i < adapter.getCount(); i++) {
+			Object item = adapter.getItem(i);
+			if (item instanceof FileInfo)
+				visibleItems.add((FileInfo)item);
+		}
+		mCoverpageManager.setVisibleItems(this, visibleItems);
+	}
+
 	private String translateOnlineStorePluginItem(FileInfo item) {
 		String path = item.getOnlineCatalogPluginPath();
 		int resourceId = 0;
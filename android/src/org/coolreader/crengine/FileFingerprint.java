@@ -0,0 +1,181 @@
+package org.coolreader.crengine;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Pure Java calculation of file CRC32 and SHA fingerprints.
+ *
+ * Doesn't use native code, so it doesn't need Engine.lock and may run
+ * in parallel with rendering. Results are compatible with crengine:
+ * CRC32 of plain file is calculated for whole file contents,
+ * for ZIP archive items CRC32 from archive header is used.
+ * SHA-512 fingerprint is calculated only on request, it's not stored in DB yet
+ * (see TODO in MainDB.findByFingerprints()).
+ */
+public class FileFingerprint {
+
+	public static final Logger log = L.create("fp");
+
+	public static final String SHA_ALGORITHM = "SHA-512";
+
+	// size of memory mapped region
+	private static final int MAP_CHUNK_SIZE = 4 * 1024 * 1024;
+	// files smaller than this are read to heap buffer instead of mapping
+	private static final int MIN_MAP_SIZE = 64 * 1024;
+	private static final int BUFFER_SIZE = 16 * 1024;
+
+	public final long crc32;
+	// hex string, null if not requested
+	public final String sha;
+
+	private FileFingerprint(long crc32, String sha) {
+		this.crc32 = crc32;
+		this.sha = sha;
+	}
+
+	/**
+	 * Update crc32 field of file info, without holding engine lock.
+	 * Falls back to native implementation for archives which cannot be read by java.util.zip.
+	 * @param info is file to process
+	 * @param control allows to stop calculation, may be null
+	 * @return true if crc32 is updated
+	 */
+	public static boolean updateFileCRC32(FileInfo info, Scanner.ScanControl control) {
+		try {
+			FileFingerprint fp = calculate(info, false, control);
+			if (fp == null)
+				return false;
+			info.crc32 = fp.crc32;
+			return true;
+		} catch (IOException e) {
+			if (isArchiveItem(info)) {
+				log.w("Cannot read archive " + info.arcname + " (" + e.getMessage() + "), using native CRC32 calculation");
+				return Engine.updateFileCRC32(info);
+			}
+			log.e("Cannot calculate CRC32 for " + info.getPathName(), e);
+			return false;
+		}
+	}
+
+	/**
+	 * Calculate fingerprint of file or archive item.
+	 * @param info is file to process
+	 * @param withSha is true to calculate SHA fingerprint as well
+	 * @param control allows to stop calculation, may be null
+	 * @return fingerprint, or null if calculation has been stopped
+	 * @throws IOException if file cannot be read
+	 */
+	public static FileFingerprint calculate(FileInfo info, boolean withSha, Scanner.ScanControl control) throws IOException {
+		if (info.pathname == null)
+			throw new IOException("No file name");
+		Digest digest = new Digest(withSha);
+		boolean done;
+		if (isArchiveItem(info)) {
+			try (ZipFile zip = new ZipFile(info.arcname)) {
+				ZipEntry entry = zip.getEntry(info.pathname);
+				if (entry == null)
+					throw new IOException("No entry " + info.pathname + " in " + info.arcname);
+				long crc = entry.getCrc();
+				if (crc > 0 && !withSha)
+					return new FileFingerprint(crc, null);
+				// invalid CRC in header, or SHA is requested: decode item
+				try (InputStream in = zip.getInputStream(entry)) {
+					done = digest.update(in, control);
+				}
+				if (done && crc > 0)
+					return new FileFingerprint(crc, digest.sha());
+			}
+		} else {
+			done = digest.update(new File(info.pathname), control);
+		}
+		if (!done)
+			return null;
+		return new FileFingerprint(digest.crc.getValue(), digest.sha());
+	}
+
+	private static boolean isArchiveItem(FileInfo info) {
+		return info.arcname != null && info.arcname.length() > 0;
+	}
+
+	private static class Digest {
+		final CRC32 crc = new CRC32();
+		final MessageDigest sha;
+		final byte[] buf = new byte[BUFFER_SIZE];
+
+		Digest(boolean withSha) throws IOException {
+			if (withSha) {
+				try {
+					sha = MessageDigest.getInstance(SHA_ALGORITHM);
+				} catch (NoSuchAlgorithmException e) {
+					throw new IOException(SHA_ALGORITHM + " is not supported");
+				}
+			} else {
+				sha = null;
+			}
+		}
+
+		void update(byte[] data, int len) {
+			crc.update(data, 0, len);
+			if (sha != null)
+				sha.update(data, 0, len);
+		}
+
+		boolean update(InputStream in, Scanner.ScanControl control) throws IOException {
+			int len;
+			while ((len = in.read(buf)) > 0) {
+				if (control != null && control.isStopped())
+					return false;
+				update(buf, len);
+			}
+			return true;
+		}
+
+		boolean update(File file, Scanner.ScanControl control) throws IOException {
+			try (FileInputStream in = new FileInputStream(file)) {
+				FileChannel channel = in.getChannel();
+				long size = channel.size();
+				if (size < MIN_MAP_SIZE)
+					return update(in, control);
+				for (long pos = 0; pos < size; pos += MAP_CHUNK_SIZE) {
+					if (control != null && control.isStopped())
+						return false;
+					long len = Math.min(MAP_CHUNK_SIZE, size - pos);
+					MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, pos, len);
+					while (region.hasRemaining()) {
+						int n = Math.min(buf.length, region.remaining());
+						region.get(buf, 0, n);
+						update(buf, n);
+					}
+				}
+				return true;
+			}
+		}
+
+		String sha() {
+			if (sha == null)
+				return null;
+			byte[] hash = sha.digest();
+			StringBuilder sb = new StringBuilder(hash.length * 2);
+			for (byte b : hash) {
+				sb.append(Character.forDigit((b >> 4) & 0x0F, 16));
+				sb.append(Character.forDigit(b & 0x0F, 16));
+			}
+			return sb.toString();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "FileFingerprint[crc32=" + crc32 + (sha != null ? ", sha=" + sha : "") + "]";
+	}
+}
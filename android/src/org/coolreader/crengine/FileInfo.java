@@ -11,7 +11,6 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.zip.ZipEntry;
 
 public class FileInfo {
 
@@ -64,6 +63,7 @@ public class FileInfo {
 	public boolean isDirectory;
 	public boolean isListed;
 	public boolean isScanned;
+	public long listedTime; // directory modification time at the moment of last listing by Scanner, 0 if unknown
 	public long crc32;
 	public int domVersion;
 	public int blockRenderingFlags;
@@ -237,24 +237,19 @@ public class FileInfo {
 				arcsize = arc.length();
 				isArchive = true;
 				try {
-					//ZipFile zip = new ZipFile(new File(arcname));
-					ArrayList<ZipEntry> entries = Services.getEngine().getArchiveItems(arcname);
-					//for ( Enumeration<?> e = zip.entries(); e.hasMoreElements(); ) {
-					for (ZipEntry entry : entries) {
-						String name = entry.getName();
-						
-						if ( !entry.isDirectory() && pathname.equals(name) ) {
-							File itemf = new File(name);
-							filename = itemf.getName();
-							path = itemf.getPath();
-							format = DocumentFormat.byExtension(name);
-							size = entry.getSize();
-							//arcsize = entry.getCompressedSize();
-							createTime = entry.getTime();
-							domVersion = Engine.DOM_VERSION_CURRENT;
-							blockRenderingFlags = Engine.BLOCK_RENDERING_FLAGS_WEB;
-							break;
-						}
+					ArchiveIndex index = ArchiveIndex.get(arcname);
+					int i = index != null ? index.indexOf(pathname) : -1;
+					if ( i >= 0 && !index.isDirectory(i) ) {
+						String name = index.getName(i);
+						File itemf = new File(name);
+						filename = itemf.getName();
+						path = itemf.getPath();
+						format = DocumentFormat.byExtension(name);
+						size = index.getSize(i);
+						//arcsize = entry.getCompressedSize();
+						createTime = index.getTime(i);
+						domVersion = Engine.DOM_VERSION_CURRENT;
+						blockRenderingFlags = Engine.BLOCK_RENDERING_FLAGS_WEB;
 					}
 				} catch ( Exception e ) {
 					Log.e("cr3", "error while reading contents of " + arcname);
@@ -475,6 +470,21 @@ public class FileInfo {
 		return pathname!=null && pathname.startsWith(SERIES_PREFIX);
 	}
 
+	public boolean isBooksByAuthorGroupDir()
+	{
+		return pathname!=null && pathname.startsWith(AUTHOR_GROUP_PREFIX);
+	}
+
+	public boolean isBooksBySeriesGroupDir()
+	{
+		return pathname!=null && pathname.startsWith(SERIES_GROUP_PREFIX);
+	}
+
+	public boolean isBooksByTitleGroupDir()
+	{
+		return pathname!=null && pathname.startsWith(TITLE_GROUP_PREFIX);
+	}
+
 	public boolean isOnSDCard() {
 		if (null == parent)
 			return false;
@@ -780,6 +790,7 @@ public class FileInfo {
 		}
 		isListed = copyFrom.isListed;
 		isScanned = copyFrom.isScanned;
+		listedTime = copyFrom.listedTime;
 	}
 
 	public void setItems(Collection<FileInfo> list)
@@ -1,5 +1,7 @@
 package org.coolreader.crengine;
 
+import java.util.Collection;
+
 public interface FileInfoChangeListener {
 	/**
 	 * Notify about file or directory change.
@@ -7,4 +9,10 @@ public interface FileInfoChangeListener {
 	 * @param onlyProperties is true if only book info is changed, but no item count changed
 	 */
 	void onChange(FileInfo object, boolean onlyProperties);
+
+	/**
+	 * Notify about item count changes of several directories at once.
+	 * @param objects directories which have been changed
+	 */
+	void onChanges(Collection<FileInfo> objects);
 }
@@ -1,5 +1,6 @@
 package org.coolreader.crengine;
 
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -16,4 +17,9 @@ public class FileInfoChangeSource implements FileInfoChangeListener {
 		for (FileInfoChangeListener listener : listeners)
 			listener.onChange(object, filePropsOnlyChange);
 	}
+	@Override
+	public void onChanges(Collection<FileInfo> objects) {
+		for (FileInfoChangeListener listener : listeners)
+			listener.onChanges(objects);
+	}
 }
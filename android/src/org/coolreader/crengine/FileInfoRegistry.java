@@ -0,0 +1,140 @@
+package org.coolreader.crengine;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Registry of file items by path name, allows to reuse items already found while listing directories.
+ *
+ * Items are weakly referenced: registry doesn't keep items which are not referenced from directory tree anymore.
+ * Number of entries is limited, least recently used entries are evicted first.
+ * Thread safe.
+ */
+public class FileInfoRegistry {
+
+	public static final int DEFAULT_MAX_SIZE = 10000;
+
+	private static class ItemRef extends WeakReference<FileInfo> {
+		final String key;
+
+		ItemRef(String key, FileInfo item, ReferenceQueue<FileInfo> queue) {
+			super(item, queue);
+			this.key = key;
+		}
+	}
+
+	/**
+	 * Snapshot of registry statistics.
+	 */
+	public static class Stats {
+		public final int size;
+		public final int maxSize;
+		public final long hits;
+		public final long misses;
+		public final long collected;
+		public final long evicted;
+
+		Stats(int size, int maxSize, long hits, long misses, long collected, long evicted) {
+			this.size = size;
+			this.maxSize = maxSize;
+			this.hits = hits;
+			this.misses = misses;
+			this.collected = collected;
+			this.evicted = evicted;
+		}
+
+		@Override
+		public String toString() {
+			return "FileInfoRegistry[size=" + size + " (max " + maxSize + "), hits=" + hits + ", misses=" + misses
+					+ ", collected=" + collected + ", evicted=" + evicted + "]";
+		}
+	}
+
+	private final ReferenceQueue<FileInfo> queue = new ReferenceQueue<>();
+	private final LinkedHashMap<String, ItemRef> map = new LinkedHashMap<String, ItemRef>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, ItemRef> eldest) {
+			if (size() > maxSize) {
+				evicted++;
+				return true;
+			}
+			return false;
+		}
+	};
+	private int maxSize;
+	private long hits;
+	private long misses;
+	private long collected;
+	private long evicted;
+
+	public FileInfoRegistry(int maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	public synchronized void setMaxSize(int maxSize) {
+		this.maxSize = maxSize;
+		// removeEldestEntry() evicts only one entry per put
+		while (map.size() > maxSize) {
+			map.remove(map.keySet().iterator().next());
+			evicted++;
+		}
+	}
+
+	/**
+	 * @return registered item, or null if item is not found or it's already collected
+	 */
+	public synchronized FileInfo get(String pathName) {
+		purge();
+		ItemRef ref = map.get(pathName);
+		FileInfo item = ref != null ? ref.get() : null;
+		if (item != null)
+			hits++;
+		else
+			misses++;
+		return item;
+	}
+
+	public synchronized void put(String pathName, FileInfo item) {
+		purge();
+		// path name of item is used as key if it's the same, to avoid keeping another copy of string
+		String key = pathName.equals(item.pathname) ? item.pathname : pathName;
+		map.put(key, new ItemRef(key, item, queue));
+	}
+
+	public synchronized void remove(String pathName) {
+		map.remove(pathName);
+	}
+
+	public synchronized int size() {
+		purge();
+		return map.size();
+	}
+
+	public synchronized void clear() {
+		map.clear();
+		while (queue.poll() != null) {
+			// drop references of removed entries
+		}
+	}
+
+	public synchronized Stats getStats() {
+		purge();
+		return new Stats(map.size(), maxSize, hits, misses, collected, evicted);
+	}
+
+	/**
+	 * Remove entries of collected items.
+	 */
+	private void purge() {
+		ItemRef ref;
+		while ((ref = (ItemRef) queue.poll()) != null) {
+			// entry may be already replaced with reference to another item
+			if (map.get(ref.key) == ref) {
+				map.remove(ref.key);
+				collected++;
+			}
+		}
+	}
+}
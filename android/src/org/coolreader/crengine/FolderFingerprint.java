@@ -0,0 +1,70 @@
+package org.coolreader.crengine;
+
+import java.io.File;
+
+/**
+ * Summary of directory state, used to detect changes between scans.
+ */
+public class FolderFingerprint {
+	public final long modificationTime;
+	public final int entryCount;
+	public final long sizeHash;
+
+	public FolderFingerprint(long modificationTime, int entryCount, long sizeHash) {
+		this.modificationTime = modificationTime;
+		this.entryCount = entryCount;
+		this.sizeHash = sizeHash;
+	}
+
+	/**
+	 * Calculate fingerprint for listed directory.
+	 * Hash doesn't depend on order of items.
+	 * @param dir is directory with already listed items
+	 */
+	public static FolderFingerprint of(FileInfo dir) {
+		long modificationTime = new File(dir.pathname).lastModified();
+		int entryCount = dir.fileCount() + dir.dirCount();
+		long sizeHash = 0;
+		for (int i = 0; i < dir.fileCount(); i++) {
+			FileInfo item = dir.getFile(i);
+			String pathName = item.getPathName();
+			long h = pathName != null ? pathName.hashCode() : 0;
+			h = h * 31 + item.size;
+			h = h * 31 + item.arcsize;
+			h = h * 31 + item.createTime;
+			sizeHash += mix(h);
+		}
+		for (int i = 0; i < dir.dirCount(); i++) {
+			String pathName = dir.getDir(i).getPathName();
+			sizeHash += mix(pathName != null ? pathName.hashCode() : 0);
+		}
+		return new FolderFingerprint(modificationTime, entryCount, sizeHash);
+	}
+
+	private static long mix(long h) {
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o)
+			return true;
+		if (o == null || getClass() != o.getClass())
+			return false;
+		FolderFingerprint that = (FolderFingerprint) o;
+		return modificationTime == that.modificationTime && entryCount == that.entryCount && sizeHash == that.sizeHash;
+	}
+
+	@Override
+	public int hashCode() {
+		return (int) (modificationTime ^ sizeHash) * 31 + entryCount;
+	}
+
+	@Override
+	public String toString() {
+		return "FolderFingerprint[mtime=" + modificationTime + ", entries=" + entryCount + ", hash=" + Long.toHexString(sizeHash) + "]";
+	}
+}
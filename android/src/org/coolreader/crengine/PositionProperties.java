@@ -25,6 +25,7 @@ public class PositionProperties {
 		pageMode = v.pageMode;
 		charCount = v.charCount;
 		imageCount = v.imageCount;
+		pageText = v.pageText;
 	}
 
 	public PositionProperties() {
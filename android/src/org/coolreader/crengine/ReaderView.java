@@ -6,7 +6,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -17,6 +19,8 @@ import org.coolreader.R;
 import org.coolreader.crengine.InputDialog.InputHandler;
 import org.koekak.android.ebookdownloader.SonyBookSelector;
 
+import android.annotation.TargetApi;
+import android.content.ComponentCallbacks2;
 import android.content.ContentValues;
 import android.content.Context;
 import android.content.Intent;
@@ -445,6 +449,16 @@ public class ReaderView implements android.view.SurfaceHolder.Callback, Settings
 		statTimeElapsed = timeElapsed;
 	}
 
+	/**
+	 * Release cached page buffers on memory pressure.
+	 * @param level is level passed to onTrimMemory()
+	 */
+	public void onTrimMemory(int level) {
+		if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW)
+			BackgroundThread.instance().postBackground(this::clearPageCache);
+		factory.trimMemory(level);
+	}
+
 	public void onAppPause() {
 		stopTracking();
 		if (currentAutoScrollAnimation != null)
@@ -1525,6 +1539,8 @@ public class ReaderView implements android.view.SurfaceHolder.Callback, Settings
 	public Bookmark updateBookmark(final Bookmark bookmark) {
 		Bookmark bm = mBookInfo.updateBookmark(bookmark);
 		if (bm != null) {
+			// position saves don't write bookmarks, save them now
+			mActivity.getDB().saveBookInfo(mBookInfo);
 			scheduleSaveCurrentPositionBookmark(DEF_SAVE_POSITION_INTERVAL);
 			highlightBookmarks();
 		}
@@ -1533,6 +1549,8 @@ public class ReaderView implements android.view.SurfaceHolder.Callback, Settings
 
 	public void addBookmark(final Bookmark bookmark) {
 		mBookInfo.addBookmark(bookmark);
+		// position saves don't write bookmarks, save them now
+		mActivity.getDB().saveBookInfo(mBookInfo);
 		highlightBookmarks();
 		scheduleSaveCurrentPositionBookmark(DEF_SAVE_POSITION_INTERVAL);
 	}
@@ -2550,6 +2568,23 @@ public class ReaderView implements android.view.SurfaceHolder.Callback, Settings
 		doEngineCommand(cmd, param, null);
 	}
 
+	/**
+	 * Link navigation commands change highlighted link, so page images should be redrawn.
+	 */
+	private static boolean isLinkCommand(ReaderCommand cmd) {
+		switch (cmd) {
+			case DCMD_LINK_FORWARD:
+			case DCMD_LINK_BACK:
+			case DCMD_LINK_NEXT:
+			case DCMD_LINK_PREV:
+			case DCMD_LINK_GO:
+			case DCMD_LINK_FIRST:
+				return true;
+			default:
+				return false;
+		}
+	}
+
 	public void doEngineCommand(final ReaderCommand cmd, final int param, final Runnable doneHandler) {
 		BackgroundThread.ensureGUI();
 		log.d("doCommand(" + cmd + ", " + param + ")");
@@ -2590,7 +2625,9 @@ public class ReaderView implements android.view.SurfaceHolder.Callback, Settings
 
 			public void done() {
 				if (res) {
-					invalidImages = true;
+					// page images stay valid when only position is changed, they are found by position
+					if (!isMoveCommand || isLinkCommand(cmd))
+						invalidImages = true;
 					drawPage(doneHandler, false);
 				}
 				if (isMoveCommand && isBookLoaded())
@@ -2839,6 +2876,12 @@ public class ReaderView implements android.view.SurfaceHolder.Callback, Settings
 			mMultiSelectionAction = Utils.parseInt(value, SELECTION_ACTION_TOOLBAR);
 		} else if (PROP_APP_VIEW_ANIM_DURATION.equals(key)) {
 			mAvgDrawAnimationStats.fill(Utils.parseInt(value, 50));
+		} else if (PROP_APP_PAGE_BITMAP_POOL_SIZE.equals(key)) {
+			factory.setMaxFreeListSize(Utils.parseInt(value, BitmapFactory.DEFAULT_MAX_FREE_LIST_SIZE, 1, BitmapFactory.MAX_FREE_LIST_SIZE));
+		} else if (PROP_APP_PAGE_CACHE_BEHIND.equals(key)) {
+			setPageCacheSize(Utils.parseInt(value, DEF_PAGE_CACHE_BEHIND, 0, MAX_PAGE_CACHE_WINDOW), -1);
+		} else if (PROP_APP_PAGE_CACHE_AHEAD.equals(key)) {
+			setPageCacheSize(-1, Utils.parseInt(value, DEF_PAGE_CACHE_AHEAD, 0, MAX_PAGE_CACHE_WINDOW));
 		} else {
 			//mActivity.applyAppSetting(key, value);
 		}
@@ -3184,66 +3227,153 @@ public class ReaderView implements android.view.SurfaceHolder.Callback, Settings
 
 	private static final VMRuntimeHack runtime = new VMRuntimeHack();
 
+	/**
+	 * Pool of page bitmaps.
+	 * Free bitmaps are kept by size, so buffers of different sizes (e.g. after rotation
+	 * or split screen resize) don't discard each other. On API 19+ free bitmap of other size
+	 * can be reused by Bitmap.reconfigure() if its allocation is large enough.
+	 */
 	private static class BitmapFactory {
-		public static final int MAX_FREE_LIST_SIZE = 2;
-		ArrayList<Bitmap> freeList = new ArrayList<Bitmap>();
-		ArrayList<Bitmap> usedList = new ArrayList<Bitmap>();
+		public static final int DEFAULT_MAX_FREE_LIST_SIZE = 3;
+		public static final int MAX_FREE_LIST_SIZE = 8;
+		private static final int KITKAT = 19;
+		private int maxFreeListSize;
+		// free bitmaps by size key, see sizeKey()
+		private final HashMap<Long, ArrayList<Bitmap>> freeBySize = new HashMap<>();
+		// all free bitmaps, least recently released first
+		private final ArrayList<Bitmap> freeList = new ArrayList<>();
+		private final HashSet<Bitmap> usedSet = new HashSet<>();
+		private long allocatedCount;
+		private long reusedCount;
+		private long reconfiguredCount;
+		private long discardedCount;
+
+		public BitmapFactory(int maxFreeListSize) {
+			this.maxFreeListSize = maxFreeListSize;
+		}
+
+		private static long sizeKey(int dx, int dy) {
+			return ((long)dx << 32) | (dy & 0xFFFFFFFFL);
+		}
 
 		public synchronized Bitmap get(int dx, int dy) {
-			for (int i = 0; i < freeList.size(); i++) {
-				Bitmap bmp = freeList.get(i);
-				if (bmp.getWidth() == dx && bmp.getHeight() == dy) {
-					// found bitmap of proper size
-					freeList.remove(i);
-					usedList.add(bmp);
-					//log.d("BitmapFactory: reused free bitmap, used list = " + usedList.size() + ", free list=" + freeList.size());
+			ArrayList<Bitmap> sameSize = freeBySize.get(sizeKey(dx, dy));
+			if (sameSize != null && sameSize.size() > 0) {
+				// found bitmap of proper size
+				Bitmap bmp = sameSize.remove(sameSize.size() - 1);
+				freeList.remove(bmp);
+				usedSet.add(bmp);
+				reusedCount++;
+				return bmp;
+			}
+			if (DeviceInfo.getSDKLevel() >= KITKAT) {
+				Bitmap bmp = reconfigureFree(dx, dy);
+				if (bmp != null) {
+					usedSet.add(bmp);
+					reconfiguredCount++;
 					return bmp;
 				}
 			}
-			for (int i = freeList.size() - 1; i >= 0; i--) {
-				Bitmap bmp = freeList.remove(i);
-				runtime.trackAlloc(bmp.getWidth() * bmp.getHeight() * 2);
-				//log.d("Recycling free bitmap "+bmp.getWidth()+"x"+bmp.getHeight());
-				//bmp.recycle(); //20110109
-			}
 			Bitmap bmp = Bitmap.createBitmap(dx, dy, DeviceInfo.BUFFER_COLOR_FORMAT);
 			runtime.trackFree(dx * dy * 2);
+			allocatedCount++;
 			//bmp.setDensity(0);
-			usedList.add(bmp);
-			//log.d("Created new bitmap "+dx+"x"+dy+". New bitmap list size = " + usedList.size());
+			usedSet.add(bmp);
+			log.d("BitmapFactory: created new bitmap " + dx + "x" + dy + ", " + this);
 			return bmp;
 		}
 
-		public synchronized void compact() {
-			while (freeList.size() > 0) {
-				//freeList.get(0).recycle();//20110109
-				Bitmap bmp = freeList.remove(0);
-				runtime.trackAlloc(bmp.getWidth() * bmp.getHeight() * 2);
+		@TargetApi(KITKAT)
+		private Bitmap reconfigureFree(int dx, int dy) {
+			int bytesNeeded = dx * dy * (DeviceInfo.BUFFER_COLOR_FORMAT == Bitmap.Config.RGB_565 ? 2 : 4);
+			for (Bitmap bmp : freeList) {
+				if (bmp.isMutable() && bmp.getAllocationByteCount() >= bytesNeeded) {
+					int oldSize = bmp.getWidth() * bmp.getHeight() * 2;
+					try {
+						bmp.reconfigure(dx, dy, DeviceInfo.BUFFER_COLOR_FORMAT);
+					} catch (IllegalArgumentException e) {
+						continue;
+					}
+					removeFree(bmp);
+					runtime.trackAlloc(oldSize);
+					runtime.trackFree(dx * dy * 2);
+					return bmp;
+				}
 			}
+			return null;
 		}
 
-		public synchronized void release(Bitmap bmp) {
-			for (int i = 0; i < usedList.size(); i++) {
-				if (usedList.get(i) == bmp) {
-					freeList.add(bmp);
-					usedList.remove(i);
-					while (freeList.size() > MAX_FREE_LIST_SIZE) {
-						//freeList.get(0).recycle(); //20110109
-						Bitmap b = freeList.remove(0);
-						runtime.trackAlloc(b.getWidth() * b.getHeight() * 2);
-						//b.recycle();
-					}
-					log.d("BitmapFactory: bitmap released, used size = " + usedList.size() + ", free size=" + freeList.size());
+		private void removeFree(Bitmap bmp) {
+			freeList.remove(bmp);
+			for (Iterator<ArrayList<Bitmap>> it = freeBySize.values().iterator(); it.hasNext(); ) {
+				ArrayList<Bitmap> list = it.next();
+				if (list.remove(bmp)) {
+					if (list.isEmpty())
+						it.remove();
 					return;
 				}
 			}
-			// unknown bitmap, just recycle
-			//bmp.recycle();//20110109
+		}
+
+		private void trimTo(int size) {
+			while (freeList.size() > size) {
+				//freeList.get(0).recycle(); //20110109
+				Bitmap b = freeList.get(0);
+				removeFree(b);
+				runtime.trackAlloc(b.getWidth() * b.getHeight() * 2);
+				discardedCount++;
+			}
+		}
+
+		public synchronized void compact() {
+			trimTo(0);
+		}
+
+		public synchronized void setMaxFreeListSize(int maxFreeListSize) {
+			this.maxFreeListSize = maxFreeListSize;
+			trimTo(maxFreeListSize);
+		}
+
+		/**
+		 * Release free bitmaps on memory pressure.
+		 * @param level is level passed to onTrimMemory()
+		 */
+		public synchronized void trimMemory(int level) {
+			if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW)
+				trimTo(0);
+			else
+				trimTo(1);
+			log.d("BitmapFactory: trimMemory(" + level + "), " + this);
+		}
+
+		public synchronized void release(Bitmap bmp) {
+			if (!usedSet.remove(bmp)) {
+				// unknown bitmap, just recycle
+				//bmp.recycle();//20110109
+				return;
+			}
+			long key = sizeKey(bmp.getWidth(), bmp.getHeight());
+			ArrayList<Bitmap> sameSize = freeBySize.get(key);
+			if (sameSize == null) {
+				sameSize = new ArrayList<>();
+				freeBySize.put(key, sameSize);
+			}
+			sameSize.add(bmp);
+			freeList.add(bmp);
+			trimTo(maxFreeListSize);
+			log.d("BitmapFactory: bitmap released, used size = " + usedSet.size() + ", free size=" + freeList.size());
+		}
+
+		@Override
+		public synchronized String toString() {
+			return "BitmapFactory[used=" + usedSet.size() + ", free=" + freeList.size() + "/" + maxFreeListSize
+					+ ", allocated=" + allocatedCount + ", reused=" + reusedCount
+					+ ", reconfigured=" + reconfiguredCount + ", discarded=" + discardedCount + "]";
 		}
 	}
 
 	;
-	BitmapFactory factory = new BitmapFactory();
+	BitmapFactory factory = new BitmapFactory(BitmapFactory.DEFAULT_MAX_FREE_LIST_SIZE);
 
 	class BitmapInfo {
 		Bitmap bitmap;
@@ -3271,6 +3401,189 @@ public class ReaderView implements android.view.SurfaceHolder.Callback, Settings
 	private BitmapInfo mCurrentPageInfo;
 	private BitmapInfo mNextPageInfo;
 
+	public static final int DEF_PAGE_CACHE_BEHIND = 2;
+	public static final int DEF_PAGE_CACHE_AHEAD = 3;
+	public static final int MAX_PAGE_CACHE_WINDOW = 8;
+	// part of max heap size which may be used by cached page images
+	private static final int PAGE_CACHE_MEMORY_DIVIDER = 8;
+	// page images around current page (page mode only), in addition to mCurrentPageInfo and mNextPageInfo
+	// accessed from background thread only
+	private final ArrayList<BitmapInfo> mPageCache = new ArrayList<>();
+	private int mPageCacheBehind = DEF_PAGE_CACHE_BEHIND;
+	private int mPageCacheAhead = DEF_PAGE_CACHE_AHEAD;
+	// state of clock and battery in page header when images were drawn, see getPageHeaderState()
+	private long mPageHeaderState;
+	// 1 if user reads forward, -1 if backward
+	private int mReadingDirection = 1;
+	private int mLastPageNumber = -1;
+
+	/**
+	 * Get state of changing page header items: clock and battery level.
+	 * Page images drawn with another state are outdated.
+	 */
+	private long getPageHeaderState() {
+		long state = 0;
+		if (mSettings.getBool(PROP_SHOW_TIME, false))
+			state = System.currentTimeMillis() / 60000;
+		if (mSettings.getBool(PROP_SHOW_BATTERY, false))
+			state = state * 1000 + mBatteryState;
+		return state;
+	}
+
+	private int getMaxCachedPages() {
+		int pages = mPageCacheBehind + mPageCacheAhead;
+		long pageBytes = (long)internalDX * internalDY * (DeviceInfo.BUFFER_COLOR_FORMAT == Bitmap.Config.RGB_565 ? 2 : 4);
+		if (pageBytes > 0)
+			pages = (int)Math.min(pages, Runtime.getRuntime().maxMemory() / PAGE_CACHE_MEMORY_DIVIDER / pageBytes);
+		return pages;
+	}
+
+	/**
+	 * Distance of page from current one, in screens, positive in reading direction.
+	 */
+	private int getPageDistance(PositionProperties pos) {
+		int pagesPerScreen = Math.max(1, pos.pageMode);
+		return (pos.pageNumber - mLastPageNumber) / pagesPerScreen * mReadingDirection;
+	}
+
+	private boolean isPageCached(int pageNumber) {
+		if (mCurrentPageInfo != null && mCurrentPageInfo.position != null && mCurrentPageInfo.imageInfo == null && mCurrentPageInfo.position.pageNumber == pageNumber)
+			return true;
+		if (mNextPageInfo != null && mNextPageInfo.position != null && mNextPageInfo.imageInfo == null && mNextPageInfo.position.pageNumber == pageNumber)
+			return true;
+		for (BitmapInfo bi : mPageCache)
+			if (bi.position.pageNumber == pageNumber)
+				return true;
+		return false;
+	}
+
+	/**
+	 * Find page image in cache and remove it from cache.
+	 */
+	private BitmapInfo takeCachedPage(PositionProperties pos) {
+		for (int i = 0; i < mPageCache.size(); i++) {
+			BitmapInfo bi = mPageCache.get(i);
+			if (bi.position.equals(pos) && bi.bitmap.getWidth() == internalDX && bi.bitmap.getHeight() == internalDY)
+				return mPageCache.remove(i);
+		}
+		return null;
+	}
+
+	/**
+	 * Put page image which is not needed in current/next slot to cache, or recycle it.
+	 */
+	private void retirePage(BitmapInfo bi) {
+		if (bi == null || bi.isReleased())
+			return;
+		if (bi.imageInfo != null || bi.position == null || bi.position.pageMode == 0 || getMaxCachedPages() <= 0) {
+			bi.recycle();
+			return;
+		}
+		for (BitmapInfo cached : mPageCache) {
+			if (cached.position.equals(bi.position)) {
+				bi.recycle();
+				return;
+			}
+		}
+		mPageCache.add(bi);
+		trimPageCache();
+	}
+
+	/**
+	 * Set number of page images to keep before and after current page.
+	 * @param behind pages before current one, negative to keep current value
+	 * @param ahead pages after current one, negative to keep current value
+	 */
+	public void setPageCacheSize(final int behind, final int ahead) {
+		BackgroundThread.instance().postBackground(() -> {
+			if (behind >= 0)
+				mPageCacheBehind = behind;
+			if (ahead >= 0)
+				mPageCacheAhead = ahead;
+			trimPageCache();
+		});
+	}
+
+	private void trimPageCache() {
+		int maxPages = getMaxCachedPages();
+		for (;;) {
+			// remove pages out of window first, then most distant ones
+			int worstIndex = -1;
+			int worstScore = 0;
+			for (int i = 0; i < mPageCache.size(); i++) {
+				int d = getPageDistance(mPageCache.get(i).position);
+				boolean outOfWindow = d > mPageCacheAhead || -d > mPageCacheBehind;
+				int score = Math.abs(d) + (outOfWindow ? 10000 : 0);
+				if (worstIndex < 0 || score > worstScore) {
+					worstIndex = i;
+					worstScore = score;
+				}
+			}
+			if (worstIndex < 0 || (worstScore < 10000 && mPageCache.size() <= maxPages))
+				break;
+			mPageCache.remove(worstIndex).recycle();
+		}
+	}
+
+	private void clearPageCache() {
+		for (BitmapInfo bi : mPageCache)
+			bi.recycle();
+		mPageCache.clear();
+	}
+
+	/**
+	 * Render pages around current one into cache, in background thread, one page per task
+	 * so that user commands are not delayed.
+	 * @param drawTaskId is id of draw task which has drawn current page, prefetch stops when another page is drawn
+	 */
+	private void schedulePagePrefetch(final int drawTaskId) {
+		BackgroundThread.instance().postBackground(() -> {
+			if (drawTaskId != lastDrawTaskId || currentAnimation != null || invalidImages || !isBookLoaded() || currentImageViewer != null)
+				return;
+			if (getPageHeaderState() != mPageHeaderState)
+				return; // images will be dropped on next draw anyway
+			if (prefetchNextPage())
+				schedulePagePrefetch(drawTaskId);
+		});
+	}
+
+	/**
+	 * Render first missing page around current one.
+	 * @return true if page has been rendered and there may be more pages to prefetch
+	 */
+	private boolean prefetchNextPage() {
+		BackgroundThread.ensureBackground();
+		PositionProperties currpos = doc.getPositionProps(null, false);
+		if (currpos == null || currpos.pageMode == 0 || mCurrentPageInfo == null)
+			return false;
+		int maxPages = getMaxCachedPages();
+		if (maxPages <= 0)
+			return false;
+		int pagesPerScreen = currpos.pageMode;
+		int ahead = Math.min(mPageCacheAhead, maxPages);
+		int behind = Math.min(mPageCacheBehind, maxPages - ahead);
+		for (int i = 1; i <= ahead + behind; i++) {
+			// pages in reading direction first
+			int screens = i <= ahead ? i * mReadingDirection : -(i - ahead) * mReadingDirection;
+			int pageNumber = currpos.pageNumber + screens * pagesPerScreen;
+			if (pageNumber < 0 || pageNumber >= currpos.pageCount || isPageCached(pageNumber))
+				continue;
+			// page is drawn by number, current position is not changed
+			BitmapInfo bi = new BitmapInfo();
+			bi.bitmap = factory.get(internalDX, internalDY);
+			doc.setBatteryState(mBatteryState);
+			bi.position = doc.getPageImageAt(bi.bitmap, pageNumber);
+			if (bi.position == null) {
+				bi.recycle();
+				return false;
+			}
+			mPageCache.add(bi);
+			trimPageCache();
+			return true;
+		}
+		return false;
+	}
+
 	/**
 	 * Prepare and cache page image.
 	 * Cache is represented by two slots: mCurrentPageInfo and mNextPageInfo.
@@ -3294,14 +3607,18 @@ public class ReaderView implements android.view.SurfaceHolder.Callback, Settings
 //				Log.d("cr3", "stack trace", e);
 //			}
 		//}
-		if (invalidImages) {
+		// images with outdated clock or battery level in page header aren't reused
+		long pageHeaderState = getPageHeaderState();
+		if (invalidImages || pageHeaderState != mPageHeaderState) {
 			if (mCurrentPageInfo != null)
 				mCurrentPageInfo.recycle();
 			mCurrentPageInfo = null;
 			if (mNextPageInfo != null)
 				mNextPageInfo.recycle();
 			mNextPageInfo = null;
+			clearPageCache();
 			invalidImages = false;
+			mPageHeaderState = pageHeaderState;
 		}
 
 		if (internalDX == 0 || internalDY == 0) {
@@ -3344,6 +3661,20 @@ public class ReaderView implements android.view.SurfaceHolder.Callback, Settings
 			currposBitmap = mNextPageInfo;
 		if (offset == 0) {
 			// Current page requested
+			if (isPageView) {
+				if (mLastPageNumber >= 0 && currpos.pageNumber != mLastPageNumber)
+					mReadingDirection = currpos.pageNumber > mLastPageNumber ? 1 : -1;
+				mLastPageNumber = currpos.pageNumber;
+			}
+			if (currposBitmap == null) {
+				BitmapInfo cached = takeCachedPage(currpos);
+				if (cached != null) {
+					// found in page cache: blit instead of rendering
+					retirePage(mCurrentPageInfo);
+					mCurrentPageInfo = cached;
+					return mCurrentPageInfo;
+				}
+			}
 			if (currposBitmap != null) {
 				if (mNextPageInfo == currposBitmap) {
 					// reorder pages
@@ -3355,7 +3686,7 @@ public class ReaderView implements android.view.SurfaceHolder.Callback, Settings
 				return mCurrentPageInfo;
 			}
 			if (mCurrentPageInfo != null) {
-				mCurrentPageInfo.recycle();
+				retirePage(mCurrentPageInfo);
 				mCurrentPageInfo = null;
 			}
 			BitmapInfo bi = new BitmapInfo();
@@ -3382,10 +3713,18 @@ public class ReaderView implements android.view.SurfaceHolder.Callback, Settings
 					nextposBitmap = mCurrentPageInfo;
 				else if (mNextPageInfo != null && mNextPageInfo.position != null && mNextPageInfo.position.equals(nextpos))
 					nextposBitmap = mNextPageInfo;
+				if (nextposBitmap == null) {
+					BitmapInfo cached = takeCachedPage(nextpos);
+					if (cached != null) {
+						// found in page cache, move it to mNextPageInfo
+						retirePage(mNextPageInfo);
+						mNextPageInfo = cached;
+						nextposBitmap = cached;
+					}
+				}
 				if (nextposBitmap == null) {
 					// existing image not found in cache, overriding mNextPageInfo
-					if (mNextPageInfo != null)
-						mNextPageInfo.recycle();
+					retirePage(mNextPageInfo);
 					mNextPageInfo = null;
 					BitmapInfo bi = new BitmapInfo();
 					bi.position = nextpos;
@@ -3472,6 +3811,7 @@ public class ReaderView implements android.view.SurfaceHolder.Callback, Settings
 			bi = preparePageImage(0);
 			if (bi != null) {
 				bookView.draw(isPartially);
+				schedulePagePrefetch(id);
 			}
 		}
 
@@ -3574,6 +3914,7 @@ public class ReaderView implements android.view.SurfaceHolder.Callback, Settings
 					internalDY = requestedHeight;
 					log.d("ResizeTask: resizeInternal(" + internalDX + "," + internalDY + ")");
 					doc.resize(internalDX, internalDY);
+					clearPageCache();
 //	    		        if ( mOpened ) {
 //	    					log.d("ResizeTask: done, drawing page");
 //	    			        drawPage();
@@ -5095,6 +5436,8 @@ public class ReaderView implements android.view.SurfaceHolder.Callback, Settings
 					log.d("LoadDocument task: no size defined, resizing using widget size");
 					doc.resize(internalDX, internalDY);
 				}
+				clearPageCache();
+				mLastPageNumber = -1;
 				preparePageImage(0);
 				log.v("updating loaded book info");
 				updateLoadedBookInfo();
@@ -5522,7 +5865,8 @@ public class ReaderView implements android.view.SurfaceHolder.Callback, Settings
 			if (lastSavedBookmark == null || !lastSavedBookmark.getStartPos().equals(bmk.getStartPos())) {
 				if (!Services.isStopped()) {
 					Services.getHistory().updateRecentDir();
-					mActivity.getDB().saveBookInfo(mBookInfo);
+					// only position is changed, bookmark changes are saved when they are made
+					mActivity.getDB().saveLastPosition(mBookInfo);
 					mActivity.getDB().flush();
 					lastSavedBookmark = bmk;
 				}
@@ -5548,7 +5892,7 @@ public class ReaderView implements android.view.SurfaceHolder.Callback, Settings
 				mBookInfo.setLastPosition(bmk);
 			if (saveToDB) {
 				Services.getHistory().updateRecentDir();
-				mActivity.getDB().saveBookInfo(mBookInfo);
+				mActivity.getDB().saveLastPosition(mBookInfo);
 				mActivity.getDB().flush();
 			}
 		}
@@ -5587,9 +5931,11 @@ public class ReaderView implements android.view.SurfaceHolder.Callback, Settings
 				BackgroundThread.ensureBackground();
 				if (mOpened) {
 					mOpened = false;
-					log.i("ReaderView().close() : closing current document");
+					log.i("ReaderView().close() : closing current document, " + doc.getPositionCacheStats());
 					doc.doCommand(ReaderCommand.DCMD_CLOSE_BOOK.nativeId, 0);
 				}
+				clearPageCache();
+				mLastPageNumber = -1;
 			}
 
 			public void done() {
@@ -5921,6 +6267,71 @@ public class ReaderView implements android.view.SurfaceHolder.Callback, Settings
 		});
 	}
 
+	/**
+	 * Select sentence at given position, e.g. to highlight sentence being spoken.
+	 * @param startPos is xpointer of sentence start
+	 * @param callback is called in GUI thread
+	 */
+	public void selectSentence(final String startPos, final MoveSelectionCallback callback) {
+		post(new Task() {
+			private boolean res;
+			private Selection selection = new Selection();
+
+			@Override
+			public void work() throws Exception {
+				res = doc.selectSentence(startPos, selection);
+			}
+
+			@Override
+			public void done() {
+				clearImageCache();
+				surface.invalidate();
+				drawPage();
+				if (res)
+					callback.onNewSelection(selection);
+				else
+					callback.onFail();
+			}
+
+			@Override
+			public void fail(Exception e) {
+				callback.onFail();
+			}
+		});
+	}
+
+	public interface SentencesCallback {
+		// sentences are read, empty array if end of document is reached, null on error
+		void onSentences(Selection[] sentences);
+	}
+
+	/**
+	 * Read sentences following the sentence at given position in one engine call, without moving selection.
+	 * @param startPos is xpointer of sentence to start after
+	 * @param count is maximum number of sentences to read
+	 * @param callback is called in GUI thread
+	 */
+	public void getNextSentences(final String startPos, final int count, final SentencesCallback callback) {
+		post(new Task() {
+			private Selection[] sentences;
+
+			@Override
+			public void work() throws Exception {
+				sentences = doc.getNextSentences(startPos, count);
+			}
+
+			@Override
+			public void done() {
+				callback.onSentences(sentences);
+			}
+
+			@Override
+			public void fail(Exception e) {
+				callback.onSentences(null);
+			}
+		});
+	}
+
 	private void showSwitchProfileDialog() {
 		SwitchProfileDialog dlg = new SwitchProfileDialog(mActivity, this);
 		dlg.show();
@@ -1,5 +1,6 @@
 package org.coolreader.crengine;
 
+import android.content.ComponentCallbacks2;
 import android.util.Log;
 
 import org.coolreader.R;
@@ -9,17 +10,18 @@ import org.coolreader.plugins.OnlineStoreWrapper;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
-import java.util.zip.ZipEntry;
 
 public class Scanner extends FileInfoChangeSource {
 	
 	public static final Logger log = L.create("sc");
 	
-	HashMap<String, FileInfo> mFileList = new HashMap<>();
+	final FileInfoRegistry mFileList = new FileInfoRegistry(FileInfoRegistry.DEFAULT_MAX_SIZE);
 //	ArrayList<FileInfo> mFilesForParsing = new ArrayList<FileInfo>();
 	FileInfo mRoot;
 	
@@ -45,14 +47,14 @@ public class Scanner extends FileInfoChangeSource {
 		try {
 			File zf = new File(zip.pathname);
 			long arcsize = zf.length();
-			//ZipFile file = new ZipFile(zf);
-			ArrayList<ZipEntry> entries = engine.getArchiveItems(zip.pathname);
+			ArchiveIndex index = ArchiveIndex.get(zip.pathname);
+			if ( index==null )
+				return null;
 			ArrayList<FileInfo> items = new ArrayList<FileInfo>();
-			//for ( Enumeration<?> e = file.entries(); e.hasMoreElements(); ) {
-			for ( ZipEntry entry : entries ) {
-				if ( entry.isDirectory() )
+			for ( int i = 0; i < index.size(); i++ ) {
+				if ( index.isDirectory(i) )
 					continue;
-				String name = entry.getName();
+				String name = index.getName(i);
 				FileInfo item = new FileInfo();
 				item.format = DocumentFormat.byExtension(name);
 				if ( item.format==null )
@@ -60,8 +62,8 @@ public class Scanner extends FileInfoChangeSource {
 				File f = new File(name);
 				item.filename = f.getName();
 				item.path = f.getPath();
-				item.pathname = entry.getName();
-				item.size = entry.getSize();
+				item.pathname = name;
+				item.size = index.getSize(i);
 				//item.createTime = entry.getTime();
 				item.createTime = zf.lastModified();
 				item.arcname = zip.pathname;
@@ -232,6 +234,17 @@ public class Scanner extends FileInfoChangeSource {
 		void onComplete(ScanControl scanControl);
 	}
 
+	public FileInfoRegistry.Stats getFileRegistryStats() {
+		return mFileList.getStats();
+	}
+
+	public void onTrimMemory(int level) {
+		log.i("onTrimMemory(" + level + "): " + mFileList.getStats());
+		if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+			mFileList.clear();
+		}
+	}
+
 	/**
 	 * Call this method (in GUI thread) to update views if directory content is changed outside.
 	 * @param dir is directory with changed content
@@ -240,6 +253,11 @@ public class Scanner extends FileInfoChangeSource {
 		log.v("onDirectoryContentChanged(" + dir.getPathName() + ")");
 		onChange(dir, false);
 	}
+
+	private void onDirectoriesContentChanged(Collection<FileInfo> dirs) {
+		log.v("onDirectoriesContentChanged(" + dirs.size() + " dirs)");
+		onChanges(dirs);
+	}
 	
 	/**
 	 * For all files in directory, retrieve metadata from DB or scan and save into DB.
@@ -319,50 +337,26 @@ public class Scanner extends FileInfoChangeSource {
 				readyCallback.run();
 				return;
 			}
-			// scan files in Background thread,
-			// update CRC32 in Background thread
-			BackgroundThread.instance().postBackground(() -> {
-				// Background thread
-				final ArrayList<FileInfo> filesForSave1 = new ArrayList<>();
-				try {
-					int count1 = filesForParsing.size();
-					int count2 = filesForCRC32Update.size();
-					int count = count1 + count2;
-					for ( int i=0; i<count1; i++ ) {
-						if (control.isStopped())
-							break;
-						progress.setProgress((i + count) * 10000 / (2*count));
-						FileInfo item = filesForParsing.get(i);
-						if (engine.scanBookProperties(item))
-							filesForSave1.add(item);
-					}
-					for ( int i=0; i<count2; i++ ) {
-						if (control.isStopped())
-							break;
-						progress.setProgress((i + count) * 10000 / (2*count));
-						FileInfo item = filesForCRC32Update.get(i);
-						if (Engine.updateFileCRC32(item))
-							filesForSave1.add(item);
-					}
-				} catch (Exception e) {
-					L.e("Exception while scanning", e);
-				}
-				progress.hide();
-				// jump to GUI thread
-				BackgroundThread.instance().postGUI(() -> {
+			// scan files and update CRC32 in worker threads, save results by batches
+			BookScanExecutor.instance().scan(engine, filesForParsing, filesForCRC32Update, control, progress, new BookScanExecutor.ScanListener() {
+				@Override
+				public void onBatchScanned(ArrayList<FileInfo> items) {
 					// GUI thread
 					try {
-						if (filesForSave1.size() > 0) {
-							db.saveFileInfos(filesForSave1);
-						}
-						for (FileInfo file : filesForSave1)
+						db.saveFileInfos(items);
+						for (FileInfo file : items)
 							baseDir.setFile(file);
-					} catch (Exception e ) {
+					} catch (Exception e) {
 						L.e("Exception while scanning", e);
 					}
+				}
+
+				@Override
+				public void onScanFinished() {
+					// GUI thread
 					// call finish handler
 					readyCallback.run();
-				});
+				}
 			});
 		});
 	}
@@ -376,6 +370,23 @@ public class Scanner extends FileInfoChangeSource {
 	 * @param scanControl is to stop long scanning
 	 */
 	public void scanDirectory(final CRDBService.LocalBinder db, final FileInfo baseDir, final Runnable initialUpdateCallback, final ScanCompleteListener readyListener, final boolean recursiveScan, final ScanControl scanControl) {
+		if (!recursiveScan) {
+			scanDirectory(db, baseDir, initialUpdateCallback, readyListener, false, null, scanControl);
+			return;
+		}
+		// fingerprints of scanned directories are flushed once per scan
+		scanDirectory(db, baseDir, initialUpdateCallback, control -> {
+			db.flush();
+			readyListener.onComplete(control);
+		}, true, null, scanControl);
+	}
+
+	/**
+	 * Scan single directory for dir and file properties in background thread.
+	 * @param savedFingerprint is fingerprint of directory saved after its last scan, to skip scanning of files
+	 *                         if directory is not changed since then; null to scan files anyway
+	 */
+	private void scanDirectory(final CRDBService.LocalBinder db, final FileInfo baseDir, final Runnable initialUpdateCallback, final ScanCompleteListener readyListener, final boolean recursiveScan, final FolderFingerprint savedFingerprint, final ScanControl scanControl) {
 		// Call in GUI thread only!
 		BackgroundThread.ensureGUI();
 
@@ -389,55 +400,74 @@ public class Scanner extends FileInfoChangeSource {
 				readyListener.onComplete(scanControl);
 				return;
 			}
+			final FolderFingerprint fingerprint = FolderFingerprint.of(baseDir);
+			if (fingerprint.equals(savedFingerprint)) {
+				// files are not touched: directory is left not scanned,
+				// and its files are looked up in DB when it's shown
+				log.v("directory is not changed since last scan, skipping files: " + baseDir.getPathName());
+				onDirectoryFilesScanned(db, baseDir, readyListener, recursiveScan, scanControl);
+				return;
+			}
 			Engine.ProgressControl progress = engine.createProgress(recursiveScan ? 0 : R.string.progress_scanning, scanControl);
 			scanDirectoryFiles(db, baseDir, scanControl, progress, () -> {
 				// GUI thread
 				onDirectoryContentChanged(baseDir);
-				try {
-					if (scanControl.isStopped()) {
-						// scan is stopped
-						readyListener.onComplete(scanControl);
-					} else {
-						baseDir.isScanned = true;
+				if (scanControl.isStopped()) {
+					// scan is stopped
+					readyListener.onComplete(scanControl);
+					return;
+				}
+				baseDir.isScanned = true;
+				db.saveFolderFingerprint(baseDir.getPathName(), fingerprint);
+				onDirectoryFilesScanned(db, baseDir, readyListener, recursiveScan, scanControl);
+			});
+		});
+	}
 
-						if ( recursiveScan ) {
-							if (scanControl.isStopped()) {
-								// scan is stopped
-								readyListener.onComplete(scanControl);
-								return;
-							}
-							// make list of subdirectories to scan
-							final ArrayList<FileInfo> dirsToScan = new ArrayList<>();
-							for ( int i=baseDir.dirCount()-1; i>=0; i-- ) {
-								File dir = new File(baseDir.getDir(i).getPathName());
-								if (!engine.getPathCorrector().isRecursivePath(dir))
-									dirsToScan.add(baseDir.getDir(i));
-							}
-							final ScanCompleteListener dirIterator = new ScanCompleteListener() {
-								@Override
-								public void onComplete(ScanControl scanControl) {
-									// process next directory from list
-									if (dirsToScan.size() == 0 || scanControl.isStopped()) {
-										readyListener.onComplete(scanControl);
-										return;
-									}
-									final FileInfo dir = dirsToScan.get(0);
-									dirsToScan.remove(0);
-									final ScanCompleteListener listener = this;
-									BackgroundThread.instance().postGUI(() -> scanDirectory(db, dir, null, listener, true, scanControl));
-								}
-							};
-							dirIterator.onComplete(scanControl);
-						} else {
+	private void onDirectoryFilesScanned(final CRDBService.LocalBinder db, final FileInfo baseDir, final ScanCompleteListener readyListener, final boolean recursiveScan, final ScanControl scanControl) {
+		try {
+			if ( !recursiveScan || scanControl.isStopped() ) {
+				readyListener.onComplete(scanControl);
+				return;
+			}
+			// make list of subdirectories to scan
+			final ArrayList<FileInfo> dirsToScan = new ArrayList<>();
+			for ( int i=baseDir.dirCount()-1; i>=0; i-- ) {
+				File dir = new File(baseDir.getDir(i).getPathName());
+				if (!engine.getPathCorrector().isRecursivePath(dir))
+					dirsToScan.add(baseDir.getDir(i));
+			}
+			if (dirsToScan.size() == 0) {
+				readyListener.onComplete(scanControl);
+				return;
+			}
+			// load saved fingerprints of all subdirectories with single query
+			final ArrayList<String> dirNames = new ArrayList<>(dirsToScan.size());
+			for (FileInfo dir : dirsToScan)
+				dirNames.add(dir.getPathName());
+			db.loadFolderFingerprints(dirNames, fingerprints -> {
+				// GUI thread
+				final ScanCompleteListener dirIterator = new ScanCompleteListener() {
+					@Override
+					public void onComplete(ScanControl scanControl) {
+						// process next directory from list
+						if (dirsToScan.size() == 0 || scanControl.isStopped()) {
 							readyListener.onComplete(scanControl);
+							return;
 						}
+						final FileInfo dir = dirsToScan.get(0);
+						dirsToScan.remove(0);
+						final ScanCompleteListener listener = this;
+						final FolderFingerprint savedFingerprint = fingerprints.get(dir.getPathName());
+						BackgroundThread.instance().postGUI(() -> scanDirectory(db, dir, null, listener, true, savedFingerprint, scanControl));
 					}
-				} catch (Exception e) {
-					// treat as finished
-					readyListener.onComplete(scanControl);
-				}
+				};
+				dirIterator.onComplete(scanControl);
 			});
-		});
+		} catch (Exception e) {
+			// treat as finished
+			readyListener.onComplete(scanControl);
+		}
 	}
 	
 	private boolean addRoot( String pathname, int resourceId, boolean listIt) {
@@ -752,7 +782,9 @@ public class Scanner extends FileInfoChangeSource {
 			FileInfo dir = new FileInfo(root);
 			dir.parent = root.parent;
 			dir.setItems(root);
-			listSubtreeBg_impl(dir, maxDepth, scanControl);
+			DirectoryChangeBatch changes = new DirectoryChangeBatch();
+			listSubtreeBg_impl(dir, maxDepth, scanControl, changes);
+			changes.flush();
 			BackgroundThread.instance().postGUI(() -> {
 				// transfer scanned items from background copy to update in GUI
 				root.setItems(dir);
@@ -763,16 +795,28 @@ public class Scanner extends FileInfoChangeSource {
 		});
 	}
 
-	private boolean listSubtreeBg_impl(FileInfo dir, int maxDepth, ScanControl scanControl) {
+	private boolean listSubtreeBg_impl(FileInfo dir, int maxDepth, ScanControl scanControl, DirectoryChangeBatch changes) {
 		BackgroundThread.ensureBackground();
 		boolean fullDepthScan = true;
 		if (maxDepth <= 0 || scanControl.isStopped())
 			return false;
-		// full rescan to scan zip-files
-		boolean res = listDirectory(dir, true, true, !dir.isSpecialDir());
+		boolean res;
+		boolean changed;
+		long modTime = dir.isSpecialDir() ? 0 : new File(dir.pathname).lastModified();
+		if (dir.isListed && modTime != 0 && dir.listedTime == modTime) {
+			// no items added or removed since last listing, reuse it
+			res = true;
+			changed = false;
+		} else {
+			// full rescan to scan zip-files
+			res = listDirectory(dir, true, true, !dir.isSpecialDir());
+			changed = true;
+			// kept in directory item: it's dropped together with listing
+			dir.listedTime = res ? modTime : 0;
+		}
 		if (res) {
 			for (int i = dir.dirCount() - 1; i >= -0; i--) {
-				res = listSubtreeBg_impl(dir.getDir(i), maxDepth - 1, scanControl);
+				res = listSubtreeBg_impl(dir.getDir(i), maxDepth - 1, scanControl, changes);
 				if (!res) {
 					fullDepthScan = false;
 				}
@@ -781,28 +825,53 @@ public class Scanner extends FileInfoChangeSource {
 			}
 			if (fullDepthScan && mHideEmptyDirs) {
 				if (dir.removeEmptyDirs()) {
-					BackgroundThread.instance().postGUI(() -> {
-						// make a copy to update in GUI
-						FileInfo cp = new FileInfo(dir);
-						cp.assign(dir);
-						cp.parent = dir.parent;
-						cp.setItems(dir);
-						onDirectoryContentChanged(cp);
-					});
+					// removed dirs are not visited by next walk, list this dir again to find them if they get books
+					dir.listedTime = 0;
+					changed = true;
 				}
 			}
 		}
-		BackgroundThread.instance().postGUI(() -> {
-			// make a copy to update in GUI
-			FileInfo cp = new FileInfo(dir);
-			cp.assign(dir);
-			cp.parent = dir.parent;
-			cp.setItems(dir);
-			onDirectoryContentChanged(cp);
-		});
+		if (changed)
+			changes.add(dir);
 		return res;
 	}
 
+	private static final long DIRECTORY_CHANGE_BATCH_INTERVAL = 300;
+
+	/**
+	 * Collects directories changed in background thread to notify GUI in batches, not more often than once per interval.
+	 */
+	private class DirectoryChangeBatch {
+		private final LinkedHashMap<String, FileInfo> pending = new LinkedHashMap<>();
+		private long lastFlushTime = Utils.timeStamp();
+
+		void add(FileInfo dir) {
+			pending.put(dir.getPathName(), dir);
+			if (Utils.timeInterval(lastFlushTime) >= DIRECTORY_CHANGE_BATCH_INTERVAL)
+				flush();
+		}
+
+		void flush() {
+			lastFlushTime = Utils.timeStamp();
+			if (pending.isEmpty())
+				return;
+			final ArrayList<FileInfo> dirs = new ArrayList<>(pending.values());
+			pending.clear();
+			BackgroundThread.instance().postGUI(() -> {
+				ArrayList<FileInfo> copies = new ArrayList<>(dirs.size());
+				for (FileInfo dir : dirs) {
+					// make a copy to update in GUI
+					FileInfo cp = new FileInfo(dir);
+					cp.assign(dir);
+					cp.parent = dir.parent;
+					cp.setItems(dir);
+					copies.add(cp);
+				}
+				onDirectoriesContentChanged(copies);
+			});
+		}
+	}
+
 	public FileInfo setSearchResults( FileInfo[] results ) {
 		FileInfo existingResults = null;
 		for ( int i=0; i<mRoot.dirCount(); i++ ) {
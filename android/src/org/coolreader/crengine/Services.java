@@ -4,6 +4,8 @@ import android.os.Handler;
 
 import org.coolreader.genrescollection.GenresCollection;
 
+import java.io.File;
+
 public class Services {
 
 	public static final Logger log = L.create("sv");
@@ -70,6 +72,7 @@ public class Services {
 		mHistory = new History(mScanner);
 		mScanner.setDirScanEnabled(activity.settings().getBool(ReaderView.PROP_APP_BOOK_PROPERTY_SCAN_ENABLED, true));
 		mCoverpageManager = new CoverpageManager();
+		mCoverpageManager.setThumbnailCacheDir(new File(activity.getCacheDir(), "coverpages"));
 
 		mFSFolders = new FileSystemFolders(mScanner);
 
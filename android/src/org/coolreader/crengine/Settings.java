@@ -191,6 +191,9 @@ public interface Settings {
     String PROP_APP_TTS_VOICE = "app.tts.voice";
 
     String PROP_APP_VIEW_ANIM_DURATION ="app.view.anim.duration";
+    String PROP_APP_PAGE_BITMAP_POOL_SIZE = "app.view.page.bitmap.pool.size";	// free page bitmaps kept for reuse
+    String PROP_APP_PAGE_CACHE_BEHIND = "app.view.page.cache.behind";	// page images kept before current page
+    String PROP_APP_PAGE_CACHE_AHEAD = "app.view.page.cache.ahead";		// page images prepared after current page
 
     // available options for PROP_APP_SELECTION_ACTION setting
     public static final int SELECTION_ACTION_TOOLBAR = 0;
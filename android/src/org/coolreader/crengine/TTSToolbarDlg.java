@@ -36,6 +36,8 @@ import org.coolreader.tts.TTSControlServiceAccessor;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
@@ -45,6 +47,8 @@ public class TTSToolbarDlg implements Settings {
 
 	private static final String CR3_UTTERANCE_ID = "cr3UtteranceId";
 	private static final int MAX_CONTINUOUS_ERRORS = 3;
+	// number of sentences queued to TTS engine ahead, including currently spoken one
+	private static final int SENTENCES_LOOKAHEAD = 6;
 
 	private final PopupWindow mWindow;
 	private final CoolReader mCoolReader;
@@ -70,6 +74,13 @@ public class TTSToolbarDlg implements Settings {
 	private String mForcedLanguage;
 	private String mForcedVoice;
 	private int mTTSSpeedPercent = 50;		// 50% (normal)
+	// utterances queued to TTS engine in order of speaking, accessed in GUI thread only
+	private final LinkedHashMap<String, Selection> mQueuedUtterances = new LinkedHashMap<>();
+	private final boolean mLookaheadSupported = Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH_MR1;
+	private int mUtteranceCounter;
+	private int mSpeakGeneration;
+	private boolean mLookaheadInProgress;
+	private boolean mEndOfDocument;
 
 
 	BroadcastReceiver mTTSControlButtonReceiver = new BroadcastReceiver() {
@@ -164,7 +175,7 @@ public class TTSToolbarDlg implements Settings {
 				log.d("onNewSelection: " + selection.text);
 				mCurrentSelection = selection;
 				if ( isSpeaking )
-					say(mCurrentSelection);
+					speakFrom(mCurrentSelection);
 			}
 			
 			@Override
@@ -176,18 +187,140 @@ public class TTSToolbarDlg implements Settings {
 		});
 	}
 
-	private void say( Selection selection ) {
+	private void say( Selection selection, String utteranceId ) {
 		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
 			Bundle bundle = new Bundle();
 			bundle.putInt(TextToSpeech.Engine.KEY_PARAM_STREAM, AudioManager.STREAM_MUSIC);
-			mTTS.speak(selection.text, TextToSpeech.QUEUE_ADD, bundle, CR3_UTTERANCE_ID);
+			mTTS.speak(selection.text, TextToSpeech.QUEUE_ADD, bundle, utteranceId);
 		} else {
 			HashMap<String, String> params = new HashMap<String, String>();
 			params.put(TextToSpeech.Engine.KEY_PARAM_STREAM, String.valueOf(AudioManager.STREAM_MUSIC));
-			params.put(TextToSpeech.Engine.KEY_PARAM_UTTERANCE_ID, CR3_UTTERANCE_ID);
+			params.put(TextToSpeech.Engine.KEY_PARAM_UTTERANCE_ID, utteranceId);
 			mTTS.speak(selection.text, TextToSpeech.QUEUE_ADD, params);
 		}
+	}
+
+	/**
+	 * Start speaking from selected sentence, following sentences are queued ahead to avoid gaps between them.
+	 */
+	private void speakFrom( Selection selection ) {
+		mSpeakGeneration++;
+		mQueuedUtterances.clear();
+		mLookaheadInProgress = false;
+		mEndOfDocument = false;
+		enqueue(selection);
 		runInTTSControlService(tts -> tts.notifyPlay(mBookTitle, selection.text));
+		requestLookahead();
+	}
+
+	private void enqueue( Selection selection ) {
+		String utteranceId = CR3_UTTERANCE_ID + (++mUtteranceCounter);
+		mQueuedUtterances.put(utteranceId, selection);
+		say(selection, utteranceId);
+	}
+
+	/**
+	 * Read next sentences from document in one engine call and queue them to TTS engine.
+	 */
+	private void requestLookahead() {
+		if ( !mLookaheadSupported || !isSpeaking || mLookaheadInProgress || mEndOfDocument )
+			return;
+		int count = SENTENCES_LOOKAHEAD - mQueuedUtterances.size();
+		// top up in batches, not after each sentence
+		if ( count < SENTENCES_LOOKAHEAD / 2 )
+			return;
+		Selection last = null;
+		for (Selection selection : mQueuedUtterances.values())
+			last = selection;
+		if ( last == null || last.startPos == null )
+			return;
+		mLookaheadInProgress = true;
+		final int generation = mSpeakGeneration;
+		final String lastPos = last.startPos;
+		mReaderView.getNextSentences(lastPos, count, sentences -> {
+			if ( generation != mSpeakGeneration )
+				return;
+			mLookaheadInProgress = false;
+			if ( !isSpeaking )
+				return;
+			if ( sentences == null ) {
+				// not end of document: retry when next utterance is done,
+				// or continue from highlighted sentence if nothing is left to speak
+				log.w("cannot read sentences after " + lastPos);
+				if ( mQueuedUtterances.isEmpty() )
+					moveSelection( ReaderCommand.DCMD_SELECT_NEXT_SENTENCE );
+				return;
+			}
+			if ( sentences.length == 0 ) {
+				mEndOfDocument = true;
+				if ( mQueuedUtterances.isEmpty() )
+					stop();
+				return;
+			}
+			for (Selection selection : sentences)
+				enqueue(selection);
+		});
+	}
+
+	private void onUtteranceStart( String utteranceId ) {
+		Selection selection = mQueuedUtterances.get(utteranceId);
+		if ( selection == null || !isSpeaking )
+			return;
+		// all utterances queued before this one are done
+		Iterator<String> it = mQueuedUtterances.keySet().iterator();
+		while ( it.hasNext() && !it.next().equals(utteranceId) )
+			it.remove();
+		if ( selection != mCurrentSelection )
+			moveHighlight(selection);
+	}
+
+	private void onUtteranceDone( String utteranceId ) {
+		if (null != mOnStopRunnable) {
+			mOnStopRunnable.run();
+			mOnStopRunnable = null;
+			return;
+		}
+		if ( !mLookaheadSupported ) {
+			// one sentence at a time
+			if ( isSpeaking )
+				moveSelection( ReaderCommand.DCMD_SELECT_NEXT_SENTENCE );
+			return;
+		}
+		if ( mQueuedUtterances.remove(utteranceId) == null || !isSpeaking )
+			return;
+		if ( mQueuedUtterances.isEmpty() && mEndOfDocument ) {
+			stop();
+			return;
+		}
+		if ( mQueuedUtterances.isEmpty() && !mLookaheadInProgress ) {
+			// last lookahead failed, continue from highlighted sentence
+			moveSelection( ReaderCommand.DCMD_SELECT_NEXT_SENTENCE );
+			return;
+		}
+		// if queue is empty, sentences being read will be spoken as soon as they are ready
+		requestLookahead();
+	}
+
+	/**
+	 * Move highlight to sentence which is started to be spoken.
+	 * Sentence is selected by its position, so highlight doesn't drift if start of some utterance is not reported.
+	 */
+	private void moveHighlight( final Selection spoken ) {
+		mCurrentSelection = spoken;
+		runInTTSControlService(tts -> tts.notifyPlay(mBookTitle, spoken.text));
+		mReaderView.selectSentence(spoken.startPos, new ReaderView.MoveSelectionCallback() {
+			@Override
+			public void onNewSelection(Selection selection) {
+				// keep selection with coordinates filled by engine
+				if ( mCurrentSelection == spoken )
+					mCurrentSelection = selection;
+			}
+
+			@Override
+			public void onFail() {
+				log.w("cannot move highlight to " + spoken.startPos);
+			}
+		});
 	}
 
 	private void start() {
@@ -195,7 +328,7 @@ public class TTSToolbarDlg implements Settings {
 			return;
 		startMotionWatchdog();
 		isSpeaking = true;
-		say(mCurrentSelection);
+		speakFrom(mCurrentSelection);
 	}
 
 	private void startMotionWatchdog(){
@@ -220,6 +353,10 @@ public class TTSToolbarDlg implements Settings {
 	private void stop(Runnable runnable) {
 		isSpeaking = false;
 		mOnStopRunnable = runnable;
+		// ignore sentences being read and callbacks of flushed utterances
+		mSpeakGeneration++;
+		mQueuedUtterances.clear();
+		mLookaheadInProgress = false;
 		if ( mTTS.isSpeaking() ) {
 			mTTS.stop();
 		}
@@ -404,83 +541,47 @@ public class TTSToolbarDlg implements Settings {
 
 	private void setupTTSHandlers() {
 		if (null != mTTS) {
+			// TTS engine calls listeners in its own thread, utterances queue is handled in GUI thread
 			if (Build.VERSION.SDK_INT < Build.VERSION_CODES.ICE_CREAM_SANDWICH_MR1) {
-				mTTS.setOnUtteranceCompletedListener(utteranceId -> {
-					if (null != mOnStopRunnable) {
-						mOnStopRunnable.run();
-						mOnStopRunnable = null;
-					} else {
-						if ( isSpeaking )
-							moveSelection( ReaderCommand.DCMD_SELECT_NEXT_SENTENCE );
-					}
-				});
+				mTTS.setOnUtteranceCompletedListener(utteranceId ->
+						BackgroundThread.instance().executeGUI(() -> onUtteranceDone(utteranceId)));
 			} else {
 				mTTS.setOnUtteranceProgressListener(new UtteranceProgressListener() {
 					@Override
 					public void onStart(String utteranceId) {
-						// nothing...
+						BackgroundThread.instance().executeGUI(() -> onUtteranceStart(utteranceId));
 					}
 
 					@Override
 					public void onDone(String utteranceId) {
-						if (null != mOnStopRunnable) {
-							mOnStopRunnable.run();
-							mOnStopRunnable = null;
-						} else {
-							if ( isSpeaking )
-								moveSelection( ReaderCommand.DCMD_SELECT_NEXT_SENTENCE );
-						}
-						mContinuousErrors = 0;
+						BackgroundThread.instance().executeGUI(() -> {
+							mContinuousErrors = 0;
+							onUtteranceDone(utteranceId);
+						});
 					}
 
 					@Override
 					public void onError(String utteranceId) {
 						log.e("TTS error");
-						mContinuousErrors++;
-						if (mContinuousErrors > MAX_CONTINUOUS_ERRORS) {
-							BackgroundThread.instance().executeGUI(() -> {
-								toggleStartStop();
-								mCoolReader.showToast(R.string.tts_failed);
-							});
-						} else {
-							if (null != mOnStopRunnable) {
-								mOnStopRunnable.run();
-								mOnStopRunnable = null;
-							} else {
-								if ( isSpeaking )
-									moveSelection( ReaderCommand.DCMD_SELECT_NEXT_SENTENCE );
-							}
-						}
+						onUtteranceError(utteranceId);
 					}
 
 					// API 21
 					@Override
 					public void onError(String utteranceId, int errorCode) {
 						log.e("TTS error, code=" + errorCode);
-						mContinuousErrors++;
-						if (mContinuousErrors > MAX_CONTINUOUS_ERRORS) {
-							BackgroundThread.instance().executeGUI(() -> {
-								toggleStartStop();
-								mCoolReader.showToast(R.string.tts_failed);
-							});
-						} else {
-							if (null != mOnStopRunnable) {
-								mOnStopRunnable.run();
-								mOnStopRunnable = null;
-							} else {
-								if ( isSpeaking )
-									moveSelection( ReaderCommand.DCMD_SELECT_NEXT_SENTENCE );
-							}
-						}
+						onUtteranceError(utteranceId);
 					}
 
 					// API 23
 					@Override
 					public void onStop(String utteranceId, boolean interrupted) {
-						if (null != mOnStopRunnable) {
-							mOnStopRunnable.run();
-							mOnStopRunnable = null;
-						}
+						BackgroundThread.instance().executeGUI(() -> {
+							if (null != mOnStopRunnable) {
+								mOnStopRunnable.run();
+								mOnStopRunnable = null;
+							}
+						});
 					}
 
 					// API 24
@@ -500,6 +601,19 @@ public class TTSToolbarDlg implements Settings {
 		}
 	}
 
+	private void onUtteranceError(String utteranceId) {
+		BackgroundThread.instance().executeGUI(() -> {
+			mContinuousErrors++;
+			if (mContinuousErrors > MAX_CONTINUOUS_ERRORS) {
+				toggleStartStop();
+				mCoolReader.showToast(R.string.tts_failed);
+			} else {
+				// skip failed sentence, following ones are already queued
+				onUtteranceDone(utteranceId);
+			}
+		});
+	}
+
 	@SuppressLint("ClickableViewAccessibility")
 	public TTSToolbarDlg(CoolReader coolReader, ReaderView readerView, TextToSpeech tts) {
 		mCoolReader = coolReader;
@@ -0,0 +1,346 @@
+package org.coolreader.crengine;
+
+import android.os.Process;
+
+import java.util.ArrayList;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Executes background tasks in named lanes.
+ *
+ * RENDER lane is the single engine thread of {@link BackgroundThread}: tasks are serialized
+ * and executed in order of posting, as required by DocView. Other lanes are pools of worker threads,
+ * so their tasks don't wait in the engine thread queue.
+ * In pool lanes, tasks with higher priority go first, tasks of the same priority are executed in order of posting
+ * (or in reverse order, for lanes with newestFirst flag set).
+ * Native calls from pool lanes are still serialized by Engine.lock, which is also the DocView mutex:
+ * book parsing and native coverpage drawing wait for long engine operations (document loading,
+ * swapping to cache file). Only pure Java work, like file IO and CRC32 calculation, runs in parallel with them.
+ */
+public class TaskExecutor {
+
+	public static final Logger log = L.create("te");
+
+	public static final int PRIORITY_LOW = -10;
+	public static final int PRIORITY_NORMAL = 0;
+	public static final int PRIORITY_HIGH = 10;
+
+	private static final int KEEP_ALIVE_SECONDS = 10;
+
+	public enum Lane {
+		RENDER("render", 1, false),
+		IO("io", 2, false),
+		// book parsing holds Engine.lock for the whole native call, more workers would only wait for it
+		SCAN("scan", 1, false),
+		// most recently requested covers are for items currently shown, so they go first
+		COVER("cover", 4, true);
+
+		public final String name;
+		public final int maxWorkers;
+		public final boolean newestFirst;
+
+		Lane(String name, int maxWorkers, boolean newestFirst) {
+			this.name = name;
+			this.maxWorkers = maxWorkers;
+			this.newestFirst = newestFirst;
+		}
+	}
+
+	/**
+	 * Allows to cancel tasks which are not started yet; running tasks may check it to stop early.
+	 */
+	public static class CancellationToken {
+		private volatile boolean cancelled;
+
+		public void cancel() {
+			cancelled = true;
+		}
+
+		public boolean isCancelled() {
+			return cancelled;
+		}
+	}
+
+	/**
+	 * May be implemented by task to change its priority while it's queued,
+	 * call {@link #reorder(Lane)} after priority change.
+	 */
+	public interface Prioritized {
+		int getPriority();
+	}
+
+	/**
+	 * Snapshot of lane statistics.
+	 */
+	public static class LaneStats {
+		public final String lane;
+		public final long submitted;
+		public final long completed;
+		public final long cancelled;
+		public final long failed;
+		public final int queueDepth;
+		public final int maxQueueDepth;
+		public final long avgWaitMillis;
+		public final long maxWaitMillis;
+		public final long avgRunMillis;
+
+		LaneStats(String lane, long submitted, long completed, long cancelled, long failed, int queueDepth, int maxQueueDepth,
+				  long avgWaitMillis, long maxWaitMillis, long avgRunMillis) {
+			this.lane = lane;
+			this.submitted = submitted;
+			this.completed = completed;
+			this.cancelled = cancelled;
+			this.failed = failed;
+			this.queueDepth = queueDepth;
+			this.maxQueueDepth = maxQueueDepth;
+			this.avgWaitMillis = avgWaitMillis;
+			this.maxWaitMillis = maxWaitMillis;
+			this.avgRunMillis = avgRunMillis;
+		}
+
+		@Override
+		public String toString() {
+			return "Lane[" + lane + ": submitted=" + submitted + ", completed=" + completed + ", cancelled=" + cancelled
+					+ ", failed=" + failed + ", queue=" + queueDepth + " (max " + maxQueueDepth + ")"
+					+ ", wait avg/max=" + avgWaitMillis + "/" + maxWaitMillis + " ms, run avg=" + avgRunMillis + " ms]";
+		}
+	}
+
+	private static class Stats {
+		final AtomicLong submitted = new AtomicLong();
+		final AtomicLong started = new AtomicLong();
+		final AtomicLong completed = new AtomicLong();
+		final AtomicLong cancelled = new AtomicLong();
+		final AtomicLong failed = new AtomicLong();
+		final AtomicLong totalWait = new AtomicLong();
+		final AtomicLong totalRun = new AtomicLong();
+		long maxWait;
+		int maxQueueDepth;
+
+		synchronized void onSubmitted(int queueDepth) {
+			submitted.incrementAndGet();
+			if (queueDepth > maxQueueDepth)
+				maxQueueDepth = queueDepth;
+		}
+
+		synchronized void onStarted(long waitMillis) {
+			started.incrementAndGet();
+			totalWait.addAndGet(waitMillis);
+			if (waitMillis > maxWait)
+				maxWait = waitMillis;
+		}
+
+		synchronized LaneStats snapshot(String lane, int queueDepth) {
+			long n = started.get();
+			long done = completed.get() + failed.get();
+			return new LaneStats(lane, submitted.get(), completed.get(), cancelled.get(), failed.get(), queueDepth, maxQueueDepth,
+					n > 0 ? totalWait.get() / n : 0, maxWait, done > 0 ? totalRun.get() / done : 0);
+		}
+	}
+
+	private static final AtomicLong sequenceCounter = new AtomicLong();
+
+	/**
+	 * Queued task wrapper: keeps priority, order of posting and cancellation token.
+	 */
+	private static class LaneTask implements Runnable, Comparable<LaneTask> {
+		final Runnable task;
+		final int priority;
+		final CancellationToken token;
+		final Stats stats;
+		final boolean newestFirst;
+		final long sequence = sequenceCounter.incrementAndGet();
+		final long queuedAt = Utils.timeStamp();
+
+		LaneTask(Lane lane, Runnable task, int priority, CancellationToken token, Stats stats) {
+			this.task = task;
+			this.priority = priority;
+			this.token = token;
+			this.stats = stats;
+			this.newestFirst = lane.newestFirst;
+		}
+
+		int getPriority() {
+			return task instanceof Prioritized ? ((Prioritized) task).getPriority() : priority;
+		}
+
+		boolean isCancelled() {
+			return token != null && token.isCancelled();
+		}
+
+		@Override
+		public int compareTo(LaneTask other) {
+			int p1 = getPriority();
+			int p2 = other.getPriority();
+			if (p1 != p2)
+				return p1 > p2 ? -1 : 1;
+			if (sequence == other.sequence)
+				return 0;
+			return (sequence < other.sequence) != newestFirst ? -1 : 1;
+		}
+
+		@Override
+		public void run() {
+			if (isCancelled()) {
+				stats.cancelled.incrementAndGet();
+				return;
+			}
+			stats.onStarted(Utils.timeInterval(queuedAt));
+			long start = Utils.timeStamp();
+			try {
+				task.run();
+				stats.completed.incrementAndGet();
+			} catch (Throwable e) {
+				stats.failed.incrementAndGet();
+				log.e("Exception while executing task " + task, e);
+			} finally {
+				stats.totalRun.addAndGet(Utils.timeInterval(start));
+			}
+		}
+
+		@Override
+		public String toString() {
+			return task.toString();
+		}
+	}
+
+	private static volatile TaskExecutor instance;
+
+	public static TaskExecutor instance() {
+		if (instance == null) {
+			synchronized (TaskExecutor.class) {
+				if (instance == null)
+					instance = new TaskExecutor();
+			}
+		}
+		return instance;
+	}
+
+	private final Stats[] stats = new Stats[Lane.values().length];
+	private final ThreadPoolExecutor[] executors = new ThreadPoolExecutor[Lane.values().length];
+	private final AtomicInteger renderQueueDepth = new AtomicInteger();
+
+	private TaskExecutor() {
+		int cpus = Runtime.getRuntime().availableProcessors();
+		for (Lane lane : Lane.values()) {
+			stats[lane.ordinal()] = new Stats();
+			if (lane == Lane.RENDER)
+				continue;
+			int workers = Math.max(1, Math.min(lane.maxWorkers, cpus));
+			final String namePrefix = lane.name + "-";
+			final AtomicInteger threadNumber = new AtomicInteger();
+			ThreadFactory factory = r -> {
+				Thread t = new Thread(() -> {
+					Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+					r.run();
+				}, namePrefix + threadNumber.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			};
+			// PriorityBlockingQueue needs Comparable tasks, so execute() is used instead of submit()
+			ThreadPoolExecutor executor = new ThreadPoolExecutor(workers, workers, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+					new PriorityBlockingQueue<>(), factory);
+			executor.allowCoreThreadTimeOut(true);
+			executors[lane.ordinal()] = executor;
+			log.i("Using " + workers + " workers for " + lane.name + " lane");
+		}
+	}
+
+	/**
+	 * Execute task in lane with normal priority.
+	 */
+	public void execute(Lane lane, Runnable task) {
+		execute(lane, PRIORITY_NORMAL, null, task);
+	}
+
+	/**
+	 * Execute task in lane.
+	 * @param lane is lane to execute task in
+	 * @param priority is task priority, ignored for RENDER lane, where tasks are executed in order of posting
+	 * @param token allows to cancel task before it's started, may be null
+	 * @param task is task to execute
+	 */
+	public void execute(Lane lane, int priority, CancellationToken token, Runnable task) {
+		if (lane == Lane.RENDER) {
+			BackgroundThread.instance().postBackground(token != null ? () -> {
+				if (!token.isCancelled())
+					task.run();
+			} : task);
+			return;
+		}
+		Stats laneStats = stats[lane.ordinal()];
+		ThreadPoolExecutor executor = executors[lane.ordinal()];
+		executor.execute(new LaneTask(lane, task, priority, token, laneStats));
+		laneStats.onSubmitted(executor.getQueue().size());
+	}
+
+	/**
+	 * Restore queue order after priorities of queued tasks are changed, drop cancelled tasks.
+	 * @return number of dropped tasks
+	 */
+	public int reorder(Lane lane) {
+		if (lane == Lane.RENDER)
+			return 0;
+		PriorityBlockingQueue<Runnable> queue = (PriorityBlockingQueue<Runnable>) executors[lane.ordinal()].getQueue();
+		ArrayList<Runnable> tasks = new ArrayList<>();
+		queue.drainTo(tasks);
+		int dropped = 0;
+		for (Runnable r : tasks) {
+			LaneTask task = (LaneTask) r;
+			if (task.isCancelled()) {
+				task.stats.cancelled.incrementAndGet();
+				dropped++;
+			} else {
+				queue.add(task);
+			}
+		}
+		return dropped;
+	}
+
+	/**
+	 * Wrap task posted to engine thread to collect RENDER lane statistics.
+	 * Called by BackgroundThread.
+	 */
+	Runnable wrapRenderTask(final Runnable task) {
+		final Stats renderStats = stats[Lane.RENDER.ordinal()];
+		renderStats.onSubmitted(renderQueueDepth.incrementAndGet());
+		final long queuedAt = Utils.timeStamp();
+		return new Runnable() {
+			@Override
+			public void run() {
+				renderQueueDepth.decrementAndGet();
+				renderStats.onStarted(Utils.timeInterval(queuedAt));
+				long start = Utils.timeStamp();
+				try {
+					task.run();
+					renderStats.completed.incrementAndGet();
+				} catch (RuntimeException | Error e) {
+					renderStats.failed.incrementAndGet();
+					throw e;
+				} finally {
+					renderStats.totalRun.addAndGet(Utils.timeInterval(start));
+				}
+			}
+
+			@Override
+			public String toString() {
+				return task.toString();
+			}
+		};
+	}
+
+	public LaneStats getStats(Lane lane) {
+		int depth = lane == Lane.RENDER ? renderQueueDepth.get() : executors[lane.ordinal()].getQueue().size();
+		return stats[lane.ordinal()].snapshot(lane.name, depth);
+	}
+
+	public void logStats() {
+		for (Lane lane : Lane.values())
+			log.i(getStats(lane).toString());
+	}
+}
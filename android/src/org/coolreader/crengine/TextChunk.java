@@ -0,0 +1,65 @@
+package org.coolreader.crengine;
+
+/**
+ * Chunk of document plain text, filled by DocView.getTextChunk().
+ */
+public class TextChunk {
+	// plain text, paragraphs are separated by '\n'
+	public String text;
+	// xpointer of chunk start
+	public String startPos;
+	// xpointer to read next chunk from, null if end of range is reached
+	public String nextPos;
+	// offsets in text where text node fragments start (indexes of String chars)
+	public int[] offsets;
+	// xpointers of text node fragments
+	public String[] positions;
+
+	public boolean isLast() {
+		return nextPos == null;
+	}
+
+	/**
+	 * Find text fragment containing character.
+	 * @param offset is character offset in text
+	 * @return fragment index, or -1 if chunk is empty
+	 */
+	public int getFragmentIndex(int offset) {
+		int lo = 0;
+		int hi = offsets != null ? offsets.length - 1 : -1;
+		if (hi < 0)
+			return -1;
+		while (lo < hi) {
+			int mid = (lo + hi + 1) / 2;
+			if (offsets[mid] <= offset)
+				lo = mid;
+			else
+				hi = mid - 1;
+		}
+		return lo;
+	}
+
+	/**
+	 * Get xpointer of character.
+	 * @param offset is character offset in text
+	 * @return xpointer like "/body/p[3]/text().15", or null if chunk is empty
+	 */
+	public String getPosition(int offset) {
+		int index = getFragmentIndex(offset);
+		if (index < 0)
+			return null;
+		String pos = positions[index];
+		if (offset <= offsets[index])
+			return pos;
+		// offset in text node counts characters, characters out of BMP take two chars in text
+		int delta = Character.codePointCount(text, offsets[index], Math.min(offset, text.length()));
+		// position of text fragment ends with offset in text node
+		int dot = pos.lastIndexOf('.');
+		if (dot < 0)
+			return pos;
+		int nodeOffset = Utils.parseInt(pos.substring(dot + 1), -1);
+		if (nodeOffset < 0)
+			return pos;
+		return pos.substring(0, dot + 1) + (nodeOffset + delta);
+	}
+}
@@ -330,6 +330,19 @@ public class Utils {
 		return ch;
 	}
 	
+	/**
+	 * Convert string to form used for case and accent insensitive search,
+	 * the same way as matchPattern() compares characters.
+	 */
+	public static String normalizeForSearch(String text) {
+		if (text == null)
+			return null;
+		StringBuilder buf = new StringBuilder(text.length());
+		for (int i=0; i<text.length(); i++)
+			buf.append(convertCharCaseForSearch(text.charAt(i)));
+		return buf.toString();
+	}
+
 	public static boolean matchPattern(String text, String pattern) {
 		if (pattern == null)
 			return true;
@@ -10,6 +10,7 @@ import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteException;
 import android.database.sqlite.SQLiteStatement;
+import android.os.Build;
 import android.util.Log;
 
 public abstract class BaseDB {
@@ -18,9 +19,20 @@ public abstract class BaseDB {
 	public static final Logger vlog = L.create("bdb", Log.INFO);
 	
 	protected SQLiteDatabase mDB;
+	// read-only connection, used in read lane of CRDBService concurrently with writable connection
+	protected final boolean readOnly;
 	private File mFileName;
 	private boolean restoredFromBackup;
 	private boolean error = false;
+	private boolean walEnabled = false;
+
+	protected BaseDB() {
+		this(false);
+	}
+
+	protected BaseDB(boolean readOnly) {
+		this.readOnly = readOnly;
+	}
 
 	public File getFileName() {
 		return mFileName;
@@ -38,10 +50,13 @@ public abstract class BaseDB {
 		File dbFile = new File(dir, dbFileName());
 		log.i("opening DB " + dbFile);
 		mFileName = dbFile;
+		if (readOnly)
+			return openReadOnly(dbFile);
 		mDB = openDB(dbFile);
 		if (mDB == null) {
 			return false;
 		}
+		enableWAL();
 		boolean res = checkSchema();
 		if (!res) {
 			log.e("Closing DB due error while upgrade of schema: " + dbFile.getAbsolutePath());
@@ -50,9 +65,12 @@ public abstract class BaseDB {
 			if (!restoredFromBackup)
 				Utils.restoreFromBackup(dbFile);
 			mDB = openDB(dbFile);
-			res = checkSchema();
-			if (!res)
-				close();
+			if (mDB != null) {
+				enableWAL();
+				res = checkSchema();
+				if (!res)
+					close();
+			}
 		}
 		if (mDB != null) {
 			return true;
@@ -77,6 +95,52 @@ public abstract class BaseDB {
 		return false;
 	}
 
+	/**
+	 * Open existing DB for reading only: schema is not checked or upgraded,
+	 * corrupted DB is not restored from backup (it's done by writable connection).
+	 */
+	private boolean openReadOnly(File dbFile) {
+		try {
+			mDB = SQLiteDatabase.openDatabase(dbFile.getAbsolutePath(), null, SQLiteDatabase.OPEN_READONLY);
+		} catch (SQLiteException e) {
+			log.e("Error while opening DB for reading " + dbFile.getAbsolutePath());
+			mDB = null;
+			return false;
+		}
+		if (!onOpenedReadOnly()) {
+			close();
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Switch DB to write-ahead logging, so reading connections are not blocked by writing.
+	 */
+	private void enableWAL() {
+		walEnabled = false;
+		if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN)
+			return;
+		try {
+			walEnabled = mDB.enableWriteAheadLogging();
+		} catch (Exception e) {
+			log.w("Cannot enable WAL for " + mFileName + ": " + e.getMessage());
+		}
+		log.i("WAL is " + (walEnabled ? "enabled" : "disabled") + " for " + mFileName);
+	}
+
+	public boolean isWALEnabled() {
+		return mDB != null && walEnabled;
+	}
+
+	/**
+	 * Called after DB is opened for reading only.
+	 * @return false if DB cannot be used
+	 */
+	protected boolean onOpenedReadOnly() {
+		return true;
+	}
+
 	protected boolean checkSchema() {
 		try {
 			upgradeSchema();
@@ -204,6 +268,9 @@ public abstract class BaseDB {
 	 * Begin transaction, if not yet started, for faster reading.
 	 */
 	public void beginReading() {
+		// BEGIN EXCLUSIVE cannot be used on read-only connection; each query reads its own snapshot
+		if (readOnly)
+			return;
 		if (!mDB.inTransaction()) {
 			vlog.v("starting readonly transaction");
 			mDB.beginTransaction();
@@ -214,18 +281,42 @@ public abstract class BaseDB {
 	 * Rolls back transaction, if writing is not started.
 	 */
 	public void endReading() {
+		if (readOnly)
+			return;
 		if (mDB.inTransaction() && !changed) {
 			vlog.v("ending readonly transaction");
 			mDB.endTransaction();
 		}
 	}
 
+	/**
+	 * Commits transaction, if changes are made, so they become visible for reading connections.
+	 * Unlike flush(), doesn't free DB resources.
+	 */
+	public void commit() {
+		if (mDB != null && mDB.inTransaction() && changed) {
+			changed = false;
+			mDB.setTransactionSuccessful();
+			mDB.endTransaction();
+			vlog.v("committed changes");
+			onChangesCommitted();
+		}
+	}
+
+	/**
+	 * Called after changes are committed.
+	 */
+	protected void onChangesCommitted() {
+		// override it
+	}
+
 	/**
 	 * Commits or rolls back transaction, if started, and frees DB resources.
 	 * Will commit only if beginChanges() has been called. Otherwise will roll back.
 	 */
 	public void flush() {
 		if (mDB != null && mDB.inTransaction()) {
+			boolean committed = changed;
 			if (changed) {
 				changed = false;
 				mDB.setTransactionSuccessful();
@@ -234,6 +325,8 @@ public abstract class BaseDB {
 				log.i("flush: rolling back changes");
 			}
 			mDB.endTransaction();
+			if (committed)
+				onChangesCommitted();
 		}
 	}
 }
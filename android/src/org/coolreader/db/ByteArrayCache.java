@@ -1,98 +1,163 @@
 package org.coolreader.db;
 
-import java.util.ArrayList;
+import java.lang.ref.SoftReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 
+/**
+ * LRU cache of byte arrays, limited by total size of stored data.
+ *
+ * Items evicted from the main (strong) tier may be kept in an optional
+ * second tier of soft references, so they can be reclaimed by GC if memory is low.
+ */
 public class ByteArrayCache {
 
+	private static final int DEFAULT_SOFT_TIER_ITEMS = 256;
+
 	public ByteArrayCache(int maxSize) {
+		this(maxSize, 0);
+	}
+
+	/**
+	 * @param maxSize is max total size of data in strong tier, in bytes
+	 * @param maxSoftItems is max number of items in soft tier, 0 to disable it
+	 */
+	public ByteArrayCache(int maxSize, final int maxSoftItems) {
 		this.maxSize = maxSize;
+		if (maxSoftItems > 0) {
+			softTier = new LinkedHashMap<String, SoftReference<byte[]>>(16, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, SoftReference<byte[]>> eldest) {
+					return size() > maxSoftItems;
+				}
+			};
+		}
 	}
-	
+
+	public static ByteArrayCache withSoftTier(int maxSize) {
+		return new ByteArrayCache(maxSize, DEFAULT_SOFT_TIER_ITEMS);
+	}
+
 	public void put(String id, byte[] data) {
-		int index = find(id);
-		if (index >= 0) {
-			ByteArrayItem item = list.get(index);
-			if (item.data != null)
-				currentSize -= item.data.length;
-			item.data = data;
-			if (item.data != null)
-				currentSize += item.data.length;
-			moveOnTop(index);
-		} else {
-			ByteArrayItem item = new ByteArrayItem(id, data);
-			list.add(item);
-			if (item.data != null)
-				currentSize += item.data.length;
-		}
+		if (softTier != null)
+			softTier.remove(id);
+		byte[] old = map.put(id, data);
+		if (old != null)
+			currentSize -= old.length;
+		if (data != null)
+			currentSize += data.length;
 		checkSize();
 	}
-	
+
 	public byte[] get(String id) {
-		int index = find(id);
-		if (index < 0)
-			return null;
-		ByteArrayItem item = list.get(index);
-		moveOnTop(index);
-		return item.data;
-	}
-	
+		byte[] data = map.get(id);
+		if (data != null) {
+			hitCount++;
+			return data;
+		}
+		if (softTier != null) {
+			SoftReference<byte[]> ref = softTier.remove(id);
+			data = ref != null ? ref.get() : null;
+			if (data != null) {
+				// promote back to strong tier
+				softHitCount++;
+				put(id, data);
+				return data;
+			}
+		}
+		missCount++;
+		return null;
+	}
+
 	public void remove(String id) {
-		int index = find(id);
-		if (index < 0)
-			return;
-		list.remove(index);
+		byte[] old = map.remove(id);
+		if (old != null)
+			currentSize -= old.length;
+		if (softTier != null)
+			softTier.remove(id);
 	}
-	
+
 	public void clear() {
-		list.clear();
+		map.clear();
+		currentSize = 0;
+		if (softTier != null)
+			softTier.clear();
 	}
 
-	private static class ByteArrayItem {
-		public String id;
-		public byte[] data;
-		public ByteArrayItem(String id, byte[] data) {
-			this.id = id;
-			this.data = data;
-		}
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public int getCurrentSize() {
+		return currentSize;
+	}
+
+	public int getItemCount() {
+		return map.size();
+	}
+
+	public long getHitCount() {
+		return hitCount;
+	}
+
+	public long getSoftHitCount() {
+		return softHitCount;
+	}
+
+	public long getMissCount() {
+		return missCount;
+	}
+
+	public long getEvictionCount() {
+		return evictionCount;
 	}
-	
-	private int maxSize;
-	private int currentSize;
-	private ArrayList<ByteArrayItem> list = new ArrayList<ByteArrayItem>();
 
-	private int find(String id) {
-		for (int i=0; i<list.size(); i++)
-			if (list.get(i).id.equals(id))
-				return i;
-		return -1;
+	/**
+	 * @return ratio of successful lookups (in any tier), 0..1
+	 */
+	public float getHitRate() {
+		long total = hitCount + softHitCount + missCount;
+		if (total == 0)
+			return 0;
+		return (float)(hitCount + softHitCount) / total;
 	}
 
-	private void moveOnTop(int index) {
-		if (index >= list.size() - 1)
-			return; // already on top
-		ByteArrayItem item = list.remove(index);
-		list.add(item);
+	@Override
+	public String toString() {
+		return "ByteArrayCache[" + map.size() + " items, " + currentSize + "/" + maxSize + " bytes"
+				+ (softTier != null ? ", soft items: " + softTier.size() : "")
+				+ ", hits=" + hitCount + ", soft hits=" + softHitCount + ", misses=" + missCount
+				+ ", evictions=" + evictionCount + "]";
 	}
 
+	private final int maxSize;
+	private int currentSize;
+	private long hitCount;
+	private long softHitCount;
+	private long missCount;
+	private long evictionCount;
+	// access ordered: eldest entry is least recently used
+	private final LinkedHashMap<String, byte[]> map = new LinkedHashMap<String, byte[]>(16, 0.75f, true);
+	private LinkedHashMap<String, SoftReference<byte[]>> softTier;
+
 	private void checkSize() {
-		int extraSize = currentSize - maxSize;
-		if (extraSize < maxSize / 10)
+		if (currentSize <= maxSize)
 			return;
-		ArrayList<Integer> itemsToRemove = new ArrayList<Integer>(list.size() / 2);
-		for (int i=0; i<list.size() - 1; i++) {
-			ByteArrayItem item = list.get(i);
-			if (item.data == null || item.data.length == 0)
+		Iterator<Map.Entry<String, byte[]>> it = map.entrySet().iterator();
+		// always keep most recently used item, even if it's too big
+		while (currentSize > maxSize && map.size() > 1 && it.hasNext()) {
+			Map.Entry<String, byte[]> entry = it.next();
+			byte[] data = entry.getValue();
+			it.remove();
+			if (data == null)
 				continue;
-			extraSize -= item.data.length;
-			itemsToRemove.add(i);
-			if (extraSize < 0)
-				break;
-		}
-		for (int i = itemsToRemove.size() - 1; i >= 0; i--) {
-			ByteArrayItem item = list.get(itemsToRemove.get(i));
-			list.remove(itemsToRemove.get(i));
-			item.data = null; // faster GC
+			currentSize -= data.length;
+			evictionCount++;
+			if (softTier != null)
+				softTier.put(entry.getKey(), new SoftReference<byte[]>(data));
 		}
 	}
 }
@@ -13,6 +13,7 @@ import org.coolreader.crengine.Bookmark;
 import org.coolreader.crengine.DeviceInfo;
 import org.coolreader.crengine.Engine;
 import org.coolreader.crengine.FileInfo;
+import org.coolreader.crengine.FolderFingerprint;
 import org.coolreader.crengine.L;
 import org.coolreader.crengine.Logger;
 import org.coolreader.crengine.MountPathCorrector;
@@ -22,6 +23,7 @@ import org.coolreader.crengine.Utils;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Map;
 
 public class CRDBService extends Service {
 	public static final Logger log = L.create("db");
@@ -29,12 +31,17 @@ public class CRDBService extends Service {
 
     private MainDB mainDB = new MainDB();
     private CoverDB coverDB = new CoverDB();
+    // read-only instances for read lane, used only when DB is in WAL mode
+    private MainDB readMainDB = new MainDB(true);
+    private CoverDB readCoverDB = new CoverDB(coverDB);
 	
     @Override
     public void onCreate() {
     	log.i("onCreate()");
     	mThread = new ServiceThread("crdb");
     	mThread.start();
+    	mReadThread = new ServiceThread("crdb-read");
+    	mReadThread.start();
     	execTask(new OpenDatabaseTask());
     }
 
@@ -55,6 +62,7 @@ public class CRDBService extends Service {
     	log.i("onDestroy()");
     	execTask(new CloseDatabaseTask());
     	mThread.stop(5000);
+    	mReadThread.stop(5000);
     }
 
     private File getDatabaseDir() {
@@ -89,6 +97,8 @@ public class CRDBService extends Service {
 	    	if (!res) {
 	    		mainDB.close();
 	    		coverDB.close();
+	    	} else {
+	    		openReadLane(dir);
 	    	}
 	    	return res;
 	    }
@@ -106,6 +116,7 @@ public class CRDBService extends Service {
 		}
 
 		private void close() {
+			closeReadLane();
 			clearCaches();
     		mainDB.close();
     		coverDB.close();
@@ -130,11 +141,14 @@ public class CRDBService extends Service {
 			if (!res) {
 				mainDB.close();
 				coverDB.close();
+			} else {
+				openReadLane(dir);
 			}
 			return res;
 		}
 
 		private void close() {
+			closeReadLane();
 			clearCaches();
 			mainDB.close();
 			coverDB.close();
@@ -149,6 +163,10 @@ public class CRDBService extends Service {
     		this.force = force;
     		lastFlushTask = this;
     	}
+		@Override
+		protected boolean isOrderedWrite() {
+			return false;
+		}
 		@Override
 		public void work() {
 			long elapsed = Utils.timeInterval(lastFlushTime);
@@ -231,9 +249,9 @@ public class CRDBService extends Service {
 	}	
 
 	public void loadOPDSCatalogs(final OPDSCatalogsLoadingCallback callback, final Handler handler) {
-		execTask(new Task("loadOPDSCatalogs") {
+		execRead(new ReadTask("loadOPDSCatalogs") {
 			@Override
-			public void work() {
+			public void read(MainDB mainDB, CoverDB coverDB) {
 				final ArrayList<FileInfo> list = new ArrayList<>();
 				mainDB.loadOPDSCatalogs(list);
 				sendTask(handler, () -> callback.onOPDSCatalogsLoaded(list));
@@ -242,9 +260,9 @@ public class CRDBService extends Service {
 	}
 
 	public void loadSearchHistory(final BookInfo book, final SearchHistoryLoadingCallback callback, final Handler handler) {
-		execTask(new Task("loadSearchHistory") {
+		execRead(new ReadTask("loadSearchHistory") {
 			@Override
-			public void work() {
+			public void read(MainDB mainDB, CoverDB coverDB) {
 				final ArrayList<String> list = mainDB.loadSearchHistory(book);
 				sendTask(handler, () -> callback.onSearchHistoryLoaded(list));
 			}
@@ -281,9 +299,9 @@ public class CRDBService extends Service {
 	
 	public void loadBookCoverpage(final FileInfo fileInfo, final CoverpageLoadingCallback callback, final Handler handler) 
 	{
-		execTask(new Task("loadBookCoverpage") {
+		execRead(new ReadTask("loadBookCoverpage") {
 			@Override
-			public void work() {
+			public void read(MainDB mainDB, CoverDB coverDB) {
 				final byte[] data = coverDB.loadBookCoverpage(fileInfo.getPathName());
 				sendTask(handler, () -> callback.onCoverpageLoaded(fileInfo, data));
 			}
@@ -325,9 +343,9 @@ public class CRDBService extends Service {
 
 	public void loadGenresList(FileInfo parent, boolean showEmptyGenres, final ItemGroupsLoadingCallback callback, final Handler handler) {
 		final FileInfo p = new FileInfo(parent);
-		execTask(new Task("loadGenresList") {
+		execRead(new ReadTask("loadGenresList") {
 			@Override
-			public void work() {
+			public void read(MainDB mainDB, CoverDB coverDB) {
 				mainDB.loadGenresList(p, showEmptyGenres);
 				sendTask(handler, () -> callback.onItemGroupsLoaded(p));
 			}
@@ -336,9 +354,9 @@ public class CRDBService extends Service {
 
 	public void loadAuthorsList(FileInfo parent, final ItemGroupsLoadingCallback callback, final Handler handler) {
 		final FileInfo p = new FileInfo(parent); 
-		execTask(new Task("loadAuthorsList") {
+		execRead(new ReadTask("loadAuthorsList") {
 			@Override
-			public void work() {
+			public void read(MainDB mainDB, CoverDB coverDB) {
 				mainDB.loadAuthorsList(p);
 				sendTask(handler, () -> callback.onItemGroupsLoaded(p));
 			}
@@ -347,9 +365,9 @@ public class CRDBService extends Service {
 
 	public void loadSeriesList(FileInfo parent, final ItemGroupsLoadingCallback callback, final Handler handler) {
 		final FileInfo p = new FileInfo(parent); 
-		execTask(new Task("loadSeriesList") {
+		execRead(new ReadTask("loadSeriesList") {
 			@Override
-			public void work() {
+			public void read(MainDB mainDB, CoverDB coverDB) {
 				mainDB.loadSeriesList(p);
 				sendTask(handler, () -> callback.onItemGroupsLoaded(p));
 			}
@@ -358,19 +376,40 @@ public class CRDBService extends Service {
 	
 	public void loadTitleList(FileInfo parent, final ItemGroupsLoadingCallback callback, final Handler handler) {
 		final FileInfo p = new FileInfo(parent); 
-		execTask(new Task("loadTitleList") {
+		execRead(new ReadTask("loadTitleList") {
 			@Override
-			public void work() {
+			public void read(MainDB mainDB, CoverDB coverDB) {
 				mainDB.loadTitleList(p);
 				sendTask(handler, () -> callback.onItemGroupsLoaded(p));
 			}
 		});
 	}
 
-	public void findGenresBooks(final String genreCode, boolean showEmptyGenres, final FileInfoLoadingCallback callback, final Handler handler) {
-		execTask(new Task("findGenresBooks") {
+	public void loadItemGroup(FileInfo group, final ItemGroupsLoadingCallback callback, final Handler handler) {
+		final FileInfo p = new FileInfo(group);
+		execRead(new ReadTask("loadItemGroup") {
+			@Override
+			public void read(MainDB mainDB, CoverDB coverDB) {
+				mainDB.loadItemGroup(p);
+				sendTask(handler, () -> callback.onItemGroupsLoaded(p));
+			}
+		});
+	}
+
+	public void rebuildGenreStats() {
+		execTask(new Task("rebuildGenreStats") {
 			@Override
 			public void work() {
+				mainDB.rebuildGenreStats();
+			}
+		});
+		flush();
+	}
+
+	public void findGenresBooks(final String genreCode, boolean showEmptyGenres, final FileInfoLoadingCallback callback, final Handler handler) {
+		execRead(new ReadTask("findGenresBooks") {
+			@Override
+			public void read(MainDB mainDB, CoverDB coverDB) {
 				final ArrayList<FileInfo> list = mainDB.findByGenre(genreCode, showEmptyGenres);
 				sendTask(handler, () -> callback.onFileInfoListLoaded(list));
 			}
@@ -378,9 +417,9 @@ public class CRDBService extends Service {
 	}
 
 	public void findAuthorBooks(final long authorId, final FileInfoLoadingCallback callback, final Handler handler) {
-		execTask(new Task("findAuthorBooks") {
+		execRead(new ReadTask("findAuthorBooks") {
 			@Override
-			public void work() {
+			public void read(MainDB mainDB, CoverDB coverDB) {
 				final ArrayList<FileInfo> list = new ArrayList<>();
 				mainDB.findAuthorBooks(list, authorId);
 				sendTask(handler, () -> callback.onFileInfoListLoaded(list));
@@ -389,9 +428,9 @@ public class CRDBService extends Service {
 	}
 	
 	public void findSeriesBooks(final long seriesId, final FileInfoLoadingCallback callback, final Handler handler) {
-		execTask(new Task("findSeriesBooks") {
+		execRead(new ReadTask("findSeriesBooks") {
 			@Override
-			public void work() {
+			public void read(MainDB mainDB, CoverDB coverDB) {
 				final ArrayList<FileInfo> list = new ArrayList<>();
 				mainDB.findSeriesBooks(list, seriesId);
 				sendTask(handler, () -> callback.onFileInfoListLoaded(list));
@@ -400,9 +439,9 @@ public class CRDBService extends Service {
 	}
 
 	public void findBooksByRating(final int minRate, final int maxRate, final FileInfoLoadingCallback callback, final Handler handler) {
-		execTask(new Task("findBooksByRating") {
+		execRead(new ReadTask("findBooksByRating") {
 			@Override
-			public void work() {
+			public void read(MainDB mainDB, CoverDB coverDB) {
 				final ArrayList<FileInfo> list = new ArrayList<>();
 				mainDB.findBooksByRating(list, minRate, maxRate);
 				sendTask(handler, () -> callback.onFileInfoListLoaded(list));
@@ -411,9 +450,9 @@ public class CRDBService extends Service {
 	}
 
 	public void findBooksByState(final int state, final FileInfoLoadingCallback callback, final Handler handler) {
-		execTask(new Task("findBooksByState") {
+		execRead(new ReadTask("findBooksByState") {
 			@Override
-			public void work() {
+			public void read(MainDB mainDB, CoverDB coverDB) {
 				final ArrayList<FileInfo> list = new ArrayList<>();
 				mainDB.findBooksByState(list, state);
 				sendTask(handler, () -> callback.onFileInfoListLoaded(list));
@@ -422,12 +461,17 @@ public class CRDBService extends Service {
 	}
 
 	public void loadRecentBooks(final int maxCount, final RecentBooksLoadingCallback callback, final Handler handler) {
+		// in service thread: loaded records go to FileInfo cache of writable instance
 		execTask(new Task("loadRecentBooks") {
 			@Override
 			public void work() {
 				final ArrayList<BookInfo> list = mainDB.loadRecentBooks(maxCount);
 				sendTask(handler, () -> callback.onRecentBooksListLoaded(list));
 			}
+			@Override
+			protected boolean isOrderedWrite() {
+				return false;
+			}
 		});
 	}
 	
@@ -441,9 +485,9 @@ public class CRDBService extends Service {
 	}
 	
 	public void findByPatterns(final int maxCount, final String authors, final String title, final String series, final String filename, final BookSearchCallback callback, final Handler handler) {
-		execTask(new Task("findByPatterns") {
+		execRead(new ReadTask("findByPatterns") {
 			@Override
-			public void work() {
+			public void read(MainDB mainDB, CoverDB coverDB) {
 				final ArrayList<FileInfo> list = mainDB.findByPatterns(maxCount, authors, title, series, filename);
 				sendTask(handler, () -> callback.onBooksFound(list));
 			}
@@ -451,9 +495,9 @@ public class CRDBService extends Service {
 	}
 
 	public void findByFingerprints(final int maxCount, Collection<String> fingerprints, final BookSearchCallback callback, final Handler handler) {
-		execTask(new Task("findByFingerprint") {
+		execRead(new ReadTask("findByFingerprint") {
 			@Override
-			public void work() {
+			public void read(MainDB mainDB, CoverDB coverDB) {
 				final ArrayList<FileInfo> list = mainDB.findByFingerprints(maxCount, fingerprints);
 				sendTask(handler, () -> callback.onBooksFound(list));
 			}
@@ -473,17 +517,56 @@ public class CRDBService extends Service {
 			public void work() {
 				mainDB.saveFileInfos(list);
 			}
+			@Override
+			protected boolean isOrderedWrite() {
+				// bulk save of scan results, reads don't wait for it
+				return false;
+			}
 		});
 		flush();
 	}
 
+	public interface FolderFingerprintsLoadingCallback {
+		void onFolderFingerprintsLoaded(Map<String, FolderFingerprint> fingerprints);
+	}
+
+	public void loadFolderFingerprints(final Collection<String> folderNames, final FolderFingerprintsLoadingCallback callback, final Handler handler) {
+		execRead(new ReadTask("loadFolderFingerprints") {
+			@Override
+			public void read(MainDB mainDB, CoverDB coverDB) {
+				final Map<String, FolderFingerprint> fingerprints = mainDB.loadFolderFingerprints(folderNames);
+				sendTask(handler, () -> callback.onFolderFingerprintsLoaded(fingerprints));
+			}
+		});
+	}
+
+	public void saveFolderFingerprint(final String folderName, final FolderFingerprint fingerprint) {
+		// not flushed here: recursive scan flushes once when it's finished
+		execTask(new Task("saveFolderFingerprint") {
+			@Override
+			public void work() {
+				mainDB.saveFolderFingerprint(folderName, fingerprint);
+			}
+			@Override
+			protected boolean isOrderedWrite() {
+				// written during scan, reads don't wait for it
+				return false;
+			}
+		});
+	}
+
 	public void loadBookInfo(final FileInfo fileInfo, final BookInfoLoadingCallback callback, final Handler handler) {
+		// in service thread: records of moved files are updated while loading
 		execTask(new Task("loadBookInfo") {
 			@Override
 			public void work() {
 				final BookInfo bookInfo = mainDB.loadBookInfo(fileInfo);
 				sendTask(handler, () -> callback.onBooksInfoLoaded(bookInfo));
 			}
+			@Override
+			protected boolean isOrderedWrite() {
+				return false;
+			}
 		});
 	}
 
@@ -494,6 +577,11 @@ public class CRDBService extends Service {
 				final ArrayList<FileInfo> list = mainDB.loadFileInfos(pathNames, control, progress);
 				sendTask(handler, () -> callback.onFileInfoListLoaded(list));
 			}
+			@Override
+			protected boolean isOrderedWrite() {
+				// scanner lookup, it sees scan results saved before it since service thread runs tasks in order
+				return false;
+			}
 		});
 	}
 	
@@ -507,6 +595,17 @@ public class CRDBService extends Service {
 		flush();
 	}
 	
+	public void saveLastPosition(final BookInfo bookInfo) {
+		execTask(new Task("saveLastPosition") {
+			@Override
+			public void work() {
+				if (!mainDB.saveLastPosition(bookInfo))
+					mainDB.saveBookInfo(bookInfo);
+			}
+		});
+		flush();
+	}
+
 	public void deleteBook(final FileInfo fileInfo)	{
 		execTask(new Task("deleteBook") {
 			@Override
@@ -561,9 +660,9 @@ public class CRDBService extends Service {
    	}
 
     public void loadFavoriteFolders(final FileInfoLoadingCallback callback, final Handler handler) {
-   		execTask(new Task("loadFavoriteFolders") {
+   		execRead(new ReadTask("loadFavoriteFolders") {
             @Override
-            public void work() {
+            public void read(MainDB mainDB, CoverDB coverDB) {
                 final ArrayList<FileInfo> favorites = mainDB.loadFavoriteFolders();
                 sendTask(handler, () -> callback.onFileInfoListLoaded(favorites));
             }
@@ -601,6 +700,14 @@ public class CRDBService extends Service {
 			return "Task[" + name + "]";
 		}
 
+		/**
+		 * Reads posted after ordered write wait for its completion, to see its changes.
+		 * @return false for tasks which don't change DB and for bulk writes
+		 */
+		protected boolean isOrderedWrite() {
+			return true;
+		}
+
 		@Override
 		public void run() {
 			long ts = Utils.timeStamp();
@@ -615,6 +722,33 @@ public class CRDBService extends Service {
 		
 		public abstract void work();
 	}
+
+	/**
+	 * Task which only reads DB.
+	 * It's executed in read lane with read-only DB instances passed as parameters,
+	 * or in service thread with writable instances if read lane is not available.
+	 */
+	private abstract class ReadTask extends Task {
+		private boolean inReadLane;
+		public ReadTask(String name) {
+			super(name);
+		}
+
+		@Override
+		protected boolean isOrderedWrite() {
+			return false;
+		}
+
+		@Override
+		public void work() {
+			if (inReadLane)
+				read(readMainDB, readCoverDB);
+			else
+				read(mainDB, coverDB);
+		}
+
+		public abstract void read(MainDB mainDB, CoverDB coverDB);
+	}
 	
 	/**
 	 * Execute runnable in CDRDBService background thread.
@@ -623,7 +757,111 @@ public class CRDBService extends Service {
 	 */
 	private void execTask(final Task task) {
 		vlog.v("Posting task " + task);
-		mThread.post(task);
+		if (!task.isOrderedWrite()) {
+			mThread.post(() -> {
+				task.run();
+				commitChanges();
+			});
+			return;
+		}
+		synchronized (mWriteLock) {
+			// id is assigned under the same lock as posting, so ordered writes complete in order of ids
+			final long writeId = ++mLastOrderedWrite;
+			mThread.post(() -> {
+				task.run();
+				commitChanges();
+				synchronized (mWriteLock) {
+					mCompletedOrderedWrite = writeId;
+					mWriteLock.notifyAll();
+				}
+			});
+		}
+	}
+
+	/**
+	 * Execute reading task in read lane, concurrently with writing tasks.
+	 * Task waits for completion of ordered writes posted before it.
+	 * If read lane is not available, task is executed in service thread.
+	 * @param task is task to execute
+	 */
+	private void execRead(final ReadTask task) {
+		if (!mReadLaneReady) {
+			execTask(task);
+			return;
+		}
+		final long waitForWrite;
+		synchronized (mWriteLock) {
+			waitForWrite = mLastOrderedWrite;
+		}
+		vlog.v("Posting task " + task + " to read lane");
+		mReadThread.post(() -> {
+			if (!mReadLaneOpened) {
+				execTask(task);
+				return;
+			}
+			waitForOrderedWrite(waitForWrite);
+			task.inReadLane = true;
+			task.run();
+		});
+	}
+
+	private void waitForOrderedWrite(long writeId) {
+		long ts = Utils.timeStamp();
+		synchronized (mWriteLock) {
+			while (mCompletedOrderedWrite < writeId) {
+				long timeLeft = MAX_READ_WAIT_TIME - Utils.timeInterval(ts);
+				if (timeLeft <= 0) {
+					log.w("Timeout while waiting for DB write, reading anyway");
+					return;
+				}
+				try {
+					mWriteLock.wait(timeLeft);
+				} catch (InterruptedException e) {
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Commit changes after each task in WAL mode, to make them visible in read lane.
+	 * WAL commit doesn't sync DB file, so it's cheap.
+	 */
+	private void commitChanges() {
+		if (mainDB.isWALEnabled())
+			mainDB.commit();
+		if (coverDB.isWALEnabled())
+			coverDB.commit();
+	}
+
+	/**
+	 * Open read-only DB instances in read lane. Called from service thread after DB is opened.
+	 */
+	private void openReadLane(final File dir) {
+		if (!mainDB.isWALEnabled() || !coverDB.isWALEnabled()) {
+			log.i("WAL is not enabled, DB reads will be executed in service thread");
+			return;
+		}
+		mReadThread.post(() -> {
+			boolean res = readMainDB.open(dir);
+			res = readCoverDB.open(dir) && res;
+			if (!res) {
+				readMainDB.close();
+				readCoverDB.close();
+			}
+			mReadLaneOpened = res;
+			mReadLaneReady = res;
+			log.i("DB read lane is " + (res ? "opened" : "not available"));
+		});
+	}
+
+	private void closeReadLane() {
+		mReadLaneReady = false;
+		mReadThread.post(() -> {
+			mReadLaneOpened = false;
+			readMainDB.close();
+			readCoverDB.close();
+		});
 	}
 	
 	/**
@@ -707,6 +945,14 @@ public class CRDBService extends Service {
     		getService().loadTitleList(parent, callback, new Handler());
     	}
 
+		public void loadItemGroup(FileInfo group, final ItemGroupsLoadingCallback callback) {
+			getService().loadItemGroup(group, callback, new Handler());
+		}
+
+		public void rebuildGenreStats() {
+			getService().rebuildGenreStats();
+		}
+
 		public void loadGenresBooks(String genreCode, boolean showEmptyGenres, FileInfoLoadingCallback callback) {
 			getService().findGenresBooks(genreCode, showEmptyGenres, callback, new Handler());
 		}
@@ -759,10 +1005,25 @@ public class CRDBService extends Service {
     		getService().deleteBook(new FileInfo(fileInfo));
     	}
 
+		public void loadFolderFingerprints(final Collection<String> folderNames, final FolderFingerprintsLoadingCallback callback) {
+			getService().loadFolderFingerprints(folderNames, callback, new Handler());
+		}
+
+		public void saveFolderFingerprint(final String folderName, final FolderFingerprint fingerprint) {
+			getService().saveFolderFingerprint(folderName, fingerprint);
+		}
+
     	public void saveBookInfo(final BookInfo bookInfo) {
     		getService().saveBookInfo(new BookInfo(bookInfo));
     	}
 
+		/**
+		 * Save only last position and access time of book, falls back to saveBookInfo() for books not yet in DB.
+		 */
+		public void saveLastPosition(final BookInfo bookInfo) {
+			getService().saveLastPosition(new BookInfo(bookInfo));
+		}
+
 		public void saveSearchHistory(final BookInfo book, String sHist) {
 			getService().saveSearchHistory(new BookInfo(book), sHist);
 		}
@@ -827,6 +1088,17 @@ public class CRDBService extends Service {
     }
 
     private ServiceThread mThread;
+    // thread of read lane
+    private ServiceThread mReadThread;
+    // true if reads may be posted to read lane
+    private volatile boolean mReadLaneReady;
+    // true if read-only DB instances are opened, accessed only from read lane
+    private boolean mReadLaneOpened;
+    private final Object mWriteLock = new Object();
+    private long mLastOrderedWrite;
+    private long mCompletedOrderedWrite;
+    // ordered write may be queued behind bulk writes, don't keep reads blocked for long
+    private static final long MAX_READ_WAIT_TIME = 2000;
     private final IBinder mBinder = new LocalBinder();
     
 }
@@ -14,6 +14,19 @@ public class CoverDB extends BaseDB {
 	public final int DB_VERSION = 9;
 	private final static boolean CLEAR_ON_START = false;
 
+	public CoverDB() {
+		coverpageCache = ByteArrayCache.withSoftTier(COVERPAGE_CACHE_SIZE);
+	}
+
+	/**
+	 * Create read-only instance for read lane of CRDBService.
+	 * @param writer is writable instance to share coverpage cache with
+	 */
+	public CoverDB(CoverDB writer) {
+		super(true);
+		coverpageCache = writer.coverpageCache;
+	}
+
 	private final static String[] COVERPAGE_SCHEMA = new String[] {
 		"CREATE TABLE IF NOT EXISTS coverpages (" +
 		"book_path VARCHAR NOT NULL PRIMARY KEY," +
@@ -57,19 +70,25 @@ public class CoverDB extends BaseDB {
 	}
 
 	public void clearCaches() {
-		coverpageCache.clear();
+		synchronized (coverpageCache) {
+			log.i("coverpage cache: " + coverpageCache + ", hit rate: " + (int)(coverpageCache.getHitRate() * 100) + "%");
+			coverpageCache.clear();
+		}
 	}
 	
     private static final int COVERPAGE_CACHE_SIZE = 512 * 1024;
-    private ByteArrayCache coverpageCache = new ByteArrayCache(COVERPAGE_CACHE_SIZE);
+    // shared by writable and read-only instances, access it under lock
+    private final ByteArrayCache coverpageCache;
     
 	public void saveBookCoverpage(String bookId, byte[] data)
 	{
-		byte[] oldData = coverpageCache.get(bookId);
-		if (oldData != null)
-			return; // already in cache
-		// update cache and DB
-		coverpageCache.put(bookId, data);
+		synchronized (coverpageCache) {
+			byte[] oldData = coverpageCache.get(bookId);
+			if (oldData != null)
+				return; // already in cache
+			// update cache and DB
+			coverpageCache.put(bookId, data);
+		}
 		
 		if (!isOpened())
 			return;
@@ -96,7 +115,10 @@ public class CoverDB extends BaseDB {
 
 	public byte[] loadBookCoverpage(String bookId)
 	{
-		byte[] data = coverpageCache.get(bookId);
+		byte[] data;
+		synchronized (coverpageCache) {
+			data = coverpageCache.get(bookId);
+		}
 		if (data != null)
 			return data;
 		if (!isOpened())
@@ -105,7 +127,13 @@ public class CoverDB extends BaseDB {
 		try {
 			rs = mDB.rawQuery("SELECT imagedata FROM coverpages WHERE book_path=" + quoteSqlString(bookId), null);
 			if ( rs.moveToFirst() ) {
-				return rs.getBlob(0);
+				data = rs.getBlob(0);
+				if (data != null) {
+					synchronized (coverpageCache) {
+						coverpageCache.put(bookId, data);
+					}
+				}
+				return data;
 			}
 			return null;
 		} catch ( Exception e ) {
@@ -118,7 +146,9 @@ public class CoverDB extends BaseDB {
 	}
 	
 	public void deleteCoverpage(String bookId) {
-		coverpageCache.remove(bookId);
+		synchronized (coverpageCache) {
+			coverpageCache.remove(bookId);
+		}
 		if (!isOpened())
 			return;
 		execSQLIgnoreErrors("DELETE FROM coverpages WHERE book_path=" + quoteSqlString(bookId));
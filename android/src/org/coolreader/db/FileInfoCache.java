@@ -1,106 +1,204 @@
 package org.coolreader.db;
 
-import java.util.ArrayList;
+import java.util.HashMap;
 
 import org.coolreader.crengine.FileInfo;
 
+/**
+ * LRU cache of FileInfo records, indexed both by path name and by DB id.
+ *
+ * All operations (lookup, promotion to most recently used, eviction) are O(1):
+ * entries are kept in a doubly linked list ordered by access time,
+ * and two hash maps point into this list.
+ */
 public class FileInfoCache {
 
 	private final int maxSize;
+
+	private final HashMap<String, Entry> byPath = new HashMap<String, Entry>();
+	private final HashMap<Long, Entry> byId = new HashMap<Long, Entry>();
+	// least recently used entry
+	private Entry head;
+	// most recently used entry
+	private Entry tail;
 	private int currentSize;
 
-	private ArrayList<FileInfo> list = new ArrayList<FileInfo>(); 
-	
+	private long hitCount;
+	private long missCount;
+	private long evictionCount;
+
+	private static class Entry {
+		FileInfo item;
+		// keys under which this entry is registered in maps
+		String path;
+		Long id;
+		Entry prev;
+		Entry next;
+	}
+
 	public FileInfoCache(int maxSize) {
 		this.maxSize = maxSize;
 	}
-	
+
 	public FileInfo remove(FileInfo entry) {
-		int index = findByPath(entry.getPathName());
-		if (index == -1)
-			index = findById(entry.id);
-		if (index == -1)
+		Entry e = find(entry.getPathName(), entry.id);
+		if (e == null)
 			return null;
-		FileInfo removed = list.get(index);
-		list.remove(index);
+		unlink(e);
+		unregister(e);
 		currentSize--;
-		return removed;
+		return e.item;
 	}
-	
+
 	public void put(FileInfo entry) {
-		int index = findByPath(entry.getPathName());
-		if (index == -1)
-			index = findById(entry.id);
-		if (index == -1) {
-			list.add(entry);
+		String path = entry.getPathName();
+		Entry e = find(path, entry.id);
+		if (e == null) {
+			e = new Entry();
+			e.item = entry;
+			register(e, path, entry.id);
+			linkLast(e);
 			currentSize++;
 			checkSize();
 			return;
 		}
-		list.set(index, entry);
-		moveOnTop(index);
+		// path or id of the item may be changed since it was added
+		unregister(e);
+		e.item = entry;
+		register(e, path, entry.id);
+		moveOnTop(e);
 	}
-	
+
 	public FileInfo get(String path) {
-		int index = findByPath(path);
-		if (index == -1)
+		if (path == null)
+			return null;
+		Entry e = byPath.get(path);
+		if (e == null) {
+			missCount++;
 			return null;
-		FileInfo item = list.get(index);
-		moveOnTop(index);
-		return item;
+		}
+		hitCount++;
+		moveOnTop(e);
+		return e.item;
 	}
-	
+
 	public FileInfo get(Long id) {
 		if (id == null)
 			return null;
-		int index = findById(id);
-		if (index == -1)
+		Entry e = byId.get(id);
+		if (e == null) {
+			missCount++;
 			return null;
-		FileInfo item = list.get(index);
-		moveOnTop(index);
-		return item;
+		}
+		hitCount++;
+		moveOnTop(e);
+		return e.item;
 	}
-	
+
 	public void clear() {
-		list.clear();
+		byPath.clear();
+		byId.clear();
+		head = tail = null;
 		currentSize = 0;
 	}
-	
-	private void moveOnTop(int index) {
-		if (index >= list.size() - 1)
-			return;
-		FileInfo item = list.get(index);
-		list.remove(index);
-		list.add(item);
+
+	public int size() {
+		return currentSize;
 	}
-	
-	private int findByPath(String path) {
-		if (path == null)
-			return -1;
-		for (int i=0; i<list.size(); i++) {
-			if (path.equals(list.get(i).getPathName()))
-				return i;
-		}
-		return -1;
+
+	public long getHitCount() {
+		return hitCount;
 	}
 
-	private int findById(Long id) {
-		if (id == null)
-			return -1;
-		for (int i=0; i<list.size(); i++) {
-			if (id.equals(list.get(i).id))
-				return i;
+	public long getMissCount() {
+		return missCount;
+	}
+
+	public long getEvictionCount() {
+		return evictionCount;
+	}
+
+	@Override
+	public String toString() {
+		return "FileInfoCache[size=" + currentSize + "/" + maxSize + ", hits=" + hitCount + ", misses=" + missCount + ", evictions=" + evictionCount + "]";
+	}
+
+	private Entry find(String path, Long id) {
+		Entry e = null;
+		if (path != null)
+			e = byPath.get(path);
+		if (e == null && id != null)
+			e = byId.get(id);
+		return e;
+	}
+
+	private void register(Entry e, String path, Long id) {
+		e.path = path;
+		e.id = id;
+		if (path != null) {
+			Entry old = byPath.put(path, e);
+			if (old != null && old != e)
+				drop(old);
+		}
+		if (id != null) {
+			Entry old = byId.put(id, e);
+			if (old != null && old != e)
+				drop(old);
 		}
-		return -1;
 	}
 
-	private void checkSize() {
-		int itemsToRemove = currentSize - maxSize;
-		if (itemsToRemove < maxSize / 10)
+	private void unregister(Entry e) {
+		if (e.path != null && byPath.get(e.path) == e)
+			byPath.remove(e.path);
+		if (e.id != null && byId.get(e.id) == e)
+			byId.remove(e.id);
+	}
+
+	/**
+	 * Remove entry which is shadowed by another one with the same path or id.
+	 */
+	private void drop(Entry e) {
+		unregister(e);
+		unlink(e);
+		currentSize--;
+	}
+
+	private void linkLast(Entry e) {
+		e.prev = tail;
+		e.next = null;
+		if (tail != null)
+			tail.next = e;
+		else
+			head = e;
+		tail = e;
+	}
+
+	private void unlink(Entry e) {
+		if (e.prev != null)
+			e.prev.next = e.next;
+		else
+			head = e.next;
+		if (e.next != null)
+			e.next.prev = e.prev;
+		else
+			tail = e.prev;
+		e.prev = e.next = null;
+	}
+
+	private void moveOnTop(Entry e) {
+		if (e == tail)
 			return;
-		for (int i=itemsToRemove; i>=0; i--) {
-			list.remove(i);
+		unlink(e);
+		linkLast(e);
+	}
+
+	private void checkSize() {
+		while (currentSize > maxSize && head != null) {
+			Entry e = head;
+			unlink(e);
+			unregister(e);
+			currentSize--;
+			evictionCount++;
 		}
-		currentSize -= itemsToRemove;
 	}
 }
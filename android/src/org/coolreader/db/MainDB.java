@@ -12,6 +12,7 @@ import org.coolreader.crengine.Bookmark;
 import org.coolreader.crengine.DocumentFormat;
 import org.coolreader.crengine.Engine;
 import org.coolreader.crengine.FileInfo;
+import org.coolreader.crengine.FolderFingerprint;
 import org.coolreader.crengine.L;
 import org.coolreader.crengine.Logger;
 import org.coolreader.crengine.MountPathCorrector;
@@ -26,14 +27,35 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class MainDB extends BaseDB {
 	public static final Logger log = L.create("mdb");
 	public static final Logger vlog = L.create("mdb", Log.VERBOSE);
 	
 	private boolean pathCorrectionRequired = false;
-	public final int DB_VERSION = 34;
+	public final int DB_VERSION = 39;
+
+	public MainDB() {
+	}
+
+	/**
+	 * @param readOnly is true to create read-only instance for read lane of CRDBService
+	 */
+	public MainDB(boolean readOnly) {
+		super(readOnly);
+	}
+
+	@Override
+	protected boolean onOpenedReadOnly() {
+		searchIndexAvailable = longQuery("SELECT count(*) FROM book_fts WHERE docid=0") != null;
+		return longQuery("SELECT count(*) FROM book WHERE id=0") != null;
+	}
+
 	@Override
 	protected boolean upgradeSchema() {
 		// When the database is just created, its version is 0.
@@ -294,6 +316,50 @@ public class MainDB extends BaseDB {
 				if (pragma_foreign_keys != 0L)
 					execSQLIgnoreErrors("PRAGMA foreign_keys=ON");
 			}
+			if (currentVersion < 35) {
+				// full text search index for library search, docid is book id
+				execSQLIgnoreErrors("CREATE VIRTUAL TABLE IF NOT EXISTS book_fts USING fts3(" +
+						"title, authors, series, filename)");
+				rebuildSearchIndex();
+			}
+			if (currentVersion < 36) {
+				execSQLIgnoreErrors("CREATE TABLE IF NOT EXISTS folder_fingerprint (" +
+						"folder_fk INTEGER NOT NULL PRIMARY KEY REFERENCES folder (id), " +
+						"mtime INTEGER NOT NULL, " +
+						"entry_count INTEGER NOT NULL, " +
+						"size_hash INTEGER NOT NULL)");
+			}
+			if (currentVersion < 37) {
+				// upper case sort keys for grouped lists of authors, series and titles
+				execSQLIgnoreErrors("ALTER TABLE author ADD COLUMN sort_key VARCHAR");
+				execSQLIgnoreErrors("ALTER TABLE series ADD COLUMN sort_key VARCHAR");
+				execSQLIgnoreErrors("ALTER TABLE book ADD COLUMN title_key VARCHAR");
+				updateSortKeys("author", "name", "sort_key", true);
+				updateSortKeys("series", "name", "sort_key", false);
+				updateSortKeys("book", "title", "title_key", false);
+				execSQLIgnoreErrors("CREATE INDEX IF NOT EXISTS " +
+						"author_sort_key_index ON author (sort_key) ");
+				execSQLIgnoreErrors("CREATE INDEX IF NOT EXISTS " +
+						"series_sort_key_index ON series (sort_key) ");
+				execSQLIgnoreErrors("CREATE INDEX IF NOT EXISTS " +
+						"book_title_key_index ON book (title_key) ");
+			}
+			if (currentVersion < 38) {
+				// number of books by genre and by genre group, maintained on change of book_genre
+				execSQLIgnoreErrors("CREATE TABLE IF NOT EXISTS genre_stats (" +
+						"genre_fk INTEGER NOT NULL PRIMARY KEY REFERENCES genre(id), " +
+						"book_count INTEGER NOT NULL)");
+				execSQLIgnoreErrors("CREATE TABLE IF NOT EXISTS genre_group_stats (" +
+						"group_fk INTEGER NOT NULL PRIMARY KEY REFERENCES genre_group(id), " +
+						"book_count INTEGER NOT NULL)");
+				// filled by checkGenreStats() below
+			}
+			if (currentVersion >= 37 && currentVersion < 39) {
+				// sort keys were upper cased using default locale, make them locale independent
+				updateSortKeys("author", "name", "sort_key", true);
+				updateSortKeys("series", "name", "sort_key", false);
+				updateSortKeys("book", "title", "title_key", false);
+			}
 
 			//==============================================================
 			// add more updates above this line
@@ -303,6 +369,11 @@ public class MainDB extends BaseDB {
 		}
 
 		checkOrUpgradeGenresHandbook();
+		checkGenreStats();
+
+		searchIndexAvailable = longQuery("SELECT count(*) FROM book_fts WHERE docid=0") != null;
+		if (!searchIndexAvailable)
+			log.w("Full text search index is not available, slow search will be used");
 
 		dumpStatistics();
 		
@@ -372,6 +443,9 @@ public class MainDB extends BaseDB {
 				e.printStackTrace();
 			}
 			mDB.endTransaction();
+			// genre hierarchy may be changed
+			if (res)
+				rebuildGenreStats();
 		}
 		return res;
 	}
@@ -382,6 +456,7 @@ public class MainDB extends BaseDB {
 	}
 	
 	public void clearCaches() {
+		log.i("clearCaches: " + fileInfoCache);
 		seriesCache.clear();
 		authorCache.clear();
 		folderCache.clear();
@@ -414,6 +489,32 @@ public class MainDB extends BaseDB {
             authorSelectStmt.close();
             authorSelectStmt = null;
         }
+        if (bookAuthorStmt != null) {
+            bookAuthorStmt.close();
+            bookAuthorStmt = null;
+        }
+        if (bookGenreStmt != null) {
+            bookGenreStmt.close();
+            bookGenreStmt = null;
+        }
+        if (genreStatsInsertStmt != null) {
+            genreStatsInsertStmt.close();
+            genreStatsInsertStmt = null;
+            genreStatsUpdateStmt.close();
+            genreStatsUpdateStmt = null;
+            genreGroupStatsInsertStmt.close();
+            genreGroupStatsInsertStmt = null;
+            genreGroupStatsUpdateStmt.close();
+            genreGroupStatsUpdateStmt = null;
+        }
+        if (bookInsertStmt != null) {
+            bookInsertStmt.close();
+            bookInsertStmt = null;
+        }
+        if (searchIndexInsertStmt != null) {
+            searchIndexInsertStmt.close();
+            searchIndexInsertStmt = null;
+        }
 	}
 	
 	//=======================================================================================
@@ -724,30 +825,225 @@ public class MainDB extends BaseDB {
 			parent.addDir(items.get(i));
 		}
 	}
-	
-	private static abstract class ItemGroupExtractor {
-		public abstract String getComparisionField(FileInfo item);
-		public String getItemFirstLetters(FileInfo item, int level) {
-			String name = getComparisionField(item); //.filename;
-			int l = name == null ? 0 : Math.min(name.length(), level);
-			return l > 0 ? name.substring(0, l).toUpperCase() : "_";
+
+	/**
+	 * List of items grouped by first letters of upper case sort key.
+	 * Keys are stored in DB, so groups and item counts are calculated in SQL,
+	 * and only items of shown group are loaded.
+	 */
+	private static class ItemGroupType {
+		final String groupPrefixTag;
+		final String itemPrefixTag;
+		final String from;
+		final String keyField;
+		final String filter;
+		// number of items with the same prefix
+		final String itemCountExpr;
+		// number of books for item
+		final String bookCountExpr;
+
+		ItemGroupType(String groupPrefixTag, String itemPrefixTag, String from, String keyField, String filter, String itemCountExpr, String bookCountExpr) {
+			this.groupPrefixTag = groupPrefixTag;
+			this.itemPrefixTag = itemPrefixTag;
+			this.from = from;
+			this.keyField = keyField;
+			this.filter = filter + " AND " + keyField + " IS NOT NULL";
+			this.itemCountExpr = itemCountExpr;
+			this.bookCountExpr = bookCountExpr;
+		}
+	}
+
+	private static final ItemGroupType AUTHOR_GROUPS = new ItemGroupType(FileInfo.AUTHOR_GROUP_PREFIX, FileInfo.AUTHOR_PREFIX,
+			"author a", "a.sort_key", "EXISTS (SELECT 1 FROM book_author ba WHERE ba.author_fk=a.id)",
+			"count(*)", "(SELECT count(*) FROM book_author ba WHERE ba.author_fk=a.id)");
+	private static final ItemGroupType SERIES_GROUPS = new ItemGroupType(FileInfo.SERIES_GROUP_PREFIX, FileInfo.SERIES_PREFIX,
+			"series s", "s.sort_key", "EXISTS (SELECT 1 FROM book b WHERE b.series_fk=s.id)",
+			"count(*)", "(SELECT count(*) FROM book b WHERE b.series_fk=s.id)");
+	// items are books, books with the same title are shown once
+	private static final ItemGroupType TITLE_GROUPS = new ItemGroupType(FileInfo.TITLE_GROUP_PREFIX, null,
+			"book b", "b.title_key", "b.title IS NOT NULL AND b.title != ''",
+			"count(DISTINCT b.title)", null);
+
+	/**
+	 * Sort key is stored in DB, so it doesn't depend on current locale.
+	 */
+	private static String sortKey(String name) {
+		return name != null ? name.toUpperCase(Locale.ROOT) : null;
+	}
+
+	private static String authorSortKey(String name) {
+		return sortKey(Utils.authorNameFileAs(name));
+	}
+
+	/**
+	 * Fill sort key column for existing records, on schema upgrade.
+	 */
+	private void updateSortKeys(String table, String nameField, String keyField, boolean isAuthor) {
+		int count = 0;
+		mDB.beginTransaction();
+		try (SQLiteStatement stmt = mDB.compileStatement("UPDATE " + table + " SET " + keyField + "=? WHERE id=?");
+			 Cursor rs = mDB.rawQuery("SELECT id, " + nameField + " FROM " + table + " WHERE " + nameField + " IS NOT NULL", null)) {
+			if (rs.moveToFirst()) {
+				do {
+					String name = rs.getString(1);
+					stmt.bindString(1, isAuthor ? authorSortKey(name) : sortKey(name));
+					stmt.bindLong(2, rs.getLong(0));
+					stmt.execute();
+					count++;
+				} while (rs.moveToNext());
+			}
+			mDB.setTransactionSuccessful();
+		} catch (SQLException e) {
+			log.e("error while updating sort keys of " + table, e);
+		} finally {
+			mDB.endTransaction();
 		}
+		log.i("updated sort keys of " + count + " " + table + " records");
 	}
 
-	private static class ItemGroupFilenameExtractor extends ItemGroupExtractor {
+	private static final int ITEM_GROUP_CACHE_SIZE = 16;
+	// incremented on each change of DB, shared by writable and read-only instances
+	private static final AtomicLong dataVersion = new AtomicLong();
+	// recently loaded groups, valid for itemGroupCacheVersion of data
+	private final LinkedHashMap<String, ArrayList<FileInfo>> itemGroupCache = new LinkedHashMap<String, ArrayList<FileInfo>>(ITEM_GROUP_CACHE_SIZE, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
 		@Override
-		public String getComparisionField(FileInfo item) {
-			return item.filename;
+		protected boolean removeEldestEntry(Map.Entry<String, ArrayList<FileInfo>> eldest) {
+			return size() > ITEM_GROUP_CACHE_SIZE;
 		}
+	};
+	private long itemGroupCacheVersion = -1;
+
+	@Override
+	public void beginChanges() {
+		super.beginChanges();
+		dataVersion.incrementAndGet();
 	}
 
-	private static class ItemGroupTitleExtractor extends ItemGroupExtractor {
-		@Override
-		public String getComparisionField(FileInfo item) {
-			return item.title;
+	@Override
+	protected void onChangesCommitted() {
+		// groups loaded by read-only instance before commit may be outdated
+		dataVersion.incrementAndGet();
+	}
+
+	/**
+	 * Load items of group into parent dir: either items themselves, if there are few of them,
+	 * or subgroups by next letter of sort key (groups of single item are replaced with the item).
+	 * @param parent is dir to fill
+	 * @param type is list type
+	 * @param prefix is upper case prefix of sort key for items of group, empty for whole list
+	 * @return true if group is not empty
+	 */
+	private boolean loadItemGroup(FileInfo parent, ItemGroupType type, String prefix) {
+		parent.clear();
+		String cacheKey = type.groupPrefixTag + prefix;
+		long version = dataVersion.get();
+		if (itemGroupCacheVersion != version) {
+			itemGroupCache.clear();
+			itemGroupCacheVersion = version;
+		}
+		ArrayList<FileInfo> items = itemGroupCache.get(cacheKey);
+		if (items == null) {
+			beginReading();
+			items = loadItemGroupItems(type, prefix);
+			endReading();
+			itemGroupCache.put(cacheKey, items);
+		}
+		// cached items are copied, since they are modified by receiver
+		for (FileInfo item : items) {
+			FileInfo copy = new FileInfo(item);
+			copy.isListed = item.isListed;
+			copy.isScanned = item.isScanned;
+			copy.tag = item.tag;
+			copy.parent = parent;
+			parent.addDir(copy);
+		}
+		return items.size() > 0;
+	}
+
+	private ArrayList<FileInfo> loadItemGroupItems(ItemGroupType type, String prefix) {
+		int level = prefix.length() + 1;
+		String condition = prefix.length() > 0 ? prefixCondition(type.keyField, prefix) : null;
+		// count items by prefixes
+		ArrayList<String> prefixes = new ArrayList<>();
+		ArrayList<Integer> counts = new ArrayList<>();
+		int itemCount = 0;
+		String sql = "SELECT substr(" + type.keyField + ",1," + level + ") AS prefix, " + type.itemCountExpr + " FROM " + type.from +
+				" WHERE " + type.filter + (condition != null ? " AND " + condition : "") + " GROUP BY prefix ORDER BY prefix";
+		try (Cursor rs = mDB.rawQuery(sql, null)) {
+			if (rs.moveToFirst()) {
+				do {
+					prefixes.add(rs.getString(0));
+					counts.add(rs.getInt(1));
+					itemCount += rs.getInt(1);
+				} while (rs.moveToNext());
+			}
+		} catch (Exception e) {
+			Log.e("cr3", "exception while loading item groups", e);
 		}
+		ArrayList<FileInfo> items = new ArrayList<>();
+		boolean cannotSplit = prefixes.size() == 1 && prefixes.get(0).equals(prefix);
+		if (itemCount <= prefixes.size() * 11 / 10 || itemCount < 8 || cannotSplit) {
+			// small number of items: add as is
+			loadGroupItems(type, condition, items);
+			return items;
+		}
+		// groups of single item are replaced with the item
+		StringBuilder singles = new StringBuilder();
+		for (int i = 0; i < prefixes.size(); i++) {
+			if (counts.get(i) == 1) {
+				if (singles.length() > 0)
+					singles.append(" OR ");
+				singles.append("(").append(prefixCondition(type.keyField, prefixes.get(i))).append(")");
+			}
+		}
+		HashMap<String, FileInfo> singleItems = new HashMap<>();
+		if (singles.length() > 0) {
+			ArrayList<FileInfo> list = new ArrayList<>();
+			loadGroupItems(type, "(" + singles + ")", list);
+			for (FileInfo item : list) {
+				// author item name is already converted to "file as" form
+				String key = sortKey(type == TITLE_GROUPS ? item.title : item.filename);
+				if (key != null)
+					singleItems.put(key.length() > level ? key.substring(0, level) : key, item);
+			}
+		}
+		for (int i = 0; i < prefixes.size(); i++) {
+			FileInfo single = counts.get(i) == 1 ? singleItems.get(prefixes.get(i)) : null;
+			if (single != null)
+				items.add(single);
+			else
+				items.add(createItemGroup(prefixes.get(i), type.groupPrefixTag));
+		}
+		return items;
 	}
-	
+
+	/**
+	 * Condition for keys starting with prefix, as range which can be served by index on key field.
+	 * Upper bound is prefix with last character incremented: it's greater than any key with the prefix
+	 * in binary (UTF-8) order, including keys with characters out of BMP.
+	 */
+	private static String prefixCondition(String keyField, String prefix) {
+		String condition = keyField + ">=" + quoteSqlString(prefix);
+		int last = prefix.codePointBefore(prefix.length());
+		if (last >= Character.MAX_CODE_POINT)
+			return condition;
+		int next = last + 1 == Character.MIN_SURROGATE ? Character.MAX_SURROGATE + 1 : last + 1;
+		String upperBound = prefix.substring(0, prefix.length() - Character.charCount(last)) + new String(Character.toChars(next));
+		return condition + " AND " + keyField + "<" + quoteSqlString(upperBound);
+	}
+
+	private boolean loadGroupItems(ItemGroupType type, String condition, ArrayList<FileInfo> list) {
+		String where = " WHERE " + type.filter + (condition != null ? " AND " + condition : "");
+		if (type == TITLE_GROUPS) {
+			String sql = READ_FILEINFO_SQL + " WHERE b.id IN (SELECT min(b.id) FROM book b" + where + " GROUP BY b.title) ORDER BY b.title_key";
+			return findBooks(sql, list);
+		}
+		String alias = type.from.substring(type.from.indexOf(' ') + 1);
+		String sql = "SELECT " + alias + ".id, " + alias + ".name, " + type.bookCountExpr + " FROM " + type.from + where + " ORDER BY " + type.keyField;
+		return loadItemList(list, sql, type.itemPrefixTag);
+	}
+
 	private FileInfo createItemGroup(String groupPrefix, String groupPrefixTag) {
 		FileInfo groupDir = new FileInfo();
 		groupDir.isDirectory = true;
@@ -758,59 +1054,7 @@ public class MainDB extends BaseDB {
 		groupDir.id = 0l;
 		return groupDir;
 	}
-	
-	private void sortItems(ArrayList<FileInfo> items, final ItemGroupExtractor extractor) {
-		Collections.sort(items, (lhs, rhs) -> {
-			String l = extractor.getComparisionField(lhs) != null ? extractor.getComparisionField(lhs).toUpperCase() : "";
-			String r = extractor.getComparisionField(rhs) != null ? extractor.getComparisionField(rhs).toUpperCase() : "";
-			return l.compareTo(r);
-		});
-	}
-	
-	private void addGroupedItems(FileInfo parent, ArrayList<FileInfo> items, int start, int end, String groupPrefixTag, int level, final ItemGroupExtractor extractor) {
-		int itemCount = end - start;
-		if (itemCount < 1)
-			return;
-		// for nested level (>1), create base subgroup, otherwise use parent 
-		if (level > 1 && itemCount > 1) {
-			String baseFirstLetter = extractor.getItemFirstLetters(items.get(start), level - 1);
-			FileInfo newGroup = createItemGroup(baseFirstLetter, groupPrefixTag);
-			newGroup.parent = parent;
-			parent.addDir(newGroup);
-			parent = newGroup;
-		}
-		
-		// check group count
-		int topLevelGroupsCount = 0;
-		String lastFirstLetter = "";
-		for (int i=start; i<end; i++) {
-			String firstLetter = extractor.getItemFirstLetters(items.get(i), level);
-			if (!firstLetter.equals(lastFirstLetter)) {
-				topLevelGroupsCount++;
-				lastFirstLetter = firstLetter;
-			}
-		}
-		if (itemCount <= topLevelGroupsCount * 11 / 10 || itemCount < 8) {
-			// small number of items: add as is
-			addItems(parent, items, start, end); 
-			return;
-		}
 
-		// divide items into groups
-		for (int i=start; i<end; ) {
-			String firstLetter = extractor.getItemFirstLetters(items.get(i), level);
-			int groupEnd = i + 1;
-			for (; groupEnd < end; groupEnd++) {
-				String firstLetter2 = groupEnd < end ? extractor.getItemFirstLetters(items.get(groupEnd), level) : "";
-				if (!firstLetter.equals(firstLetter2))
-					break;
-			}
-			// group is i..groupEnd
-			addGroupedItems(parent, items, i, groupEnd, groupPrefixTag, level + 1, extractor);
-			i = groupEnd;
-		}
-	}
-	
 	private boolean loadItemList(ArrayList<FileInfo> list, String sql, String groupPrefixTag) {
 		boolean found = false;
 		try (Cursor rs = mDB.rawQuery(sql, null)) {
@@ -839,7 +1083,6 @@ public class MainDB extends BaseDB {
 		} catch (Exception e) {
 			Log.e("cr3", "exception while loading list of authors", e);
 		}
-		sortItems(list, new ItemGroupFilenameExtractor());
 		return found;
 	}
 
@@ -848,7 +1091,7 @@ public class MainDB extends BaseDB {
 		beginReading();
 		parent.clear();
 		ArrayList<FileInfo> list = new ArrayList<FileInfo>();
-		String sql = "SELECT code, (SELECT COUNT(DISTINCT book_fk) FROM book_genre bg JOIN genre g ON g.id=bg.genre_fk JOIN genre_hier gh ON gh.genre_fk = g.id WHERE gh.group_fk=gg.id) as book_count FROM genre_group gg";
+		String sql = "SELECT gg.code, ifnull(gs.book_count, 0) as book_count FROM genre_group gg LEFT JOIN genre_group_stats gs ON gs.group_fk=gg.id";
 		try (Cursor rs = mDB.rawQuery(sql, null)) {
 			if (rs.moveToFirst()) {
 				// read DB
@@ -876,53 +1119,33 @@ public class MainDB extends BaseDB {
 		return true;
 	}
 
-
 	public boolean loadAuthorsList(FileInfo parent) {
 		Log.i("cr3", "loadAuthorsList()");
-		beginReading();
-		parent.clear();
-		ArrayList<FileInfo> list = new ArrayList<FileInfo>();
-		String sql = "SELECT author.id, author.name, count(*) as book_count FROM author INNER JOIN book_author ON  book_author.author_fk = author.id GROUP BY author.name, author.id ORDER BY author.name";
-		boolean found = loadItemList(list, sql, FileInfo.AUTHOR_PREFIX);
-		addGroupedItems(parent, list, 0, list.size(), FileInfo.AUTHOR_GROUP_PREFIX, 1, new ItemGroupFilenameExtractor());
-		endReading();
-		return found;
+		return loadItemGroup(parent, AUTHOR_GROUPS, "");
 	}
 
 	public boolean loadSeriesList(FileInfo parent) {
 		Log.i("cr3", "loadSeriesList()");
-		beginReading();
-		parent.clear();
-		ArrayList<FileInfo> list = new ArrayList<FileInfo>();
-		String sql = "SELECT series.id, series.name, count(*) as book_count FROM series INNER JOIN book ON book.series_fk = series.id GROUP BY series.name, series.id ORDER BY series.name";
-		boolean found = loadItemList(list, sql, FileInfo.SERIES_PREFIX);
-		addGroupedItems(parent, list, 0, list.size(), FileInfo.SERIES_GROUP_PREFIX, 1, new ItemGroupFilenameExtractor());
-		endReading();
-		return found;
+		return loadItemGroup(parent, SERIES_GROUPS, "");
 	}
 	
 	public boolean loadTitleList(FileInfo parent) {
 		Log.i("cr3", "loadTitleList()");
-		beginReading();
-		parent.clear();
-		ArrayList<FileInfo> list = new ArrayList<FileInfo>();
-		String sql = READ_FILEINFO_SQL + " WHERE b.title IS NOT NULL AND b.title != '' ORDER BY b.title";
-		boolean found = findBooks(sql, list);
-		sortItems(list, new ItemGroupTitleExtractor());
-		// remove duplicate titles
-		for (int i=list.size() - 1; i>0; i--) {
-			String title = list.get(i).title; 
-			if (title == null) {
-				list.remove(i);
-				continue;
-			}
-			String prevTitle = list.get(i - 1).title;
-			if (title.equals(prevTitle))
-				list.remove(i);
+		return loadItemGroup(parent, TITLE_GROUPS, "");
+	}
+
+	/**
+	 * Load items of author, series or title group dir.
+	 * @param group is group dir to fill
+	 * @return true if group is not empty
+	 */
+	public boolean loadItemGroup(FileInfo group) {
+		String path = group.getPathName();
+		for (ItemGroupType type : new ItemGroupType[] { AUTHOR_GROUPS, SERIES_GROUPS, TITLE_GROUPS }) {
+			if (path != null && path.startsWith(type.groupPrefixTag))
+				return loadItemGroup(group, type, path.substring(type.groupPrefixTag.length()));
 		}
-		addGroupedItems(parent, list, 0, list.size(), FileInfo.TITLE_GROUP_PREFIX, 1, new ItemGroupTitleExtractor());
-		endReading();
-		return found;
+		return false;
 	}
 
 	public boolean findAuthorBooks(ArrayList<FileInfo> list, long authorId)
@@ -999,13 +1222,16 @@ public class MainDB extends BaseDB {
 			seriesSelectStmt = mDB.compileStatement("SELECT id FROM series WHERE name=?");
 		try {
 			seriesSelectStmt.bindString(1, seriesName);
-			return seriesSelectStmt.simpleQueryForLong();
+			id = seriesSelectStmt.simpleQueryForLong();
+			seriesCache.put( seriesName, id );
+			return id;
 		} catch ( Exception e ) {
 			// not found
 		}
 		if (seriesStmt == null)
-			seriesStmt = mDB.compileStatement("INSERT INTO series (id, name) VALUES (NULL,?)");
+			seriesStmt = mDB.compileStatement("INSERT INTO series (id, name, sort_key) VALUES (NULL,?,?)");
 		seriesStmt.bindString(1, seriesName);
+		seriesStmt.bindString(2, sortKey(seriesName));
 		id = seriesStmt.executeInsert();
 		seriesCache.put( seriesName, id );
 		return id;
@@ -1029,7 +1255,9 @@ public class MainDB extends BaseDB {
 			folderSelectStmt = mDB.compileStatement("SELECT id FROM folder WHERE name=?");
 		try {
 			folderSelectStmt.bindString(1, folderName);
-			return folderSelectStmt.simpleQueryForLong();
+			id = folderSelectStmt.simpleQueryForLong();
+			folderCache.put( folderName, id );
+			return id;
 		} catch ( Exception e ) {
 			// not found
 		}
@@ -1041,6 +1269,49 @@ public class MainDB extends BaseDB {
 		return id;
 	}
 	
+	/**
+	 * Load fingerprints of directories, saved after their last scan.
+	 * @param folderNames is list of directory paths
+	 * @return map of directory path to fingerprint, directories never scanned are not included
+	 */
+	public HashMap<String, FolderFingerprint> loadFolderFingerprints(Collection<String> folderNames) {
+		HashMap<String, FolderFingerprint> map = new HashMap<>();
+		if (!isOpened())
+			return map;
+		ArrayList<String> names = new ArrayList<>(folderNames);
+		for (int start = 0; start < names.size(); start += MAX_SQL_PARAMS) {
+			int end = Math.min(names.size(), start + MAX_SQL_PARAMS);
+			String[] args = names.subList(start, end).toArray(new String[0]);
+			String sql = "SELECT f.name, ff.mtime, ff.entry_count, ff.size_hash FROM folder_fingerprint ff " +
+					"JOIN folder f ON f.id=ff.folder_fk WHERE f.name IN (" + sqlParams(args.length) + ")";
+			try (Cursor rs = mDB.rawQuery(sql, args)) {
+				if (rs.moveToFirst()) {
+					do {
+						map.put(rs.getString(0), new FolderFingerprint(rs.getLong(1), rs.getInt(2), rs.getLong(3)));
+					} while (rs.moveToNext());
+				}
+			} catch (SQLException e) {
+				log.e("error while loading folder fingerprints", e);
+			}
+		}
+		return map;
+	}
+
+	public void saveFolderFingerprint(String folderName, FolderFingerprint fingerprint) {
+		if (!isOpened())
+			return;
+		try {
+			Long folderId = getFolderId(folderName);
+			if (folderId == null)
+				return;
+			beginChanges();
+			mDB.execSQL("INSERT OR REPLACE INTO folder_fingerprint (folder_fk, mtime, entry_count, size_hash) VALUES (?,?,?,?)",
+					new Object[] { folderId, fingerprint.modificationTime, fingerprint.entryCount, fingerprint.sizeHash });
+		} catch (SQLException e) {
+			log.e("error while saving folder fingerprint", e);
+		}
+	}
+
 	//=======================================================================================
     // Author access code
     //=======================================================================================
@@ -1058,13 +1329,16 @@ public class MainDB extends BaseDB {
 			authorSelectStmt = mDB.compileStatement("SELECT id FROM author WHERE name=?");
 		try {
 			authorSelectStmt.bindString(1, authorName);
-			return authorSelectStmt.simpleQueryForLong();
+			id = authorSelectStmt.simpleQueryForLong();
+			authorCache.put( authorName, id );
+			return id;
 		} catch ( Exception e ) {
 			// not found
 		}
 		if ( authorStmt==null )
-			authorStmt = mDB.compileStatement("INSERT INTO author (id, name) VALUES (NULL,?)");
+			authorStmt = mDB.compileStatement("INSERT INTO author (id, name, sort_key) VALUES (NULL,?,?)");
 		authorStmt.bindString(1, authorName);
+		authorStmt.bindString(2, authorSortKey(authorName));
 		id = authorStmt.executeInsert();
 		authorCache.put( authorName, id );
 		return id;
@@ -1087,14 +1361,16 @@ public class MainDB extends BaseDB {
 		return null;
 	}
 	
+	private SQLiteStatement bookAuthorStmt;
 	public void saveBookAuthors( Long bookId, Long[] authors) {
 		if ( authors==null || authors.length==0 )
 			return;
-		String insertQuery = "INSERT OR IGNORE INTO book_author (book_fk,author_fk) VALUES ";
+		if ( bookAuthorStmt==null )
+			bookAuthorStmt = mDB.compileStatement("INSERT OR IGNORE INTO book_author (book_fk,author_fk) VALUES (?,?)");
 		for ( Long id : authors ) {
-			String sql = insertQuery + "(" + bookId + "," + id + ")"; 
-			//Log.v("cr3", "executing: " + sql);
-			mDB.execSQL(sql);
+			bookAuthorStmt.bindLong(1, bookId);
+			bookAuthorStmt.bindLong(2, id);
+			bookAuthorStmt.execute();
 		}
 	}
 
@@ -1118,15 +1394,98 @@ public class MainDB extends BaseDB {
 		return null;
 	}
 
+	private SQLiteStatement bookGenreStmt;
 	public void saveBookGenres( Long bookId, Integer[] genres) {
 		if ( genres==null || genres.length==0 )
 			return;
-		String insertQuery = "INSERT OR IGNORE INTO book_genre (book_fk,genre_fk) VALUES ";
+		if ( bookGenreStmt==null )
+			bookGenreStmt = mDB.compileStatement("INSERT OR IGNORE INTO book_genre (book_fk,genre_fk) VALUES (?,?)");
 		for ( Integer id : genres ) {
-			String sql = insertQuery + "(" + bookId + "," + id + ")";
-			//Log.v("cr3", "executing: " + sql);
-			mDB.execSQL(sql);
+			bookGenreStmt.bindLong(1, bookId);
+			bookGenreStmt.bindLong(2, id);
+			// -1 if book already has this genre
+			if (bookGenreStmt.executeInsert() != -1)
+				onBookGenreAdded(bookId, id);
+		}
+	}
+
+	//=======================================================================================
+    // Genre statistics: number of books by genre and by genre group
+    //=======================================================================================
+
+	private SQLiteStatement genreStatsInsertStmt;
+	private SQLiteStatement genreStatsUpdateStmt;
+	private SQLiteStatement genreGroupStatsInsertStmt;
+	private SQLiteStatement genreGroupStatsUpdateStmt;
+
+	private void onBookGenreAdded(long bookId, long genreId) {
+		if (genreStatsInsertStmt == null) {
+			genreStatsInsertStmt = mDB.compileStatement("INSERT OR IGNORE INTO genre_stats (genre_fk, book_count) VALUES (?1, 0)");
+			genreStatsUpdateStmt = mDB.compileStatement("UPDATE genre_stats SET book_count=book_count+1 WHERE genre_fk=?1");
+			genreGroupStatsInsertStmt = mDB.compileStatement("INSERT OR IGNORE INTO genre_group_stats (group_fk, book_count) " +
+					"SELECT group_fk, 0 FROM genre_hier WHERE genre_fk=?1");
+			// book is counted in group only once, when its first genre of the group is added
+			genreGroupStatsUpdateStmt = mDB.compileStatement("UPDATE genre_group_stats SET book_count=book_count+1 " +
+					"WHERE group_fk IN (SELECT gh.group_fk FROM genre_hier gh WHERE gh.genre_fk=?1 AND " +
+					"(SELECT count(*) FROM book_genre bg JOIN genre_hier gh2 ON gh2.genre_fk=bg.genre_fk " +
+					"WHERE bg.book_fk=?2 AND gh2.group_fk=gh.group_fk)=1)");
+		}
+		genreStatsInsertStmt.bindLong(1, genreId);
+		genreStatsInsertStmt.execute();
+		genreStatsUpdateStmt.bindLong(1, genreId);
+		genreStatsUpdateStmt.execute();
+		genreGroupStatsInsertStmt.bindLong(1, genreId);
+		genreGroupStatsInsertStmt.execute();
+		genreGroupStatsUpdateStmt.bindLong(1, genreId);
+		genreGroupStatsUpdateStmt.bindLong(2, bookId);
+		genreGroupStatsUpdateStmt.execute();
+	}
+
+	/**
+	 * Update genre statistics before removing all genres of book.
+	 */
+	private void onBookGenresRemoving(long bookId) {
+		execSQLIgnoreErrors("UPDATE genre_stats SET book_count=book_count-1 " +
+				"WHERE genre_fk IN (SELECT genre_fk FROM book_genre WHERE book_fk=" + bookId + ")");
+		execSQLIgnoreErrors("UPDATE genre_group_stats SET book_count=book_count-1 " +
+				"WHERE group_fk IN (SELECT gh.group_fk FROM book_genre bg JOIN genre_hier gh ON gh.genre_fk=bg.genre_fk WHERE bg.book_fk=" + bookId + ")");
+	}
+
+	/**
+	 * Recalculate genre statistics from book_genre table.
+	 */
+	public void rebuildGenreStats() {
+		log.i("Rebuilding genre statistics...");
+		long startTime = Utils.timeStamp();
+		mDB.beginTransaction();
+		try {
+			mDB.execSQL("DELETE FROM genre_stats");
+			mDB.execSQL("DELETE FROM genre_group_stats");
+			mDB.execSQL("INSERT INTO genre_stats (genre_fk, book_count) " +
+					"SELECT genre_fk, count(*) FROM book_genre GROUP BY genre_fk");
+			mDB.execSQL("INSERT INTO genre_group_stats (group_fk, book_count) " +
+					"SELECT gh.group_fk, count(DISTINCT bg.book_fk) FROM book_genre bg JOIN genre_hier gh ON gh.genre_fk=bg.genre_fk GROUP BY gh.group_fk");
+			mDB.setTransactionSuccessful();
+		} catch (SQLException e) {
+			log.e("error while rebuilding genre statistics", e);
+		} finally {
+			mDB.endTransaction();
 		}
+		log.i("Genre statistics is rebuilt in " + Utils.timeInterval(startTime) + " ms");
+	}
+
+	/**
+	 * Check genre statistics consistency, rebuild it if it doesn't match book_genre table.
+	 * @return true if statistics was consistent
+	 */
+	public boolean checkGenreStats() {
+		Long total = longQuery("SELECT ifnull(sum(book_count), 0) FROM genre_stats");
+		Long expected = longQuery("SELECT count(*) FROM book_genre");
+		if (total != null && total.equals(expected))
+			return true;
+		log.w("Genre statistics is inconsistent: " + total + " instead of " + expected);
+		rebuildGenreStats();
+		return false;
 	}
 
 	private static boolean eq(String s1, String s2)
@@ -1137,9 +1496,12 @@ public class MainDB extends BaseDB {
 	}
 
 	private final static int FILE_INFO_CACHE_SIZE = 3000;
-	private FileInfoCache fileInfoCache = new FileInfoCache(FILE_INFO_CACHE_SIZE); 
+	// records are changed by writable instance, so read-only instance reads them from DB each time
+	private FileInfoCache fileInfoCache = new FileInfoCache(readOnly ? 0 : FILE_INFO_CACHE_SIZE);
 	
 	private FileInfo findMovedFileInfo(String path) {
+		if (readOnly)
+			return null; // record can't be fixed here, writable instance does it
 		ArrayList<FileInfo> list = new ArrayList<FileInfo>();
 		FileInfo fi = new FileInfo(path);
 		if (fi.exists()) {
@@ -1333,13 +1695,64 @@ public class MainDB extends BaseDB {
 			vlog.i("bookmarks added:" + added + ", updated: " + changed + ", removed:" + removed);
 	}
 
+	/**
+	 * Save last reading position of book, without comparing book record and all bookmarks with DB.
+	 * Updates existing last position bookmark and book access time in place.
+	 * @param bookInfo is book to save last position of
+	 * @return true if saved, false if book or its last position is not in DB yet, and saveBookInfo() is required
+	 */
+	public boolean saveLastPosition(BookInfo bookInfo) {
+		if (!isOpened())
+			return false;
+		FileInfo fileInfo = bookInfo.getFileInfo();
+		Bookmark bmk = bookInfo.getLastPosition();
+		if (fileInfo == null || bmk == null || bmk.getStartPos() == null)
+			return false;
+		FileInfo cached = fileInfoCache.get(fileInfo.getPathName());
+		Long bookId = cached != null && cached.id != null ? cached.id : fileInfo.id;
+		if (bookId == null)
+			return false;
+		try {
+			beginChanges();
+			mDB.execSQL("UPDATE bookmark SET percent=?, time_stamp=?, start_pos=?, end_pos=?, title_text=?, pos_text=?, time_elapsed=? " +
+							"WHERE book_fk=? AND type=" + Bookmark.TYPE_LAST_POSITION,
+					new Object[]{bmk.getPercent(), bmk.getTimeStamp(), bmk.getStartPos(), bmk.getEndPos(),
+							bmk.getTitleText(), bmk.getPosText(), bmk.getTimeElapsed(), bookId});
+			Long updated = longQuery("SELECT changes()");
+			if (updated == null || updated == 0)
+				return false;
+			mDB.execSQL("UPDATE book SET last_access_time=? WHERE id=?", new Object[]{fileInfo.lastAccessTime, bookId});
+			if (cached != null)
+				cached.lastAccessTime = fileInfo.lastAccessTime;
+			return true;
+		} catch (SQLiteException e) {
+			log.e("error while saving last position", e);
+			return false;
+		}
+	}
+
 	private boolean save(FileInfo fileInfo)	{
-		boolean authorsChanged = true;
-		boolean genresChanged = true;
 		try {
 			FileInfo oldValue = findFileInfoByPathname(fileInfo.getPathName(), false);
 			if (oldValue == null && fileInfo.id != null)
 				oldValue = findFileInfoById(fileInfo.id);
+			return save(fileInfo, oldValue);
+		} catch (SQLiteException e) {
+			log.e("error while writing to DB", e);
+			return false;
+		}
+	}
+
+	/**
+	 * Insert or update book record, when existing record (if any) is already found.
+	 * @param fileInfo is item to save
+	 * @param oldValue is existing DB record for this item, null if not found
+	 */
+	private boolean save(FileInfo fileInfo, FileInfo oldValue) {
+		boolean authorsChanged = true;
+		boolean genresChanged = true;
+		boolean searchIndexChanged = true;
+		try {
 			if (oldValue != null && fileInfo.id == null && oldValue.id != null)
 				fileInfo.id = oldValue.id;
 			if (oldValue != null) {
@@ -1352,12 +1765,13 @@ public class MainDB extends BaseDB {
 				}
 				authorsChanged = !eq(fileInfo.authors, oldValue.authors);
 				genresChanged = !eq(fileInfo.genres, oldValue.genres);
+				searchIndexChanged = authorsChanged || !eq(fileInfo.title, oldValue.title)
+						|| !eq(fileInfo.series, oldValue.series) || !eq(fileInfo.filename, oldValue.filename);
 			} else {
 				// inserting
 				vlog.d("inserting new file " + fileInfo.getPathName());
 				beginChanges();
-				QueryHelper h = new QueryHelper(fileInfo, new FileInfo());
-				fileInfo.id = h.insert();
+				fileInfo.id = insertBook(fileInfo);
 				authorsChanged = true;
 				genresChanged = true;
 			}
@@ -1376,6 +1790,8 @@ public class MainDB extends BaseDB {
 					Integer[] genresIds = getGenresIds(fileInfo.genres);
 					saveBookGenres(fileInfo.id, genresIds);
 				}
+				if (searchIndexChanged)
+					updateSearchIndex(fileInfo.id);
 				return true;
 			}
 			return false;
@@ -1385,6 +1801,67 @@ public class MainDB extends BaseDB {
 		}
 	}
 
+	private SQLiteStatement bookInsertStmt;
+	private Long insertBook(FileInfo fileInfo) {
+		if (bookInsertStmt == null)
+			bookInsertStmt = mDB.compileStatement("INSERT INTO book (id, pathname, folder_fk, filename, arcname, title, title_key, " +
+					"series_fk, series_number, format, filesize, arcsize, last_access_time, create_time, flags, " +
+					"language, description, crc32, domVersion, rendFlags) " +
+					"VALUES (NULL,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?)");
+		try {
+			SQLiteStatement stmt = bookInsertStmt;
+			int i = 1;
+			stmt.clearBindings();
+			bindString(stmt, i++, fileInfo.getPathName());
+			bindLong(stmt, i++, getFolderId(fileInfo.path));
+			bindString(stmt, i++, fileInfo.filename);
+			bindString(stmt, i++, fileInfo.arcname);
+			bindString(stmt, i++, fileInfo.title);
+			bindString(stmt, i++, sortKey(fileInfo.title));
+			bindLong(stmt, i++, getSeriesId(fileInfo.series));
+			// fields equal to defaults of new FileInfo are stored as column defaults (NULL or 0), as QueryHelper.insert() did
+			bindLong(stmt, i++, nonDefault(fileInfo.seriesNumber, 0));
+			bindLong(stmt, i++, fileInfo.format != null ? Long.valueOf(fileInfo.format.ordinal()) : null);
+			bindLong(stmt, i++, nonDefault(fileInfo.size, 0));
+			bindLong(stmt, i++, nonDefault(fileInfo.arcsize, 0));
+			bindLong(stmt, i++, nonDefault(fileInfo.lastAccessTime, 0));
+			bindLong(stmt, i++, nonDefault(fileInfo.createTime, 0));
+			stmt.bindLong(i++, fileInfo.flags);
+			bindString(stmt, i++, fileInfo.language);
+			bindString(stmt, i++, fileInfo.description);
+			bindLong(stmt, i++, nonDefault(fileInfo.crc32, 0));
+			stmt.bindLong(i++, fileInfo.domVersion != Engine.DOM_VERSION_CURRENT ? fileInfo.domVersion : 0);
+			stmt.bindLong(i++, fileInfo.blockRenderingFlags != Engine.BLOCK_RENDERING_FLAGS_WEB ? fileInfo.blockRenderingFlags : 0);
+			return stmt.executeInsert();
+		} catch (SQLException e) {
+			Log.e("cr3db", "insert failed: " + e.getMessage());
+			return null;
+		}
+	}
+
+	private static void bindString(SQLiteStatement stmt, int index, String value) {
+		if (value == null)
+			stmt.bindNull(index);
+		else
+			stmt.bindString(index, value);
+	}
+
+	private static Long nonDefault(long value, long defaultValue) {
+		return value != defaultValue ? Long.valueOf(value) : null;
+	}
+
+	private static void bindLong(SQLiteStatement stmt, int index, Long value) {
+		if (value == null)
+			stmt.bindNull(index);
+		else
+			stmt.bindLong(index, value);
+	}
+
+	// number of items to save in one transaction
+	private final static int SAVE_FILE_INFOS_CHUNK_SIZE = 200;
+	// max number of host parameters in one SQL statement (SQLITE_MAX_VARIABLE_NUMBER is 999)
+	private final static int MAX_SQL_PARAMS = 500;
+
 	public void saveFileInfos(Collection<FileInfo> list)
 	{
 		Log.v("cr3db", "save BookInfo collection: " + list.size() + " items");
@@ -1392,10 +1869,127 @@ public class MainDB extends BaseDB {
 			Log.e("cr3db", "cannot save book info : DB is closed");
 			return;
 		}
+		long startTime = Utils.timeStamp();
+		int count = 0;
+		ArrayList<FileInfo> chunk = new ArrayList<>(Math.min(list.size(), SAVE_FILE_INFOS_CHUNK_SIZE));
 		for (FileInfo fileInfo : list) {
-			save(fileInfo);
+			chunk.add(fileInfo);
+			if (chunk.size() >= SAVE_FILE_INFOS_CHUNK_SIZE) {
+				count += saveFileInfosChunk(chunk);
+				chunk.clear();
+			}
+		}
+		if (chunk.size() > 0)
+			count += saveFileInfosChunk(chunk);
+		long elapsed = Utils.timeInterval(startTime);
+		log.i("saveFileInfos: " + count + " of " + list.size() + " items saved in " + elapsed + " ms"
+				+ (elapsed > 0 ? " (" + (count * 1000L / elapsed) + " rows/sec)" : ""));
+	}
+
+	private int saveFileInfosChunk(ArrayList<FileInfo> chunk) {
+		int count = 0;
+		try {
+			HashMap<String, FileInfo> existing = findFileInfosByPathnames(chunk);
+			ArrayList<String> folders = new ArrayList<>(chunk.size());
+			ArrayList<String> series = new ArrayList<>(chunk.size());
+			ArrayList<String> authors = new ArrayList<>(chunk.size());
+			for (FileInfo fileInfo : chunk) {
+				folders.add(fileInfo.path);
+				series.add(fileInfo.series);
+				if (fileInfo.authors != null)
+					Collections.addAll(authors, fileInfo.authors.split("\\|"));
+			}
+			prefetchNameIds("folder", folderCache, folders);
+			prefetchNameIds("series", seriesCache, series);
+			prefetchNameIds("author", authorCache, authors);
+			for (FileInfo fileInfo : chunk) {
+				FileInfo oldValue = existing.get(fileInfo.getPathName());
+				if (oldValue == null && fileInfo.id != null)
+					oldValue = findFileInfoById(fileInfo.id);
+				if (save(fileInfo, oldValue))
+					count++;
+			}
+		} catch (SQLiteException e) {
+			log.e("error while writing to DB", e);
+		}
+		// commit chunk, but keep compiled statements for next one
+		super.flush();
+		return count;
+	}
+
+	/**
+	 * Find existing records for list of items, using single query for items not found in cache.
+	 * @return map of path name to found record
+	 */
+	private HashMap<String, FileInfo> findFileInfosByPathnames(Collection<FileInfo> items) {
+		HashMap<String, FileInfo> map = new HashMap<>();
+		ArrayList<String> paths = new ArrayList<>(items.size());
+		for (FileInfo item : items) {
+			String path = item.getPathName();
+			if (path == null)
+				continue;
+			FileInfo cached = fileInfoCache.get(path);
+			if (cached != null)
+				map.put(path, cached);
+			else
+				paths.add(path);
+		}
+		for (int start = 0; start < paths.size(); start += MAX_SQL_PARAMS) {
+			int end = Math.min(paths.size(), start + MAX_SQL_PARAMS);
+			String[] args = paths.subList(start, end).toArray(new String[0]);
+			String sql = READ_FILEINFO_SQL + " WHERE pathname IN (" + sqlParams(args.length) + ")";
+			try (Cursor rs = mDB.rawQuery(sql, args)) {
+				if (rs.moveToFirst()) {
+					do {
+						FileInfo fileInfo = new FileInfo();
+						readFileInfoFromCursor(fileInfo, rs);
+						fileInfoCache.put(fileInfo);
+						map.put(fileInfo.getPathName(), fileInfo);
+					} while (rs.moveToNext());
+				}
+			}
+		}
+		return map;
+	}
+
+	/**
+	 * Resolve ids of folders, series or authors with single query, and put them into cache.
+	 * Names not found in DB will be added later one by one.
+	 */
+	private void prefetchNameIds(String tableName, HashMap<String, Long> cache, Collection<String> names) {
+		ArrayList<String> toFind = new ArrayList<>(new LinkedHashSet<>(names));
+		for (Iterator<String> it = toFind.iterator(); it.hasNext(); ) {
+			String name = it.next();
+			if (name == null || name.trim().length() == 0 || cache.containsKey(name))
+				it.remove();
+		}
+		for (int start = 0; start < toFind.size(); start += MAX_SQL_PARAMS) {
+			int end = Math.min(toFind.size(), start + MAX_SQL_PARAMS);
+			String[] args = toFind.subList(start, end).toArray(new String[0]);
+			String sql = "SELECT id, name FROM " + tableName + " WHERE name IN (" + sqlParams(args.length) + ")";
+			try (Cursor rs = mDB.rawQuery(sql, args)) {
+				if (rs.moveToFirst()) {
+					do {
+						long id = rs.getLong(0);
+						String name = rs.getString(1);
+						// names which differ in case only are resolved later by exact query
+						if (name != null && !cache.containsKey(name))
+							cache.put(name, id);
+					} while (rs.moveToNext());
+				}
+			}
 		}
 	}
+
+	private static String sqlParams(int count) {
+		StringBuilder buf = new StringBuilder(count * 2);
+		for (int i = 0; i < count; i++) {
+			if (i > 0)
+				buf.append(",");
+			buf.append("?");
+		}
+		return buf.toString();
+	}
 	
 	/**
 	 * Load recent books list, with bookmarks
@@ -1574,6 +2168,7 @@ public class MainDB extends BaseDB {
 			add("filename", newValue.filename, oldValue.filename);
 			add("arcname", newValue.arcname, oldValue.arcname);
 			add("title", newValue.title, oldValue.title);
+			add("title_key", sortKey(newValue.title), sortKey(oldValue.title));
 			add("series_fk", getSeriesId(newValue.series), getSeriesId(oldValue.series));
 			add("series_number", (long)newValue.seriesNumber, (long)oldValue.seriesNumber);
 			add("format", fromFormat(newValue.format), fromFormat(oldValue.format));
@@ -1694,8 +2289,201 @@ public class MainDB extends BaseDB {
 		return buf.toString();
 	}
 	
+	//=======================================================================================
+	// Full text search index
+	//=======================================================================================
+
+	private boolean searchIndexAvailable = false;
+	private SQLiteStatement searchIndexInsertStmt;
+
+	private static final String READ_SEARCH_INDEX_FIELDS_SQL =
+		"SELECT b.id, b.title, " +
+		"(SELECT GROUP_CONCAT(a.name,' ') FROM author a JOIN book_author ba ON a.id=ba.author_fk WHERE ba.book_fk=b.id) as authors, " +
+		"s.name as series_name, b.filename " +
+		"FROM book b " +
+		"LEFT JOIN series s ON s.id=b.series_fk ";
+
+	private void insertSearchIndexRow(Cursor rs) {
+		if (searchIndexInsertStmt == null)
+			searchIndexInsertStmt = mDB.compileStatement("INSERT INTO book_fts (docid, title, authors, series, filename) VALUES (?,?,?,?,?)");
+		searchIndexInsertStmt.bindLong(1, rs.getLong(0));
+		for (int i = 1; i <= 4; i++)
+			bindString(searchIndexInsertStmt, i + 1, Utils.normalizeForSearch(rs.getString(i)));
+		searchIndexInsertStmt.executeInsert();
+	}
+
+	/**
+	 * Update search index record for book, from values actually stored in DB.
+	 */
+	private void updateSearchIndex(Long bookId) {
+		if (!searchIndexAvailable || bookId == null)
+			return;
+		try {
+			mDB.execSQL("DELETE FROM book_fts WHERE docid=" + bookId);
+			try (Cursor rs = mDB.rawQuery(READ_SEARCH_INDEX_FIELDS_SQL + " WHERE b.id=" + bookId, null)) {
+				if (rs.moveToFirst())
+					insertSearchIndexRow(rs);
+			}
+		} catch (SQLException e) {
+			log.e("error while updating search index", e);
+		}
+	}
+
+	/**
+	 * Recreate full text search index for all books.
+	 */
+	public void rebuildSearchIndex() {
+		log.i("Rebuilding full text search index...");
+		long startTime = Utils.timeStamp();
+		int count = 0;
+		mDB.beginTransaction();
+		try {
+			mDB.execSQL("DELETE FROM book_fts");
+			try (Cursor rs = mDB.rawQuery(READ_SEARCH_INDEX_FIELDS_SQL, null)) {
+				if (rs.moveToFirst()) {
+					do {
+						insertSearchIndexRow(rs);
+						count++;
+					} while (rs.moveToNext());
+				}
+			}
+			mDB.setTransactionSuccessful();
+		} catch (SQLException e) {
+			log.e("error while rebuilding search index", e);
+		} finally {
+			mDB.endTransaction();
+			if (searchIndexInsertStmt != null) {
+				searchIndexInsertStmt.close();
+				searchIndexInsertStmt = null;
+			}
+		}
+		log.i("Search index: " + count + " books indexed in " + Utils.timeInterval(startTime) + " ms");
+	}
+
+	private static boolean isSearchTokenChar(char ch) {
+		// the same as for FTS "simple" tokenizer
+		return ch >= 128 || Character.isLetterOrDigit(ch);
+	}
+
+	/**
+	 * Make FTS phrase query which matches pattern at beginning of word,
+	 * like Utils.matchPattern() does: "word1 word2 prefix*".
+	 * @return query, or null if pattern has no searchable characters
+	 */
+	private static String searchIndexPhrase(String pattern) {
+		String normalized = Utils.normalizeForSearch(pattern);
+		StringBuilder buf = new StringBuilder();
+		boolean inToken = false;
+		for (int i = 0; i < normalized.length(); i++) {
+			char ch = normalized.charAt(i);
+			if (isSearchTokenChar(ch)) {
+				if (!inToken && buf.length() > 0)
+					buf.append(' ');
+				buf.append(ch);
+				inToken = true;
+			} else {
+				inToken = false;
+			}
+		}
+		if (buf.length() == 0)
+			return null;
+		return "\"" + buf + "*\"";
+	}
+
+	private static boolean addSearchIndexCondition(StringBuilder buf, ArrayList<String> args, String column, String... patterns) {
+		StringBuilder query = new StringBuilder();
+		for (String pattern : patterns) {
+			String phrase = searchIndexPhrase(pattern);
+			if (phrase == null)
+				return false;
+			if (query.length() > 0)
+				query.append(" OR ");
+			query.append(phrase);
+		}
+		if (buf.length() > 0)
+			buf.append(" AND ");
+		buf.append("b.id IN (SELECT docid FROM book_fts WHERE ").append(column).append(" MATCH ?)");
+		args.add(query.toString());
+		return true;
+	}
+
+	private static boolean matchAuthors(String bookAuthors, String[] authorPatterns) {
+		if (bookAuthors == null)
+			return false;
+		for (String author : bookAuthors.split("\\|")) {
+			for (String pattern : authorPatterns) {
+				if (Utils.matchPattern(author, pattern))
+					return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Find books using full text search index.
+	 * Index is used to select candidates, which are checked with Utils.matchPattern() then.
+	 * @return list of found books, or null if search index cannot be used for these patterns
+	 */
+	private ArrayList<FileInfo> findByPatternsIndexed(int maxCount, String authors, String title, String series, String filename) {
+		StringBuilder buf = new StringBuilder();
+		ArrayList<String> args = new ArrayList<>();
+		String[] authorsArray = null;
+		if (authors != null && authors.length() > 0) {
+			// When synchronizing from the cloud, the 'authors' variable can contain multiple authors separated by '|'.
+			authorsArray = authors.split("\\|");
+			if (!addSearchIndexCondition(buf, args, "authors", authorsArray))
+				return null;
+		}
+		if (series != null && series.length() > 0) {
+			if (!addSearchIndexCondition(buf, args, "series", series))
+				return null;
+		} else
+			series = null;
+		if (title != null && title.length() > 0) {
+			if (!addSearchIndexCondition(buf, args, "title", title))
+				return null;
+		} else
+			title = null;
+		if (filename != null && filename.length() > 0) {
+			if (!addSearchIndexCondition(buf, args, "filename", filename))
+				return null;
+		} else
+			filename = null;
+		ArrayList<FileInfo> list = new ArrayList<>();
+		if (buf.length() == 0)
+			return list;
+		String sql = READ_FILEINFO_SQL + " WHERE " + buf;
+		Log.d("cr3", "sql: " + sql + ", args: " + args);
+		beginReading();
+		try (Cursor rs = mDB.rawQuery(sql, args.toArray(new String[0]))) {
+			if (rs.moveToFirst()) {
+				do {
+					if (title != null && !Utils.matchPattern(rs.getString(5), title))
+						continue;
+					if (filename != null && !Utils.matchPattern(rs.getString(3), filename))
+						continue;
+					if (authorsArray != null && !matchAuthors(rs.getString(6), authorsArray))
+						continue;
+					if (series != null && !Utils.matchPattern(rs.getString(8), series))
+						continue;
+					FileInfo fi = new FileInfo();
+					readFileInfoFromCursor(fi, rs);
+					list.add(fi);
+					fileInfoCache.put(fi);
+				} while (list.size() < maxCount && rs.moveToNext());
+			}
+		}
+		endReading();
+		return list;
+	}
+
 	public ArrayList<FileInfo> findByPatterns(int maxCount, String authors, String title, String series, String filename)
 	{
+		if (searchIndexAvailable) {
+			ArrayList<FileInfo> found = findByPatternsIndexed(maxCount, authors, title, series, filename);
+			if (found != null)
+				return found;
+		}
 		beginReading();
 		ArrayList<FileInfo> list = new ArrayList<>();
 		StringBuilder buf = new StringBuilder();
@@ -1786,32 +2574,16 @@ public class MainDB extends BaseDB {
 			item.isScanned = true;
 			item.id = (long)-1;			// fake id
 			// get books count
-			StringBuilder where_clause = new StringBuilder(" WHERE ");
-			Iterator<GenresCollection.GenreRecord> it = genreRecord.getChilds().iterator();
-			while (it.hasNext()) {
-				where_clause.append("bg.genre_fk=").append(it.next().getId());
-				if (it.hasNext())
-					where_clause.append(" OR ");
-			}
-			sql = "SELECT count(DISTINCT book_fk) as book_count FROM book_genre bg " + where_clause.toString();
-			Log.d("cr3", "sql: " + sql );
-			try (Cursor rs = mDB.rawQuery(sql, null)) {
-				if (rs.moveToFirst()) {
-					do {
-						book_count = rs.getInt(0);
-					} while (rs.moveToNext());
-				}
-			}
+			Long groupBookCount = longQuery("SELECT book_count FROM genre_group_stats WHERE group_fk=" + genreRecord.getId());
+			book_count = groupBookCount != null ? groupBookCount.intValue() : 0;
 			item.tag = FileInfo.GENRE_DATA_INCCHILD_MASK | book_count;
 			list.add(item);
 
 			// child genres
-			sql = "SELECT code, " +
-					"(SELECT COUNT(DISTINCT book_fk) FROM book_genre bg " +
-					"  WHERE bg.genre_fk=g.id " +
-					") as book_count " +
+			sql = "SELECT code, ifnull(gs.book_count, 0) as book_count " +
 					"FROM genre g " +
 					"INNER JOIN genre_hier gh ON gh.genre_fk = g.id " +
+					"LEFT JOIN genre_stats gs ON gs.genre_fk = g.id " +
 					"WHERE gh.group_fk=" + genreRecord.getId();
 			Log.d("cr3", "sql: " + sql );
 			try (Cursor rs = mDB.rawQuery(sql, null)) {
@@ -2017,9 +2789,14 @@ public class MainDB extends BaseDB {
 		fileInfoCache.remove(fileInfo);
 		if (bookId == null)
 			return null;
+		// force rescan of book folder
+		execSQLIgnoreErrors("DELETE FROM folder_fingerprint WHERE folder_fk=(SELECT folder_fk FROM book WHERE id=" + bookId + ")");
 		execSQLIgnoreErrors("DELETE FROM bookmark WHERE book_fk=" + bookId);
 		execSQLIgnoreErrors("DELETE FROM book_author WHERE book_fk=" + bookId);
+		onBookGenresRemoving(bookId);
 		execSQLIgnoreErrors("DELETE FROM book_genre WHERE book_fk=" + bookId);
+		if (searchIndexAvailable)
+			execSQLIgnoreErrors("DELETE FROM book_fts WHERE docid=" + bookId);
 		execSQLIgnoreErrors("DELETE FROM book WHERE id=" + bookId);
 		return bookId;
 	}